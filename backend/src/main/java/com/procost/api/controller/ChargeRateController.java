@@ -2,6 +2,7 @@ package com.procost.api.controller;
 
 import com.procost.api.model.ChargeRate;
 import com.procost.api.service.ChargeRateService;
+import com.procost.api.service.RateTableSyncService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -121,4 +123,15 @@ public class ChargeRateController {
         List<ChargeRate> savedChargeRates = chargeRateService.saveAllChargeRates(factoryId, chargeRates);
         return new ResponseEntity<>(savedChargeRates, HttpStatus.CREATED);
     }
+    
+    /**
+     * Replace the factory's charge rates with the given list, writing only the rows that changed
+     */
+    @PutMapping("/factory/{factoryId}/batch")
+    public ResponseEntity<Map<String, Object>> syncChargeRates(
+            @PathVariable Long factoryId,
+            @Valid @RequestBody List<ChargeRate> chargeRates) {
+        RateTableSyncService.Changes changes = chargeRateService.syncChargeRates(factoryId, chargeRates);
+        return new ResponseEntity<>(changes.toMap(), HttpStatus.OK);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.procost.api.controller;
+
+import com.procost.api.service.EmailArchiveReader;
+import com.procost.api.service.EmailBackfillJob;
+import com.procost.api.service.EmailBackfillService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bulk replay of historic mailboxes through the email pipeline.
+ * POST the raw archive as the request body (NDJSON of webhook objects, or an mbox file)
+ * and poll the returned status URL for progress and throughput.
+ */
+@RestController
+@RequestMapping("/api/emails/backfill")
+@PreAuthorize("hasRole('ADMIN')")
+public class EmailBackfillController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailBackfillController.class);
+
+    @Autowired
+    private EmailBackfillService emailBackfillService;
+
+    @PostMapping
+    public ResponseEntity<?> startBackfill(InputStream archive,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                           @RequestParam(required = false) String format,
+                                           @RequestParam(defaultValue = "false") boolean skipDuplicates) {
+        EmailArchiveReader.Format archiveFormat;
+        try {
+            archiveFormat = format != null ? EmailArchiveReader.Format.fromName(format) : formatOf(contentType);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, "Unsupported archive format: " + format + " (use ndjson or mbox)");
+        }
+
+        try {
+            EmailBackfillJob job = emailBackfillService.submit(archive, archiveFormat, skipDuplicates);
+
+            Map<String, Object> response = job.toMap();
+            response.put("status_url", "/api/emails/backfill/" + job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (RejectedExecutionException e) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Too many backfill jobs queued, please retry later");
+        } catch (Exception e) {
+            logger.error("Error accepting email backfill", e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public List<Map<String, Object>> listBackfills() {
+        return emailBackfillService.listJobs();
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getBackfill(@PathVariable String jobId) {
+        Optional<EmailBackfillJob> job = emailBackfillService.findJob(jobId);
+        if (!job.isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Backfill job not found: " + jobId);
+        }
+        return ResponseEntity.ok(job.get().toMap());
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<?> cancelBackfill(@PathVariable String jobId) {
+        Optional<EmailBackfillJob> job = emailBackfillService.findJob(jobId);
+        if (!job.isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Backfill job not found: " + jobId);
+        }
+        job.get().cancel();
+        return ResponseEntity.ok(job.get().toMap());
+    }
+
+    /**
+     * mbox uploads are recognised by their content type; anything else is read as NDJSON
+     */
+    private static EmailArchiveReader.Format formatOf(String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith("application/mbox")) {
+            return EmailArchiveReader.Format.MBOX;
+        }
+        return EmailArchiveReader.Format.NDJSON;
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        errorResponse.put("success", false);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+}
@@ -0,0 +1,153 @@
+package com.procost.api.dto;
+
+import java.util.List;
+
+public class BatchCalculateResponse {
+    
+    private Long factoryId;
+    // Version of the rate tables every line was priced from
+    private Long rateVersion;
+    private List<LineResult> lines;
+    private int lineCount;
+    private int pricedCount;
+    private int errorCount;
+    private Double totalWeight;
+    private Double totalCompulsory;
+    private Double totalOptional;
+    private Double totalCharges;
+    
+    public Long getFactoryId() {
+        return factoryId;
+    }
+    
+    public void setFactoryId(Long factoryId) {
+        this.factoryId = factoryId;
+    }
+    
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+    
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+    
+    public List<LineResult> getLines() {
+        return lines;
+    }
+    
+    public void setLines(List<LineResult> lines) {
+        this.lines = lines;
+    }
+    
+    public int getLineCount() {
+        return lineCount;
+    }
+    
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+    
+    public int getPricedCount() {
+        return pricedCount;
+    }
+    
+    public void setPricedCount(int pricedCount) {
+        this.pricedCount = pricedCount;
+    }
+    
+    public int getErrorCount() {
+        return errorCount;
+    }
+    
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+    
+    public Double getTotalWeight() {
+        return totalWeight;
+    }
+    
+    public void setTotalWeight(Double totalWeight) {
+        this.totalWeight = totalWeight;
+    }
+    
+    public Double getTotalCompulsory() {
+        return totalCompulsory;
+    }
+    
+    public void setTotalCompulsory(Double totalCompulsory) {
+        this.totalCompulsory = totalCompulsory;
+    }
+    
+    public Double getTotalOptional() {
+        return totalOptional;
+    }
+    
+    public void setTotalOptional(Double totalOptional) {
+        this.totalOptional = totalOptional;
+    }
+    
+    public Double getTotalCharges() {
+        return totalCharges;
+    }
+    
+    public void setTotalCharges(Double totalCharges) {
+        this.totalCharges = totalCharges;
+    }
+    
+    /**
+     * Result for one input line, in input order. Failed lines carry an error and no charges.
+     */
+    public static class LineResult {
+        private int index;
+        private Double filingRate;
+        private Double packagingRate;
+        private CalculateChargesResponse charges;
+        private String error;
+        
+        public LineResult(int index) {
+            this.index = index;
+        }
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public void setIndex(int index) {
+            this.index = index;
+        }
+        
+        public Double getFilingRate() {
+            return filingRate;
+        }
+        
+        public void setFilingRate(Double filingRate) {
+            this.filingRate = filingRate;
+        }
+        
+        public Double getPackagingRate() {
+            return packagingRate;
+        }
+        
+        public void setPackagingRate(Double packagingRate) {
+            this.packagingRate = packagingRate;
+        }
+        
+        public CalculateChargesResponse getCharges() {
+            return charges;
+        }
+        
+        public void setCharges(CalculateChargesResponse charges) {
+            this.charges = charges;
+        }
+        
+        public String getError() {
+            return error;
+        }
+        
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
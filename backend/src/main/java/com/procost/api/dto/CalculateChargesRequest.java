@@ -15,6 +15,11 @@ public class CalculateChargesRequest {
     
     private OptionsDto options;
     
+    // Optional; select product-specific factory charge rates
+    private String prodType;
+    
+    private String product;
+    
     public Double getYieldValue() {
         return yieldValue;
     }
@@ -39,9 +44,30 @@ public class CalculateChargesRequest {
         this.options = options;
     }
     
+    public String getProdType() {
+        return prodType;
+    }
+    
+    public void setProdType(String prodType) {
+        this.prodType = prodType;
+    }
+    
+    public String getProduct() {
+        return product;
+    }
+    
+    public void setProduct(String product) {
+        this.product = product;
+    }
+    
     public static class OptionsDto {
         private boolean prodaB;
         private boolean encoding;
+        // Factory fees; only charged when the factory defines them
+        private boolean receptionFee;
+        private boolean dispatchFee;
+        private boolean environmentalFee;
+        private boolean electricityFee;
         
         public boolean isProdaB() {
             return prodaB;
@@ -58,5 +84,37 @@ public class CalculateChargesRequest {
         public void setEncoding(boolean encoding) {
             this.encoding = encoding;
         }
+        
+        public boolean isReceptionFee() {
+            return receptionFee;
+        }
+        
+        public void setReceptionFee(boolean receptionFee) {
+            this.receptionFee = receptionFee;
+        }
+        
+        public boolean isDispatchFee() {
+            return dispatchFee;
+        }
+        
+        public void setDispatchFee(boolean dispatchFee) {
+            this.dispatchFee = dispatchFee;
+        }
+        
+        public boolean isEnvironmentalFee() {
+            return environmentalFee;
+        }
+        
+        public void setEnvironmentalFee(boolean environmentalFee) {
+            this.environmentalFee = environmentalFee;
+        }
+        
+        public boolean isElectricityFee() {
+            return electricityFee;
+        }
+        
+        public void setElectricityFee(boolean electricityFee) {
+            this.electricityFee = electricityFee;
+        }
     }
 }
\ No newline at end of file
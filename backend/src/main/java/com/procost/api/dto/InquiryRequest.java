@@ -50,6 +50,8 @@ public class InquiryRequest {
     @Positive
     private Double totalCharges;
     
+    private Long rateVersion;
+    
     public String getProduct() {
         return product;
     }
@@ -154,6 +156,14 @@ public class InquiryRequest {
         this.optionalCharges = optionalCharges;
     }
     
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+    
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+    
     public Double getTotalCharges() {
         return totalCharges;
     }
@@ -20,6 +20,7 @@ public class InquiryResponse {
     private Double terminalCharge;
     private Map<String, Double> optionalCharges;
     private Double totalCharges;
+    private Long rateVersion;
     private LocalDateTime createdAt;
     
     public InquiryResponse(Long id, Long userId, String product, String trimType, String rmSpec,
@@ -167,6 +168,14 @@ public class InquiryResponse {
         this.optionalCharges = optionalCharges;
     }
     
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+    
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+    
     public Double getTotalCharges() {
         return totalCharges;
     }
@@ -0,0 +1,151 @@
+package com.procost.api.interceptor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Times every repository method and, for methods returning a collection, page or stream, records how
+ * many rows it returned, tagged by repository interface and method. Meters are looked up once per
+ * repository method, so the per-call cost is two map lookups and the clock reads. Replaces Spring
+ * Boot's own repository timer, which has no row counts.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    public static final String INVOCATION_TIMER = "repository.invocations";
+    public static final String ROWS_SUMMARY = "repository.rows";
+
+    private static final String REPOSITORY_PACKAGE = "com.procost.api.repository.";
+
+    private enum Rows { NONE, COLLECTION, SLICE, STREAM }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Proxy class to its repository interface name, then method to its meters
+    private final ConcurrentHashMap<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Method, Meters>> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(), this::repositoryName);
+        Meters methodMeters = meters.computeIfAbsent(repository, r -> new ConcurrentHashMap<>())
+            .computeIfAbsent(method, m -> new Meters(repository, m));
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            methodMeters.failure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        methodMeters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return methodMeters.recordRows(result);
+    }
+
+    private String repositoryName(Class<?> proxyClass) {
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(proxyClass)) {
+            if (type.getName().startsWith(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+
+    private final class Meters {
+        private final String repository;
+        private final String method;
+        private final Timer success;
+        private final Timer failure;
+        private final Rows kind;
+        // Registered on first use, so counts, flags and single-entity lookups export no empty series
+        private volatile DistributionSummary rowSummary;
+
+        private Meters(String repository, Method method) {
+            this.repository = repository;
+            this.method = method.getName();
+            success = timer(repository, method, "success");
+            failure = timer(repository, method, "error");
+            kind = kindOf(method.getReturnType());
+        }
+
+        private Timer timer(String repository, Method method, String outcome) {
+            return Timer.builder(INVOCATION_TIMER)
+                .description("Repository method duration")
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+
+        /**
+         * Record the rows of a collection or page result; a stream is counted as it is consumed
+         * and recorded when it is closed. Other results pass through unrecorded.
+         */
+        private Object recordRows(Object result) {
+            switch (kind) {
+                case COLLECTION:
+                    rowSummary().record(result != null ? ((Collection<?>) result).size() : 0);
+                    return result;
+                case SLICE:
+                    rowSummary().record(result != null ? ((Slice<?>) result).getNumberOfElements() : 0);
+                    return result;
+                case STREAM:
+                    if (result == null) {
+                        return null;
+                    }
+                    AtomicLong rows = new AtomicLong();
+                    return ((Stream<?>) result).peek(row -> rows.incrementAndGet())
+                        .onClose(() -> rowSummary().record(rows.get()));
+                default:
+                    return result;
+            }
+        }
+
+        private DistributionSummary rowSummary() {
+            DistributionSummary summary = rowSummary;
+            if (summary == null) {
+                // The registry returns the same meter if two threads get here at once
+                summary = DistributionSummary.builder(ROWS_SUMMARY)
+                    .description("Rows returned by a repository method")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .register(meterRegistry);
+                rowSummary = summary;
+            }
+            return summary;
+        }
+    }
+
+    private static Rows kindOf(Class<?> type) {
+        if (Slice.class.isAssignableFrom(type)) {
+            return Rows.SLICE;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return Rows.COLLECTION;
+        }
+        if (Stream.class.isAssignableFrom(type)) {
+            return Rows.STREAM;
+        }
+        return Rows.NONE;
+    }
+}
@@ -5,7 +5,10 @@ import javax.validation.constraints.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "charge_rates")
+@Table(name = "charge_rates", indexes = {
+    @Index(name = "idx_charge_rates_factory_id", columnList = "factory_id, id"),
+    @Index(name = "idx_charge_rates_factory_name", columnList = "factory_id, chargeName, id")
+})
 public class ChargeRate {
     
     @Id
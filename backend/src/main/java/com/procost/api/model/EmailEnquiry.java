@@ -8,7 +8,9 @@ import java.util.List;
 import org.hibernate.annotations.CreationTimestamp;
 
 @Entity
-@Table(name = "email_enquiries")
+@Table(name = "email_enquiries", indexes = {
+    @Index(name = "idx_email_enquiries_original_email_id", columnList = "originalEmailId")
+})
 public class EmailEnquiry {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,7 +27,8 @@ public class EmailEnquiry {
     @Size(max = 500)
     private String subject;
     
-    @Lob
+    // Plain text rather than @Lob, so the backfill's JDBC inserts and JPA read it the same way
+    @Column(columnDefinition = "text")
     private String emailBody;
     
     @Size(max = 255)
@@ -48,7 +51,11 @@ public class EmailEnquiry {
     @Column(nullable = false)
     private Boolean aiProcessed = false;
     
-    @Lob
+    // Async ingestion state (null for enquiries processed inline)
+    @Enumerated(EnumType.STRING)
+    private IngestionStatus ingestionStatus;
+    
+    @Column(columnDefinition = "text")
     private String processingNotes;
     
     private LocalDateTime processedAt;
@@ -146,6 +153,14 @@ public class EmailEnquiry {
         this.aiProcessed = aiProcessed;
     }
     
+    public IngestionStatus getIngestionStatus() {
+        return ingestionStatus;
+    }
+    
+    public void setIngestionStatus(IngestionStatus ingestionStatus) {
+        this.ingestionStatus = ingestionStatus;
+    }
+    
     public String getProcessingNotes() {
         return processingNotes;
     }
@@ -59,6 +59,9 @@ public class Inquiry {
     @Column(nullable = false)
     private Double totalCharges;
     
+    // Version of the rate tables the rates were quoted from, when the client reports it
+    private Long rateVersion;
+    
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
     
@@ -182,6 +185,14 @@ public class Inquiry {
         this.optionalCharges = optionalCharges;
     }
     
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+    
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+    
     public Double getTotalCharges() {
         return totalCharges;
     }
@@ -0,0 +1,31 @@
+package com.procost.api.repository;
+
+import com.procost.api.model.AIResponseCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AIResponseCacheRepository extends JpaRepository<AIResponseCacheEntry, String> {
+    
+    /**
+     * Remove entries created before the cutoff
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AIResponseCacheEntry e WHERE e.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Creation times, oldest first, for finding the cutoff that trims the store to its size limit
+     */
+    @Query("SELECT e.createdAt FROM AIResponseCacheEntry e ORDER BY e.createdAt ASC")
+    List<LocalDateTime> findCreatedAtOldestFirst(Pageable pageable);
+}
@@ -0,0 +1,145 @@
+package com.procost.api.security;
+
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Users resolved from verified JWTs, keyed by a SHA-256 hash of the token and kept until the
+ * token expires, so a repeat request skips signature verification and the user query. Entries of
+ * a user are dropped when their admin flag changes or the user is deleted; a lookup that raced
+ * with such a change is not cached.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtPrincipalCache.class);
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Value("${jwt.principal.cache.max.entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a lookup started before one must not be cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * The user a token authenticates
+     * @return null if the token is invalid or expired
+     * @throws org.springframework.security.core.userdetails.UsernameNotFoundException if its user no longer exists
+     */
+    public UserDetailsImpl resolve(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.user;
+            }
+            entries.remove(key, entry);
+        }
+        misses.incrementAndGet();
+
+        long generationBefore = generation.get();
+        Claims claims = jwtUtils.getValidClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+        if (claims.getExpiration() != null && generation.get() == generationBefore) {
+            if (entries.size() >= maxEntries) {
+                sweep(now);
+            }
+            Entry added = new Entry(user, claims.getExpiration().getTime());
+            entries.put(key, added);
+            if (generation.get() != generationBefore) {
+                // Invalidated while being added
+                entries.remove(key, added);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Forget every cached token of a user, after their roles change or they are deleted
+     */
+    public void invalidateUser(String username) {
+        generation.incrementAndGet();
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.user.getUsername().equals(username));
+        invalidations.incrementAndGet();
+        logger.info("Dropped {} cached tokens of user {}", before - entries.size(), username);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    /**
+     * Drop expired tokens; if the cache is still full, drop a tenth of it
+     */
+    private synchronized void sweep(long now) {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class Entry {
+        private final UserDetailsImpl user;
+        private final long expiresAt;
+
+        private Entry(UserDetailsImpl user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
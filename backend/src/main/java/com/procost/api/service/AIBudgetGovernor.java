@@ -0,0 +1,323 @@
+package com.procost.api.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Daily request and spend budget for OpenAI calls.
+ * Counters are lock-free and reset at midnight. A share of the daily requests is reserved
+ * for priority mail (ORDER by default), and each sender domain has its own daily cap and
+ * token bucket so a burst from one domain cannot use up the budget meant for real orders.
+ * Callers check hasBudget to degrade to pattern-only mode; every OpenAI call goes through
+ * guard, which takes the sender and priority from the Reactor context.
+ */
+@Component
+public class AIBudgetGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIBudgetGovernor.class);
+
+    private static final String SENDER_DOMAIN_KEY = AIBudgetGovernor.class.getName() + ".domain";
+    private static final String PRIORITY_KEY = AIBudgetGovernor.class.getName() + ".priority";
+    private static final String UNKNOWN_DOMAIN = "unknown";
+    private static final int TOP_DOMAINS = 5;
+
+    @Value("${ai.max.daily.requests:2000}")
+    private long maxDailyRequests;
+
+    @Value("${ai.cost.alert.threshold:10.00}")
+    private double costAlertThreshold;
+
+    @Value("${ai.cost.daily.limit:${ai.cost.alert.threshold:10.00}}")
+    private double dailyCostLimit;
+
+    @Value("${ai.budget.priority.reserve:0.2}")
+    private double priorityReserve;
+
+    @Value("${ai.budget.priority.classifications:ORDER}")
+    private String priorityClassifications;
+
+    @Value("${ai.budget.domain.share:0.1}")
+    private double domainShare;
+
+    @Value("${ai.budget.domain.burst:20}")
+    private int domainBurst;
+
+    @Value("${ai.budget.domain.refill.per.minute:5}")
+    private int domainRefillPerMinute;
+
+    @Autowired
+    private AICostModel costModel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<DayBudget> today = new AtomicReference<>(new DayBudget(LocalDate.now()));
+
+    private Set<String> priorityLabels;
+
+    @PostConstruct
+    public void init() {
+        priorityLabels = Arrays.stream(priorityClassifications.split(","))
+                .map(String::trim)
+                .filter(label -> !label.isEmpty())
+                .map(label -> label.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        meterRegistry.gauge("ai.budget.requests", today, ref -> ref.get().requests.get());
+        meterRegistry.gauge("ai.budget.spend.usd", today, ref -> ref.get().spend.sum());
+    }
+
+    /**
+     * Reactor context carrying the sender and priority of the email being processed
+     */
+    public Context context(String fromEmail, boolean priority) {
+        return Context.of(SENDER_DOMAIN_KEY, domainOf(fromEmail), PRIORITY_KEY, priority);
+    }
+
+    public boolean isPriority(String classification) {
+        return classification != null && priorityLabels.contains(classification.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Whether a call for this sender would currently be allowed, without using any budget
+     */
+    public boolean hasBudget(String fromEmail, boolean priority) {
+        DayBudget day = current();
+        if (day.spend.sum() >= dailyCostLimit || day.requests.get() >= requestLimit(priority)) {
+            return false;
+        }
+        DomainBudget domain = day.domains.get(domainOf(fromEmail));
+        return domain == null || (domain.requests.get() < domainLimit() && domain.bucket.getAvailableTokens() > 0);
+    }
+
+    /**
+     * Run an OpenAI call against the budget of the sender in the Reactor context.
+     * The call fails with BudgetExceededException, without being made, once the budget is used up.
+     */
+    public <T> Mono<T> guard(Function<Usage, Mono<T>> call) {
+        return Mono.deferContextual(context -> {
+            String domain = context.getOrDefault(SENDER_DOMAIN_KEY, UNKNOWN_DOMAIN);
+            boolean priority = context.getOrDefault(PRIORITY_KEY, false);
+
+            String denial = tryAcquire(domain, priority);
+            if (denial != null) {
+                meterRegistry.counter("ai.budget.denied", "reason", denial).increment();
+                return Mono.error(new BudgetExceededException(
+                        "AI budget exhausted (" + denial + ") for " + domain));
+            }
+            return call.apply(new Usage(current(), domain));
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        DayBudget day = current();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("date", day.date.toString());
+        stats.put("requests", day.requests.get());
+        stats.put("priorityRequests", day.priorityRequests.get());
+        stats.put("maxDailyRequests", maxDailyRequests);
+        stats.put("priorityReserve", priorityReserve);
+        stats.put("deniedRequests", day.denied.get());
+        stats.put("spendUsd", day.spend.sum());
+        stats.put("dailyCostLimitUsd", dailyCostLimit);
+        stats.put("costAlertThresholdUsd", costAlertThreshold);
+        stats.put("domainLimit", domainLimit());
+        stats.put("domains", day.domains.size());
+
+        Map<String, Object> topDomains = new HashMap<>();
+        day.domains.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().requests.get(), a.getValue().requests.get()))
+                .limit(TOP_DOMAINS)
+                .forEach(entry -> {
+                    Map<String, Object> usage = new HashMap<>();
+                    usage.put("requests", entry.getValue().requests.get());
+                    usage.put("spendUsd", entry.getValue().spend.sum());
+                    topDomains.put(entry.getKey(), usage);
+                });
+        stats.put("topDomains", topDomains);
+        return stats;
+    }
+
+    /**
+     * Take one request from the day and domain budgets; returns the reason for a denial, or null.
+     * Priority only widens the day limit: priority is read from content the sender controls,
+     * so it never lifts the per-domain burst and daily caps.
+     */
+    private String tryAcquire(String domainName, boolean priority) {
+        DayBudget day = current();
+
+        if (day.spend.sum() >= dailyCostLimit) {
+            return deny(day, "cost_limit", true);
+        }
+
+        DomainBudget domain = day.domains.computeIfAbsent(domainName, name -> new DomainBudget(newDomainBucket()));
+        if (!domain.bucket.tryConsume(1)) {
+            return deny(day, "domain_burst", false);
+        }
+        if (!increment(domain.requests, domainLimit())) {
+            domain.bucket.addTokens(1);
+            return deny(day, "domain_limit", false);
+        }
+
+        if (!increment(day.requests, requestLimit(priority))) {
+            domain.requests.decrementAndGet();
+            domain.bucket.addTokens(1);
+            return deny(day, priority ? "daily_limit" : "priority_reserve", true);
+        }
+
+        if (priority) {
+            day.priorityRequests.incrementAndGet();
+        }
+        return null;
+    }
+
+    private String deny(DayBudget day, String reason, boolean dayBudget) {
+        day.denied.incrementAndGet();
+        if (dayBudget && day.exhaustedLogged.compareAndSet(false, true)) {
+            logger.warn("AI budget exhausted for {} ({}), emails fall back to pattern-only processing",
+                        day.date, reason);
+        }
+        return reason;
+    }
+
+    private void recordSpend(DayBudget day, String domainName, double cost) {
+        day.spend.add(cost);
+        DomainBudget domain = day.domains.get(domainName);
+        if (domain != null) {
+            domain.spend.add(cost);
+        }
+        if (day.spend.sum() >= costAlertThreshold && day.alerted.compareAndSet(false, true)) {
+            logger.warn("AI spend for {} reached ${} (alert threshold ${})",
+                        day.date, String.format("%.2f", day.spend.sum()), costAlertThreshold);
+        }
+    }
+
+    /**
+     * Increment the counter unless it has reached the limit
+     */
+    private static boolean increment(AtomicLong counter, long limit) {
+        long current;
+        do {
+            current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Non-priority mail may not use the reserved share of the daily requests
+     */
+    private long requestLimit(boolean priority) {
+        return priority ? maxDailyRequests : (long) Math.floor(maxDailyRequests * (1 - priorityReserve));
+    }
+
+    private long domainLimit() {
+        return Math.max(1, (long) Math.floor(maxDailyRequests * domainShare));
+    }
+
+    private Bucket newDomainBucket() {
+        Bandwidth limit = Bandwidth.classic(domainBurst, Refill.greedy(domainRefillPerMinute, Duration.ofMinutes(1)));
+        return Bucket.builder().addLimit(limit).build();
+    }
+
+    /**
+     * Budget of the current day, replaced by a fresh one on the first call after midnight
+     */
+    private DayBudget current() {
+        LocalDate date = LocalDate.now();
+        DayBudget day = today.get();
+        while (!day.date.equals(date)) {
+            today.compareAndSet(day, new DayBudget(date));
+            day = today.get();
+        }
+        return day;
+    }
+
+    private static String domainOf(String fromEmail) {
+        if (fromEmail == null) {
+            return UNKNOWN_DOMAIN;
+        }
+        int at = fromEmail.lastIndexOf('@');
+        String domain = fromEmail.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+        return domain.isEmpty() ? UNKNOWN_DOMAIN : domain;
+    }
+
+    /**
+     * Handle for recording the spend of a call that was let through
+     */
+    public class Usage {
+        private final DayBudget day;
+        private final String domain;
+
+        private Usage(DayBudget day, String domain) {
+            this.day = day;
+            this.domain = domain;
+        }
+
+        public void recordTokens(int promptTokens, int completionTokens) {
+            recordSpend(day, domain, costModel.cost(promptTokens, completionTokens));
+        }
+    }
+
+    /**
+     * Thrown in place of an OpenAI call when the daily budget is used up
+     */
+    public static class BudgetExceededException extends RuntimeException {
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private static class DayBudget {
+        private final LocalDate date;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong priorityRequests = new AtomicLong();
+        private final AtomicLong denied = new AtomicLong();
+        private final DoubleAdder spend = new DoubleAdder();
+        private final AtomicBoolean alerted = new AtomicBoolean();
+        private final AtomicBoolean exhaustedLogged = new AtomicBoolean();
+        private final Map<String, DomainBudget> domains = new ConcurrentHashMap<>();
+
+        private DayBudget(LocalDate date) {
+            this.date = date;
+        }
+    }
+
+    private static class DomainBudget {
+        private final Bucket bucket;
+        private final AtomicLong requests = new AtomicLong();
+        private final DoubleAdder spend = new DoubleAdder();
+
+        private DomainBudget(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
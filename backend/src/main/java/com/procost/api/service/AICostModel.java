@@ -0,0 +1,180 @@
+package com.procost.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Token, cost and latency estimates for OpenAI calls, used to decide whether the
+ * steps that need AI for an email should go out as one combined request or separately.
+ * Token counts use the usual ~4 characters per token approximation.
+ */
+@Component
+public class AICostModel {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int SYSTEM_PROMPT_TOKENS = 40;
+    private static final int COMBINED_TEMPLATE_TOKENS = 60;
+    private static final int PRODUCT_ITEM_OUTPUT_TOKENS = 60;
+
+    // Instruction tokens of each separate prompt template, and of its section in the combined prompt
+    private static final Map<AIOperation, Integer> TEMPLATE_TOKENS = new EnumMap<>(AIOperation.class);
+    private static final Map<AIOperation, Integer> COMBINED_SECTION_TOKENS = new EnumMap<>(AIOperation.class);
+    // Answer size, excluding product items
+    private static final Map<AIOperation, Integer> OUTPUT_TOKENS = new EnumMap<>(AIOperation.class);
+
+    static {
+        TEMPLATE_TOKENS.put(AIOperation.CLASSIFICATION, 140);
+        TEMPLATE_TOKENS.put(AIOperation.CUSTOMER_EXTRACTION, 190);
+        TEMPLATE_TOKENS.put(AIOperation.PRODUCT_PARSING, 250);
+
+        COMBINED_SECTION_TOKENS.put(AIOperation.CLASSIFICATION, 90);
+        COMBINED_SECTION_TOKENS.put(AIOperation.CUSTOMER_EXTRACTION, 110);
+        COMBINED_SECTION_TOKENS.put(AIOperation.PRODUCT_PARSING, 170);
+
+        OUTPUT_TOKENS.put(AIOperation.CLASSIFICATION, 5);
+        OUTPUT_TOKENS.put(AIOperation.CUSTOMER_EXTRACTION, 80);
+        OUTPUT_TOKENS.put(AIOperation.PRODUCT_PARSING, 10);
+    }
+
+    @Value("${openai.pricing.input.per.million:0.15}")
+    private double inputPricePerMillion;
+
+    @Value("${openai.pricing.output.per.million:0.60}")
+    private double outputPricePerMillion;
+
+    @Value("${openai.latency.call.overhead.ms:500}")
+    private long callOverheadMs;
+
+    @Value("${openai.latency.output.token.ms:20}")
+    private double outputTokenMs;
+
+    @Value("${openai.combined.max.output.tokens:1500}")
+    private int combinedMaxOutputTokens;
+
+    private final AtomicLong combinedRequests = new AtomicLong();
+    private final AtomicLong callsSaved = new AtomicLong();
+    private final AtomicLong latencySavedMs = new AtomicLong();
+    private final DoubleAdder costSaved = new DoubleAdder();
+
+    /**
+     * Estimate for sending each operation as its own request
+     */
+    public Estimate estimateSeparate(Set<AIOperation> operations, int inputChars, int expectedItems) {
+        int inputTokens = 0;
+        int outputTokens = 0;
+        long latencyMs = 0;
+
+        for (AIOperation operation : operations) {
+            int callInput = SYSTEM_PROMPT_TOKENS + TEMPLATE_TOKENS.get(operation) + inputChars / CHARS_PER_TOKEN;
+            int callOutput = outputTokens(operation, expectedItems);
+            inputTokens += callInput;
+            outputTokens += callOutput;
+            latencyMs += callOverheadMs + Math.round(callOutput * outputTokenMs);
+        }
+
+        return new Estimate(operations.size(), inputTokens, outputTokens, cost(inputTokens, outputTokens), latencyMs);
+    }
+
+    /**
+     * Estimate for sending all operations in one combined request
+     */
+    public Estimate estimateCombined(Set<AIOperation> operations, int inputChars, int expectedItems) {
+        int inputTokens = SYSTEM_PROMPT_TOKENS + COMBINED_TEMPLATE_TOKENS + inputChars / CHARS_PER_TOKEN;
+        int outputTokens = 0;
+
+        for (AIOperation operation : operations) {
+            inputTokens += COMBINED_SECTION_TOKENS.get(operation);
+            outputTokens += outputTokens(operation, expectedItems);
+        }
+
+        long latencyMs = callOverheadMs + Math.round(outputTokens * outputTokenMs);
+        return new Estimate(1, inputTokens, outputTokens, cost(inputTokens, outputTokens), latencyMs);
+    }
+
+    /**
+     * Combine when more than one step needs AI, the combined answer fits the output
+     * token budget and the combined request is no more expensive
+     */
+    public boolean shouldCombine(Set<AIOperation> operations, int inputChars, int expectedItems) {
+        if (operations.size() < 2) {
+            return false;
+        }
+
+        Estimate combined = estimateCombined(operations, inputChars, expectedItems);
+        if (combined.getOutputTokens() > combinedMaxOutputTokens) {
+            return false;
+        }
+
+        return combined.getCostUsd() <= estimateSeparate(operations, inputChars, expectedItems).getCostUsd();
+    }
+
+    public int getCombinedMaxOutputTokens() {
+        return combinedMaxOutputTokens;
+    }
+
+    /**
+     * Record the estimated saving of a combined request over separate ones
+     */
+    public void recordCombined(Estimate separate, Estimate combined) {
+        combinedRequests.incrementAndGet();
+        callsSaved.addAndGet(separate.getCalls() - combined.getCalls());
+        latencySavedMs.addAndGet(separate.getLatencyMs() - combined.getLatencyMs());
+        costSaved.add(separate.getCostUsd() - combined.getCostUsd());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("combinedRequests", combinedRequests.get());
+        stats.put("callsSaved", callsSaved.get());
+        stats.put("estimatedLatencySavedMs", latencySavedMs.get());
+        stats.put("estimatedCostSavedUsd", costSaved.sum());
+        return stats;
+    }
+
+    private int outputTokens(AIOperation operation, int expectedItems) {
+        int tokens = OUTPUT_TOKENS.get(operation);
+        if (operation == AIOperation.PRODUCT_PARSING) {
+            tokens += Math.max(1, expectedItems) * PRODUCT_ITEM_OUTPUT_TOKENS;
+        }
+        return tokens;
+    }
+
+    /**
+     * Cost in USD of a request at the configured model pricing
+     */
+    public double cost(int inputTokens, int outputTokens) {
+        return (inputTokens * inputPricePerMillion + outputTokens * outputPricePerMillion) / 1_000_000;
+    }
+
+    /**
+     * Estimated size, cost and latency of one way of sending the operations
+     */
+    public static class Estimate {
+        private final int calls;
+        private final int inputTokens;
+        private final int outputTokens;
+        private final double costUsd;
+        private final long latencyMs;
+
+        public Estimate(int calls, int inputTokens, int outputTokens, double costUsd, long latencyMs) {
+            this.calls = calls;
+            this.inputTokens = inputTokens;
+            this.outputTokens = outputTokens;
+            this.costUsd = costUsd;
+            this.latencyMs = latencyMs;
+        }
+
+        public int getCalls() { return calls; }
+        public int getInputTokens() { return inputTokens; }
+        public int getOutputTokens() { return outputTokens; }
+        public double getCostUsd() { return costUsd; }
+        public long getLatencyMs() { return latencyMs; }
+    }
+}
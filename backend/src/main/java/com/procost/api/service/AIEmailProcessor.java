@@ -3,6 +3,11 @@ package com.procost.api.service;
 import com.procost.api.dto.ZapierEmailWebhook;
 import com.procost.api.model.*;
 import com.procost.api.repository.CustomerRepository;
+import com.procost.api.service.EmailPatternEngine.KeywordGroup;
+import com.procost.api.service.EmailPatternEngine.KeywordMatches;
+import com.procost.api.service.EmailPatternEngine.RegexSet;
+import com.procost.api.service.ProductLineTokenizer.TokenType;
+import com.procost.api.service.ProductLineTokenizer.TokenizedLine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -11,7 +16,6 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class AIEmailProcessor {
@@ -21,58 +25,36 @@ public class AIEmailProcessor {
     @Autowired
     private CustomerRepository customerRepository;
     
-    // Email classification patterns
-    private static final Map<String, List<String>> CLASSIFICATION_PATTERNS = Map.of(
-        "ENQUIRY", Arrays.asList("enquiry", "inquiry", "quote", "price", "cost", "information", "details"),
-        "ORDER", Arrays.asList("order", "purchase", "buy", "confirm", "proceed"),
-        "COMPLAINT", Arrays.asList("complaint", "issue", "problem", "wrong", "error"),
-        "QUOTE_RESPONSE", Arrays.asList("accept", "reject", "approve", "decline", "confirm quote"),
-        "GENERAL", Arrays.asList("hello", "hi", "thanks", "information")
-    );
-    
-    // Product mapping patterns
-    private static final Map<String, List<String>> PRODUCT_PATTERNS = Map.of(
-        "SALMON", Arrays.asList("salmon", "atlantic salmon", "norwegian salmon", "farmed salmon"),
-        "COD", Arrays.asList("cod", "atlantic cod", "pacific cod", "gadus"),
-        "HADDOCK", Arrays.asList("haddock", "melanogrammus"),
-        "POLLOCK", Arrays.asList("pollock", "alaska pollock", "pollachius"),
-        "MACKEREL", Arrays.asList("mackerel", "scomber", "atlantic mackerel"),
-        "HERRING", Arrays.asList("herring", "clupea", "atlantic herring")
-    );
+    @Autowired
+    private EmailPatternEngine patternEngine;
     
-    // Trim type patterns
-    private static final Map<String, List<String>> TRIM_PATTERNS = Map.of(
-        "FILLET", Arrays.asList("fillet", "fillets", "skinless", "boneless"),
-        "WHOLE", Arrays.asList("whole", "round", "gutted", "h&g"),
-        "STEAK", Arrays.asList("steak", "steaks", "portion", "portions"),
-        "LOIN", Arrays.asList("loin", "loins", "supreme"),
-        "TAIL", Arrays.asList("tail", "tails", "collar")
-    );
+    @Autowired
+    private ProductLineTokenizer productLineTokenizer;
     
     /**
      * Classify the email type based on subject and content
      */
     public String classifyEmail(String subject, String body) {
         logger.info("Classifying email with subject: {}", subject);
-        
-        String combinedText = (subject + " " + body).toLowerCase();
-        Map<String, Integer> scores = new HashMap<>();
-        
-        for (Map.Entry<String, List<String>> entry : CLASSIFICATION_PATTERNS.entrySet()) {
-            String classification = entry.getKey();
-            List<String> patterns = entry.getValue();
-            
-            int score = 0;
-            for (String pattern : patterns) {
-                score += countOccurrences(combinedText, pattern);
+        return classifyEmail(patternEngine.scan(subject, body));
+    }
+    
+    /**
+     * Classify the email type from an existing keyword scan of subject and content
+     */
+    public String classifyEmail(KeywordMatches matches) {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        String classification = "GENERAL";
+        int bestScore = 0;
+        
+        for (String label : patternEngine.labels(KeywordGroup.CLASSIFICATION)) {
+            int score = matches.score(KeywordGroup.CLASSIFICATION, label);
+            scores.put(label, score);
+            if (score > bestScore) {
+                bestScore = score;
+                classification = label;
             }
-            scores.put(classification, score);
         }
-        
-        String classification = scores.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse("GENERAL");
             
         logger.info("Email classified as: {} with scores: {}", classification, scores);
         return classification;
@@ -126,24 +108,16 @@ public class AIEmailProcessor {
         logger.info("Parsing product requirements from email");
         
         List<EnquiryItem> items = new ArrayList<>();
-        String[] lines = emailBody.split("\n");
         
-        for (String line : lines) {
-            line = line.trim();
-            
-            // Skip empty lines and headers
-            if (line.isEmpty() || line.length() < 10) continue;
+        productLineTokenizer.tokenize(emailBody, line -> {
+            // Skip empty lines and headers, keep lines that look like product mentions
+            if (line.length() < 10 || !line.hasProductMention()) return;
             
-            // Look for product mention patterns
-            if (containsProductMention(line)) {
-                EnquiryItem item = parseProductLine(line);
-                if (item != null) {
-                    items.add(item);
-                    logger.info("Parsed product: {} - {} - {}kg", 
-                        item.getProduct(), item.getTrimType(), item.getRequestedQuantity());
-                }
-            }
-        }
+            EnquiryItem item = parseProductLine(line);
+            items.add(item);
+            logger.info("Parsed product: {} - {} - {}kg", 
+                item.getProduct(), item.getTrimType(), item.getRequestedQuantity());
+        });
         
         // If no structured products found, create a general item
         if (items.isEmpty()) {
@@ -158,29 +132,24 @@ public class AIEmailProcessor {
     }
     
     /**
-     * Parse individual product line
+     * Build an enquiry item from the tokens of a product line
      */
-    private EnquiryItem parseProductLine(String line) {
+    private EnquiryItem parseProductLine(TokenizedLine line) {
         EnquiryItem item = new EnquiryItem();
         
-        // Extract quantity (look for numbers followed by kg, tons, etc.)
-        Double quantity = extractQuantity(line);
+        Double quantity = line.weightQuantity();
         item.setRequestedQuantity(quantity != null ? quantity.intValue() : 0);
         
-        // Extract product type
-        String product = extractProduct(line);
+        String product = orUnknown(line.label(TokenType.PRODUCT));
         item.setProduct(product);
         
-        // Extract trim type
-        String trimType = extractTrimType(line);
+        String trimType = orUnknown(line.label(TokenType.TRIM));
         item.setTrimType(trimType);
         
-        // Extract customer SKU reference
-        String customerSku = extractCustomerSku(line);
-        item.setCustomerSkuReference(customerSku);
+        item.setCustomerSkuReference(line.skuReference());
         
         // Set product description as the original line
-        item.setProductDescription(line);
+        item.setProductDescription(line.text());
         
         // Determine mapping confidence
         item.setMappingConfidence(calculateMappingConfidence(product, trimType, quantity));
@@ -194,16 +163,7 @@ public class AIEmailProcessor {
      */
     private String extractContactPerson(String body) {
         // Look for signature patterns
-        String[] signaturePatterns = {
-            "(?i)best regards,\\s*([^\\n]+)",
-            "(?i)regards,\\s*([^\\n]+)",
-            "(?i)sincerely,\\s*([^\\n]+)",
-            "(?i)kind regards,\\s*([^\\n]+)",
-            "(?i)from[:\\s]+([^\\n]+)"
-        };
-        
-        for (String pattern : signaturePatterns) {
-            Pattern p = Pattern.compile(pattern);
+        for (Pattern p : patternEngine.patterns(RegexSet.CONTACT_PERSON)) {
             Matcher m = p.matcher(body);
             if (m.find()) {
                 String name = m.group(1).trim();
@@ -232,15 +192,7 @@ public class AIEmailProcessor {
         }
         
         // Look for company patterns in body
-        String[] companyPatterns = {
-            "(?i)([A-Z][a-z]+\\s*(?:Ltd|Limited|Inc|Corporation|Corp|Company|Co))",
-            "(?i)([A-Z][a-z]+\\s*(?:AS|AB|GmbH|S\\.A|B\\.V))",
-            "(?i)company[:\\s]+([^\\n]+)",
-            "(?i)from[:\\s]+([^\\n]+(?:Ltd|Limited|Inc|Corp))"
-        };
-        
-        for (String pattern : companyPatterns) {
-            Pattern p = Pattern.compile(pattern);
+        for (Pattern p : patternEngine.patterns(RegexSet.COMPANY_NAME)) {
             Matcher m = p.matcher(body);
             if (m.find()) {
                 return m.group(1).trim();
@@ -254,15 +206,7 @@ public class AIEmailProcessor {
      * Extract phone number from email body
      */
     private String extractPhoneNumber(String body) {
-        String[] phonePatterns = {
-            "(?i)phone[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
-            "(?i)tel[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
-            "(?i)mobile[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
-            "(\\+\\d{1,3}[\\s\\-]?\\d{1,4}[\\s\\-]?\\d{1,4}[\\s\\-]?\\d{1,9})"
-        };
-        
-        for (String pattern : phonePatterns) {
-            Pattern p = Pattern.compile(pattern);
+        for (Pattern p : patternEngine.patterns(RegexSet.PHONE_NUMBER)) {
             Matcher m = p.matcher(body);
             if (m.find()) {
                 return m.group(1).trim();
@@ -276,14 +220,7 @@ public class AIEmailProcessor {
      * Extract address from email body
      */
     private String extractAddress(String body) {
-        String[] addressPatterns = {
-            "(?i)address[:\\s]+([^\\n]+)",
-            "(?i)location[:\\s]+([^\\n]+)",
-            "(?i)\\d+\\s+[A-Za-z\\s]+(?:Street|St|Avenue|Ave|Road|Rd|Lane|Ln)[^\\n]*"
-        };
-        
-        for (String pattern : addressPatterns) {
-            Pattern p = Pattern.compile(pattern);
+        for (Pattern p : patternEngine.patterns(RegexSet.ADDRESS)) {
             Matcher m = p.matcher(body);
             if (m.find()) {
                 return m.group(1).trim();
@@ -329,92 +266,8 @@ public class AIEmailProcessor {
         return "Unknown";
     }
     
-    /**
-     * Check if line contains product mention
-     */
-    private boolean containsProductMention(String line) {
-        String lowerLine = line.toLowerCase();
-        
-        // Check for product keywords
-        for (List<String> products : PRODUCT_PATTERNS.values()) {
-            for (String product : products) {
-                if (lowerLine.contains(product)) return true;
-            }
-        }
-        
-        // Check for quantity indicators
-        if (lowerLine.matches(".*\\d+\\s*(kg|ton|tons|pound|lbs|pieces?).*")) {
-            return true;
-        }
-        
-        // Check for bullet points or list indicators
-        if (line.startsWith("-") || line.startsWith("•") || line.startsWith("*")) {
-            return true;
-        }
-        
-        return false;
-    }
-    
-    /**
-     * Extract quantity from text
-     */
-    private Double extractQuantity(String text) {
-        Pattern pattern = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(?:kg|ton|tons|pound|lbs)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(text);
-        
-        if (matcher.find()) {
-            return Double.parseDouble(matcher.group(1));
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Extract product type from text
-     */
-    private String extractProduct(String text) {
-        String lowerText = text.toLowerCase();
-        
-        for (Map.Entry<String, List<String>> entry : PRODUCT_PATTERNS.entrySet()) {
-            for (String pattern : entry.getValue()) {
-                if (lowerText.contains(pattern)) {
-                    return entry.getKey();
-                }
-            }
-        }
-        
-        return "UNKNOWN";
-    }
-    
-    /**
-     * Extract trim type from text
-     */
-    private String extractTrimType(String text) {
-        String lowerText = text.toLowerCase();
-        
-        for (Map.Entry<String, List<String>> entry : TRIM_PATTERNS.entrySet()) {
-            for (String pattern : entry.getValue()) {
-                if (lowerText.contains(pattern)) {
-                    return entry.getKey();
-                }
-            }
-        }
-        
-        return "UNKNOWN";
-    }
-    
-    /**
-     * Extract customer SKU reference
-     */
-    private String extractCustomerSku(String text) {
-        Pattern pattern = Pattern.compile("(?i)(?:sku|item|code|ref)[:\\s#]+(\\w+)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(text);
-        
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        return null;
+    private String orUnknown(String label) {
+        return label != null ? label : "UNKNOWN";
     }
     
     /**
@@ -447,13 +300,6 @@ public class AIEmailProcessor {
         return item;
     }
     
-    /**
-     * Count occurrences of pattern in text
-     */
-    private int countOccurrences(String text, String pattern) {
-        return (text.length() - text.replace(pattern, "").length()) / pattern.length();
-    }
-    
     /**
      * Capitalize first letter of string
      */
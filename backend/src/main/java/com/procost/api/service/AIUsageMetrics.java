@@ -0,0 +1,150 @@
+package com.procost.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for the hybrid email processing path: stage timers,
+ * fallback decisions and outcomes, OpenAI calls, token usage and estimated spend.
+ * Exported on /actuator/prometheus and summarised by getStats for the stats endpoint.
+ */
+@Component
+public class AIUsageMetrics {
+
+    public static final String STAGE_TIMER = "email.processing.stage";
+    public static final String FALLBACK_COUNTER = "email.ai.fallback";
+    public static final String OUTCOME_COUNTER = "email.ai.outcome";
+    public static final String OPENAI_CALL_TIMER = "openai.call";
+    public static final String OPENAI_TOKENS_COUNTER = "openai.tokens";
+    public static final String OPENAI_COST_COUNTER = "openai.cost.usd";
+
+    // The keyword scan is its own stage; it feeds classification, its confidence and later steps
+    public static final String STAGE_PATTERN_SCAN = "pattern_scan";
+    public static final String STAGE_PATTERN_CLASSIFY = "pattern_classify";
+    public static final String STAGE_PATTERN_EXTRACT = "pattern_extract";
+    public static final String STAGE_PATTERN_PARSE = "pattern_parse";
+    public static final String STAGE_OPENAI = "openai";
+
+    public static final String OUTCOME_PATTERN_SUFFICIENT = "pattern_sufficient";
+    public static final String OUTCOME_OPENAI_USED = "openai_used";
+    public static final String OUTCOME_OPENAI_FAILED = "openai_failed";
+    public static final String OUTCOME_CIRCUIT_OPEN = "circuit_open";
+    public static final String OUTCOME_BUDGET_EXHAUSTED = "budget_exhausted";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AICostModel costModel;
+
+    /**
+     * Time a processing stage
+     */
+    public <T> T timeStage(String stage, Supplier<T> work) {
+        return stageTimer(stage).record(work);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Record why a step did or did not fall back to OpenAI
+     */
+    public void recordFallbackDecision(String operation, String reason) {
+        meterRegistry.counter(FALLBACK_COUNTER, "operation", operation, "reason", reason).increment();
+    }
+
+    /**
+     * Record how an email, or a single-step call, was finally answered (pattern_sufficient, openai_used, ...)
+     */
+    public void recordOutcome(String operation, String outcome) {
+        meterRegistry.counter(OUTCOME_COUNTER, "operation", operation, "outcome", outcome).increment();
+    }
+
+    /**
+     * Record one OpenAI HTTP call, including its retries
+     */
+    public void recordOpenAICall(Timer.Sample sample, String prompt, String outcome) {
+        sample.stop(Timer.builder(OPENAI_CALL_TIMER)
+                .tag("prompt", prompt)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+        sample.stop(stageTimer(STAGE_OPENAI));
+    }
+
+    /**
+     * Record token usage reported by OpenAI and its estimated cost
+     */
+    public void recordTokens(String model, int promptTokens, int completionTokens) {
+        meterRegistry.counter(OPENAI_TOKENS_COUNTER, "model", model, "type", "prompt").increment(promptTokens);
+        meterRegistry.counter(OPENAI_TOKENS_COUNTER, "model", model, "type", "completion").increment(completionTokens);
+        meterRegistry.counter(OPENAI_COST_COUNTER, "model", model)
+                .increment(costModel.cost(promptTokens, completionTokens));
+    }
+
+    /**
+     * Live summary of the counters and timers
+     */
+    public Map<String, Object> getStats() {
+        double patternSufficient = sumCounters(OUTCOME_COUNTER, "outcome", OUTCOME_PATTERN_SUFFICIENT);
+        double openAIUsed = sumCounters(OUTCOME_COUNTER, "outcome", OUTCOME_OPENAI_USED);
+        double decisions = sumCounters(OUTCOME_COUNTER, null, null);
+        double steps = sumCounters(FALLBACK_COUNTER, null, null);
+        long openAICalls = meterRegistry.find(OPENAI_CALL_TIMER).timers().stream().mapToLong(Timer::count).sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("decisions", (long) decisions);
+        stats.put("patternSuccessRate", decisions > 0 ? patternSufficient / decisions : 0.0);
+        stats.put("aiUsageRate", decisions > 0 ? openAIUsed / decisions : 0.0);
+        // Outcomes count emails, so savings are measured against the per-step fallback decisions:
+        // the share of steps answered without a paid OpenAI request (patterns, cache hits, combined requests)
+        stats.put("costSavings", steps > 0
+                ? String.format("%.0f%%", Math.max(0, steps - openAICalls) * 100 / steps) : "n/a");
+        stats.put("openAICalls", openAICalls);
+        stats.put("promptTokens", (long) sumCounters(OPENAI_TOKENS_COUNTER, "type", "prompt"));
+        stats.put("completionTokens", (long) sumCounters(OPENAI_TOKENS_COUNTER, "type", "completion"));
+        stats.put("estimatedCostUsd", sumCounters(OPENAI_COST_COUNTER, null, null));
+
+        Map<String, Object> fallbackReasons = new HashMap<>();
+        meterRegistry.find(FALLBACK_COUNTER).counters().forEach(counter -> fallbackReasons.merge(
+                counter.getId().getTag("operation") + "." + counter.getId().getTag("reason"),
+                (long) counter.count(), (a, b) -> (long) a + (long) b));
+        stats.put("fallbackReasons", fallbackReasons);
+
+        Map<String, Object> stageLatency = new HashMap<>();
+        meterRegistry.find(STAGE_TIMER).timers().forEach(timer -> {
+            Map<String, Object> timing = new HashMap<>();
+            timing.put("count", timer.count());
+            timing.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+            timing.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+            stageLatency.put(timer.getId().getTag("stage"), timing);
+        });
+        stats.put("stageLatency", stageLatency);
+
+        return stats;
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(STAGE_TIMER)
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private double sumCounters(String name, String tagKey, String tagValue) {
+        return meterRegistry.find(name).counters().stream()
+                .filter(counter -> tagKey == null || tagValue.equals(counter.getId().getTag(tagKey)))
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
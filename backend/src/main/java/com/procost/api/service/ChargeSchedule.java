@@ -0,0 +1,201 @@
+package com.procost.api.service;
+
+import com.procost.api.dto.CalculateChargesRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled list of the charges that apply to one factory and product, built once when the
+ * factory's data changes. Charges are stored as flat arrays of kind, rate and the option that
+ * enables them, and evaluated in order in a single allocation-free loop. Pallet and terminal
+ * charges are always the first two entries. Reception and dispatch fees are flat amounts per quote,
+ * and every percentage fee applies to the same subtotal of the charges before any percentage fee,
+ * as the pricing screen computes them.
+ */
+public final class ChargeSchedule {
+
+    // Option bits; a charge with no option bit is compulsory
+    public static final int PRODA_B = 1;
+    public static final int ENCODING = 1 << 1;
+    public static final int RECEPTION_FEE = 1 << 2;
+    public static final int DISPATCH_FEE = 1 << 3;
+    public static final int ENVIRONMENTAL_FEE = 1 << 4;
+    public static final int ELECTRICITY_FEE = 1 << 5;
+
+    // Per-kg charges used when no factory is given, or the factory has no rate of its own
+    public static final double DEFAULT_PALLET_CHARGE = 2.0;
+    public static final double DEFAULT_TERMINAL_CHARGE = 0.25;
+    public static final double DEFAULT_PRODA_B_CHARGE = 1.0;
+    public static final double DEFAULT_ENCODING_CHARGE = 1.5;
+
+    public static final int PALLET = 0;
+    public static final int TERMINAL = 1;
+
+    private static final int PER_KG = 0;
+    private static final int FLAT = 1;
+    private static final int PERCENT = 2;
+
+    private static final ChargeSchedule STANDARD = new Builder()
+        .perKg("palletCharge", 0, DEFAULT_PALLET_CHARGE)
+        .perKg("terminalCharge", 0, DEFAULT_TERMINAL_CHARGE)
+        .perKg("prodaB", PRODA_B, DEFAULT_PRODA_B_CHARGE)
+        .perKg("encoding", ENCODING, DEFAULT_ENCODING_CHARGE)
+        .build();
+
+    private final String[] names;
+    private final int[] kinds;
+    private final int[] options;
+    private final double[] rates;
+
+    private ChargeSchedule(Builder builder) {
+        int size = builder.names.size();
+        names = builder.names.toArray(new String[size]);
+        kinds = new int[size];
+        options = new int[size];
+        rates = new double[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = builder.kinds.get(i);
+            options[i] = builder.options.get(i);
+            rates[i] = builder.rates.get(i);
+        }
+    }
+
+    /**
+     * The standard charges, for pricing without a factory
+     */
+    public static ChargeSchedule standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Schedule with a factory's rates; null rates fall back to the standard charges, null fees to none
+     */
+    static ChargeSchedule forFactory(Double palletCharge, Double terminalCharge, Double prodaB, Double encoding,
+                                     Double receptionFee, Double dispatchFee,
+                                     Double environmentalFeePercentage, Double electricityFeePercentage) {
+        return new Builder()
+            .perKg("palletCharge", 0, orDefault(palletCharge, DEFAULT_PALLET_CHARGE))
+            .perKg("terminalCharge", 0, orDefault(terminalCharge, DEFAULT_TERMINAL_CHARGE))
+            .perKg("prodaB", PRODA_B, orDefault(prodaB, DEFAULT_PRODA_B_CHARGE))
+            .perKg("encoding", ENCODING, orDefault(encoding, DEFAULT_ENCODING_CHARGE))
+            .flat("receptionFee", RECEPTION_FEE, orDefault(receptionFee, 0.0))
+            .flat("dispatchFee", DISPATCH_FEE, orDefault(dispatchFee, 0.0))
+            .percent("environmentalFee", ENVIRONMENTAL_FEE, orDefault(environmentalFeePercentage, 0.0))
+            .percent("electricityFee", ELECTRICITY_FEE, orDefault(electricityFeePercentage, 0.0))
+            .build();
+    }
+
+    public static int optionsOf(CalculateChargesRequest.OptionsDto dto) {
+        if (dto == null) {
+            return 0;
+        }
+        return (dto.isProdaB() ? PRODA_B : 0)
+            | (dto.isEncoding() ? ENCODING : 0)
+            | (dto.isReceptionFee() ? RECEPTION_FEE : 0)
+            | (dto.isDispatchFee() ? DISPATCH_FEE : 0)
+            | (dto.isEnvironmentalFee() ? ENVIRONMENTAL_FEE : 0)
+            | (dto.isElectricityFee() ? ELECTRICITY_FEE : 0);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int charge) {
+        return names[charge];
+    }
+
+    public boolean isCompulsory(int charge) {
+        return options[charge] == 0;
+    }
+
+    /**
+     * Whether a charge is part of the quote for the selected options
+     */
+    public boolean applies(int charge, int selected) {
+        return options[charge] == 0 || (options[charge] & selected) != 0;
+    }
+
+    /**
+     * Every charge for a weight, written to amounts (0 for charges not selected)
+     * @return the total of all charges
+     */
+    public double evaluate(double weight, int selected, double[] amounts) {
+        // Percentage fees come last, so the subtotal is complete when the first one is reached
+        double subtotal = 0;
+        double total = 0;
+        for (int i = 0; i < rates.length; i++) {
+            double amount = 0;
+            if (options[i] == 0 || (options[i] & selected) != 0) {
+                amount = kinds[i] == PER_KG ? rates[i] * weight
+                    : kinds[i] == FLAT ? rates[i] : subtotal * rates[i] / 100;
+            }
+            amounts[i] = amount;
+            if (kinds[i] != PERCENT) {
+                subtotal += amount;
+            }
+            total += amount;
+        }
+        return total;
+    }
+
+    /**
+     * Part of the selected charges that grows with weight, per kg, including its percentage fees
+     */
+    public double perKg(int selected) {
+        return sumOf(PER_KG, selected) * percentFactor(selected);
+    }
+
+    private double sumOf(int kind, int selected) {
+        double sum = 0;
+        for (int i = 0; i < rates.length; i++) {
+            if (kinds[i] == kind && (options[i] == 0 || (options[i] & selected) != 0)) {
+                sum += rates[i];
+            }
+        }
+        return sum;
+    }
+
+    private double percentFactor(int selected) {
+        return 1 + sumOf(PERCENT, selected) / 100;
+    }
+
+    private static double orDefault(Double rate, double defaultRate) {
+        return rate != null ? rate : defaultRate;
+    }
+
+    private static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Integer> options = new ArrayList<>();
+        private final List<Double> rates = new ArrayList<>();
+
+        Builder perKg(String name, int option, double rate) {
+            return add(name, PER_KG, option, rate);
+        }
+
+        Builder flat(String name, int option, double amount) {
+            return add(name, FLAT, option, amount);
+        }
+
+        Builder percent(String name, int option, double percentage) {
+            return add(name, PERCENT, option, percentage);
+        }
+
+        private Builder add(String name, int kind, int option, double rate) {
+            if (kind != PERCENT && kinds.contains(PERCENT)) {
+                throw new IllegalStateException("Percentage fees must follow every other charge: " + name);
+            }
+            names.add(name);
+            kinds.add(kind);
+            options.add(option);
+            rates.add(rate);
+            return this;
+        }
+
+        ChargeSchedule build() {
+            return new ChargeSchedule(this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.procost.api.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk email import
+ */
+public class EmailBackfillJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private final String jobId;
+    private final EmailArchiveReader.Format format;
+    private final long totalBytes;
+    private final boolean skipDuplicates;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+    private volatile boolean cancelRequested;
+
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong read = new AtomicLong();
+    final AtomicLong processed = new AtomicLong();
+    final AtomicLong written = new AtomicLong();
+    final AtomicLong skipped = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong openAICalls = new AtomicLong();
+
+    // Message-IDs taken by this job, so repeats within the archive are skipped before any is written
+    private final Set<String> seenMessageIds = ConcurrentHashMap.newKeySet();
+
+    EmailBackfillJob(String jobId, EmailArchiveReader.Format format, long totalBytes, boolean skipDuplicates) {
+        this.jobId = jobId;
+        this.format = format;
+        this.totalBytes = totalBytes;
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public EmailArchiveReader.Format getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+
+    /**
+     * @return false if this job has already seen the Message-ID
+     */
+    boolean markSeen(String messageId) {
+        return seenMessageIds.add(messageId);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    /**
+     * Ask a queued or running job to stop; emails already read are still written
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void finished(Status finalStatus) {
+        finishedAt = LocalDateTime.now();
+        status = finalStatus;
+    }
+
+    void recordFailure(String error) {
+        failed.incrementAndGet();
+        lastError = error;
+    }
+
+    void recordError(String error) {
+        lastError = error;
+    }
+
+    void recordFailures(int count, String error) {
+        failed.addAndGet(count);
+        lastError = error;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("jobId", jobId);
+        map.put("format", format.name());
+        map.put("status", status.name());
+        map.put("skipDuplicates", skipDuplicates);
+        map.put("createdAt", createdAt);
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt);
+        map.put("totalBytes", totalBytes);
+        map.put("bytesRead", bytesRead.get());
+        map.put("progress", totalBytes > 0 ? Math.min(1.0, (double) bytesRead.get() / totalBytes) : 1.0);
+        map.put("read", read.get());
+        map.put("processed", processed.get());
+        map.put("written", written.get());
+        map.put("skipped", skipped.get());
+        map.put("failed", failed.get());
+        map.put("openAICalls", openAICalls.get());
+        map.put("lastError", lastError);
+
+        if (startedAt != null) {
+            long elapsedMs = Duration.between(startedAt, finishedAt != null ? finishedAt : LocalDateTime.now()).toMillis();
+            map.put("elapsedMs", elapsedMs);
+            map.put("emailsPerSecond", elapsedMs > 0 ? processed.get() * 1000.0 / elapsedMs : 0.0);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,561 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procost.api.dto.ZapierEmailWebhook;
+import com.procost.api.model.Customer;
+import com.procost.api.model.EmailEnquiry;
+import com.procost.api.model.EnquiryItem;
+import com.procost.api.model.IngestionStatus;
+import com.procost.api.repository.CustomerRepository;
+import com.procost.api.repository.EmailEnquiryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of historic mailboxes, e.g. to reprocess them after patterns or prompts change.
+ * An uploaded NDJSON or mbox archive is spooled to disk and read one email at a time; emails
+ * are processed in parallel through the hybrid pipeline with a separate cap on concurrent
+ * OpenAI use, and the resulting enquiries are written with JDBC batch inserts.
+ */
+@Service
+public class EmailBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailBackfillService.class);
+
+    private static final String INSERT_ENQUIRY =
+        "INSERT INTO email_enquiries (enquiry_id, from_email, subject, email_body, original_email_id, customer_id, " +
+        "status, ai_processed, ingestion_status, processing_notes, processed_at, received_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM =
+        "INSERT INTO enquiry_items (email_enquiry_id, customer_sku_reference, product_description, requested_quantity, " +
+        "delivery_requirement, special_instructions, product, trim_type, rm_spec, product_type, packaging_type, " +
+        "transport_mode, unit_price, total_price, currency, ai_mapped, mapping_confidence, ai_processing_notes, " +
+        "processed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ENQUIRY_IDS =
+        "SELECT id, enquiry_id FROM email_enquiries WHERE enquiry_id IN (:enquiryIds)";
+
+    @Autowired
+    private HybridEmailProcessor hybridEmailProcessor;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmailEnquiryRepository emailEnquiryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${email.backfill.workers:8}")
+    private int workers;
+
+    @Value("${email.backfill.max.concurrent.ai:4}")
+    private int maxConcurrentAI;
+
+    @Value("${email.backfill.batch.size:500}")
+    private int batchSize;
+
+    @Value("${email.backfill.queue.capacity:5}")
+    private int queueCapacity;
+
+    @Value("${email.backfill.retained.jobs:50}")
+    private int retainedJobs;
+
+    private ThreadPoolExecutor jobRunner;
+    private ThreadPoolExecutor workerPool;
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, EmailBackfillJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @PostConstruct
+    public void init() {
+        // One archive at a time; its emails are spread over the worker pool
+        jobRunner = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), daemonThreads("email-backfill-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        workerPool = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("email-backfill-worker-"));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Spool an archive to disk and queue it for import
+     * @throws RejectedExecutionException if too many imports are already queued
+     */
+    public EmailBackfillJob submit(InputStream archive, EmailArchiveReader.Format format, boolean skipDuplicates)
+            throws IOException {
+        Path spool = Files.createTempFile("email-backfill-", "." + format.name().toLowerCase(Locale.ROOT));
+        long bytes = Files.copy(archive, spool, StandardCopyOption.REPLACE_EXISTING);
+
+        String jobId = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        EmailBackfillJob job = new EmailBackfillJob(jobId, format, bytes, skipDuplicates);
+
+        register(job);
+        try {
+            jobRunner.execute(() -> run(job, spool));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+
+        logger.info("📥 Queued email backfill {} ({} format, {} bytes)", jobId, format, bytes);
+        return job;
+    }
+
+    public Optional<EmailBackfillJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public List<Map<String, Object>> listJobs() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (jobs) {
+            jobs.values().forEach(job -> result.add(job.toMap()));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(EmailBackfillJob::cancel);
+        }
+        jobRunner.shutdownNow();
+        workerPool.shutdown();
+    }
+
+    private void run(EmailBackfillJob job, Path spool) {
+        job.started();
+        logger.info("📥 Starting email backfill {}", job.getJobId());
+
+        // Bounds the emails held in memory between reading and writing
+        int maxInFlight = workers * 4;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Semaphore aiPermits = new Semaphore(maxConcurrentAI);
+        BlockingQueue<EmailEnquiry> processed = new LinkedBlockingQueue<>();
+        Map<String, Long> customerIds = new HashMap<>();
+        List<ArchivedEmail> chunk = new ArrayList<>(batchSize);
+        boolean completed = false;
+
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(spool));
+             EmailArchiveReader reader = new EmailArchiveReader(in, job.getFormat(), objectMapper)) {
+
+            while (!job.isCancelRequested()) {
+                ZapierEmailWebhook email;
+                try {
+                    email = reader.read();
+                } catch (EmailArchiveReader.MalformedEmailException e) {
+                    job.read.incrementAndGet();
+                    job.recordFailure(e.getMessage());
+                    continue;
+                } finally {
+                    job.bytesRead.set(in.getCount());
+                }
+                if (email == null) {
+                    completed = true;
+                    break;
+                }
+
+                job.read.incrementAndGet();
+                chunk.add(new ArchivedEmail(email, enquiryId(job, email, reader.getEntryNumber())));
+                if (chunk.size() >= batchSize) {
+                    dispatch(job, chunk, inFlight, aiPermits, processed, customerIds);
+                    chunk.clear();
+                }
+            }
+            dispatch(job, chunk, inFlight, aiPermits, processed, customerIds);
+
+            // Wait for the emails still being processed, then write the remainder
+            inFlight.acquire(maxInFlight);
+            while (!processed.isEmpty()) {
+                writeBatch(job, processed, customerIds);
+            }
+
+            job.finished(completed ? EmailBackfillJob.Status.COMPLETED : EmailBackfillJob.Status.CANCELLED);
+            logger.info("✅ Email backfill {} {}: {}", job.getJobId(), job.getStatus(), job.toMap());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.recordError("Interrupted");
+            job.finished(EmailBackfillJob.Status.CANCELLED);
+        } catch (Exception e) {
+            logger.error("❌ Email backfill {} failed", job.getJobId(), e);
+            job.recordError(e.getMessage());
+            job.finished(EmailBackfillJob.Status.FAILED);
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                logger.warn("Could not delete backfill spool file {}", spool);
+            }
+        }
+    }
+
+    /**
+     * Hand a chunk of read emails to the worker pool, skipping duplicates, and write batches as they fill up
+     */
+    private void dispatch(EmailBackfillJob job, List<ArchivedEmail> chunk, Semaphore inFlight, Semaphore aiPermits,
+                          BlockingQueue<EmailEnquiry> processed, Map<String, Long> customerIds)
+            throws InterruptedException {
+        Set<String> imported = importedMessageIds(job, chunk);
+        for (ArchivedEmail archived : chunk) {
+            String messageId = archived.email.getMessageId();
+            // Earlier in this archive, or in a batch not written yet, or already in the database
+            if (job.isSkipDuplicates() && messageId != null
+                    && (!job.markSeen(messageId) || imported.contains(messageId))) {
+                job.skipped.incrementAndGet();
+                continue;
+            }
+
+            inFlight.acquire();
+            workerPool.execute(() -> {
+                try {
+                    EmailEnquiry enquiry = process(job, archived.email, archived.enquiryId, aiPermits);
+                    if (enquiry != null) {
+                        processed.add(enquiry);
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+
+            if (processed.size() >= batchSize) {
+                writeBatch(job, processed, customerIds);
+            }
+        }
+    }
+
+    /**
+     * Message-IDs of the chunk that are already in the database, looked up with one query per chunk
+     */
+    private Set<String> importedMessageIds(EmailBackfillJob job, List<ArchivedEmail> chunk) {
+        if (!job.isSkipDuplicates()) {
+            return Collections.emptySet();
+        }
+        Set<String> messageIds = chunk.stream()
+            .map(archived -> archived.email.getMessageId())
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        return messageIds.isEmpty() ? Collections.emptySet()
+            : emailEnquiryRepository.findExistingOriginalEmailIds(messageIds);
+    }
+
+    /**
+     * Run one email through the hybrid pipeline; returns the unsaved enquiry, or null if it failed
+     */
+    private EmailEnquiry process(EmailBackfillJob job, ZapierEmailWebhook email, String enquiryId, Semaphore aiPermits) {
+        try {
+            if (isBlank(email.getFromEmail()) || isBlank(email.getEmailBody())) {
+                job.recordFailure("Entry " + enquiryId + " has no sender or body");
+                return null;
+            }
+
+            String subject = email.getSubject() != null ? email.getSubject() : "";
+            EmailExtraction extraction = hybridEmailProcessor.processEmail(
+                email.getFromEmail(), subject, email.getEmailBody(), aiPermits);
+
+            EmailEnquiry enquiry = new EmailEnquiry();
+            enquiry.setEnquiryId(enquiryId);
+            enquiry.setFromEmail(email.getFromEmail());
+            enquiry.setSubject(subject);
+            enquiry.setEmailBody(email.getEmailBody());
+            enquiry.setOriginalEmailId(email.getMessageId());
+            enquiry.setReceivedAt(email.getReceivedAt() != null ? email.getReceivedAt() : LocalDateTime.now());
+            enquiry.setCustomer(extraction.getCustomer());
+            enquiry.getEnquiryItems().addAll(extraction.getItems());
+            enquiry.setStatus(EmailEnquiryService.statusFor(extraction.getClassification()));
+            enquiry.setAiProcessed(true);
+            enquiry.setIngestionStatus(IngestionStatus.COMPLETED);
+            enquiry.setProcessingNotes("Imported by backfill job " + job.getJobId());
+            enquiry.setProcessedAt(LocalDateTime.now());
+
+            job.processed.incrementAndGet();
+            job.openAICalls.addAndGet(extraction.getOpenAICalls());
+            return enquiry;
+
+        } catch (Exception e) {
+            logger.warn("Backfill {} could not process {}: {}", job.getJobId(), enquiryId, e.getMessage());
+            job.recordFailure(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write up to one batch of processed enquiries, their new customers and their items in one transaction
+     */
+    private void writeBatch(EmailBackfillJob job, BlockingQueue<EmailEnquiry> processed, Map<String, Long> customerIds) {
+        List<EmailEnquiry> batch = new ArrayList<>(batchSize);
+        processed.drainTo(batch, batchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> newCustomerIds = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> batchCustomerIds = new ArrayList<>(batch.size());
+                for (EmailEnquiry enquiry : batch) {
+                    batchCustomerIds.add(resolveCustomer(enquiry.getCustomer(), customerIds, newCustomerIds));
+                }
+                insertEnquiries(batch, batchCustomerIds);
+                insertItems(batch);
+            });
+            customerIds.putAll(newCustomerIds);
+            job.written.addAndGet(batch.size());
+            logger.info("📥 Backfill {}: {} written, {} processed, {} read", job.getJobId(), job.written.get(),
+                       job.processed.get(), job.read.get());
+        } catch (Exception e) {
+            logger.error("❌ Backfill {} could not write a batch of {} enquiries", job.getJobId(), batch.size(), e);
+            job.recordFailures(batch.size(), "Batch write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Database id of an enquiry's customer, creating the customer the first time it is seen
+     */
+    private Long resolveCustomer(Customer customer, Map<String, Long> customerIds, Map<String, Long> newCustomerIds) {
+        if (customer == null) {
+            return null;
+        }
+        if (customer.getId() != null) {
+            return customer.getId();
+        }
+
+        String email = customer.getEmail();
+        Long id = customerIds.get(email);
+        if (id == null) {
+            id = newCustomerIds.get(email);
+        }
+        if (id == null) {
+            id = customerRepository.findByEmail(email)
+                .map(Customer::getId)
+                .orElseGet(() -> customerRepository.save(customer).getId());
+            newCustomerIds.put(email, id);
+        }
+        return id;
+    }
+
+    private void insertEnquiries(List<EmailEnquiry> batch, List<Long> customerIds) {
+        Iterator<Long> customerId = customerIds.iterator();
+        jdbcTemplate.batchUpdate(INSERT_ENQUIRY, batch, batch.size(), (ps, enquiry) -> {
+            ps.setString(1, enquiry.getEnquiryId());
+            ps.setString(2, truncate(enquiry.getFromEmail(), 255));
+            ps.setString(3, truncate(enquiry.getSubject(), 500));
+            ps.setString(4, enquiry.getEmailBody());
+            ps.setString(5, truncate(enquiry.getOriginalEmailId(), 255));
+            setLong(ps, 6, customerId.next());
+            ps.setString(7, enquiry.getStatus().name());
+            ps.setBoolean(8, enquiry.getAiProcessed());
+            ps.setString(9, enquiry.getIngestionStatus().name());
+            ps.setString(10, enquiry.getProcessingNotes());
+            ps.setTimestamp(11, Timestamp.valueOf(enquiry.getProcessedAt()));
+            ps.setTimestamp(12, Timestamp.valueOf(enquiry.getReceivedAt()));
+        });
+    }
+
+    private void insertItems(List<EmailEnquiry> batch) {
+        List<String> enquiryIds = new ArrayList<>(batch.size());
+        List<EnquiryItem> items = new ArrayList<>();
+        for (EmailEnquiry enquiry : batch) {
+            enquiryIds.add(enquiry.getEnquiryId());
+            items.addAll(enquiry.getEnquiryItems());
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        // Generated keys are not returned by batch inserts, so look the new rows up by reference
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_ENQUIRY_IDS, Collections.singletonMap("enquiryIds", enquiryIds),
+            (RowCallbackHandler) rs -> ids.put(rs.getString("enquiry_id"), rs.getLong("id")));
+
+        List<Long> itemEnquiryIds = new ArrayList<>(items.size());
+        for (EmailEnquiry enquiry : batch) {
+            Long id = ids.get(enquiry.getEnquiryId());
+            enquiry.getEnquiryItems().forEach(item -> itemEnquiryIds.add(id));
+        }
+
+        Iterator<Long> enquiryId = itemEnquiryIds.iterator();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_ITEM, items, items.size(), (ps, item) -> {
+            setLong(ps, 1, enquiryId.next());
+            ps.setString(2, truncate(item.getCustomerSkuReference(), 255));
+            ps.setString(3, item.getProductDescription());
+            if (item.getRequestedQuantity() != null) {
+                ps.setInt(4, item.getRequestedQuantity());
+            } else {
+                ps.setNull(4, Types.INTEGER);
+            }
+            ps.setString(5, truncate(item.getDeliveryRequirement(), 255));
+            ps.setString(6, item.getSpecialInstructions());
+            ps.setString(7, truncate(item.getProduct(), 100));
+            ps.setString(8, truncate(item.getTrimType(), 100));
+            ps.setString(9, truncate(item.getRmSpec(), 100));
+            ps.setString(10, truncate(item.getProductType(), 100));
+            ps.setString(11, truncate(item.getPackagingType(), 100));
+            ps.setString(12, truncate(item.getTransportMode(), 100));
+            setDouble(ps, 13, item.getUnitPrice());
+            setDouble(ps, 14, item.getTotalPrice());
+            ps.setString(15, truncate(item.getCurrency(), 3));
+            ps.setBoolean(16, Boolean.TRUE.equals(item.getAiMapped()));
+            ps.setString(17, truncate(item.getMappingConfidence(), 20));
+            ps.setString(18, item.getAiProcessingNotes());
+            ps.setTimestamp(19, Timestamp.valueOf(item.getProcessedAt() != null ? item.getProcessedAt() : now));
+        });
+    }
+
+    /**
+     * Unique reference for an imported email: ENQ-{year}-{job}-{entry}
+     */
+    private static String enquiryId(EmailBackfillJob job, ZapierEmailWebhook email, long entryNumber) {
+        int year = email.getReceivedAt() != null ? email.getReceivedAt().getYear() : LocalDateTime.now().getYear();
+        return String.format("ENQ-%d-%s-%06d", year, job.getJobId(), entryNumber);
+    }
+
+    private void register(EmailBackfillJob job) {
+        synchronized (jobs) {
+            jobs.put(job.getJobId(), job);
+            // Forget the oldest finished jobs
+            Iterator<EmailBackfillJob> oldest = jobs.values().iterator();
+            while (jobs.size() > retainedJobs && oldest.hasNext()) {
+                if (oldest.next().isFinished()) {
+                    oldest.remove();
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * An email read from the archive with the enquiry reference it will be stored under
+     */
+    private static class ArchivedEmail {
+        private final ZapierEmailWebhook email;
+        private final String enquiryId;
+
+        ArchivedEmail(ZapierEmailWebhook email, String enquiryId) {
+            this.email = email;
+            this.enquiryId = enquiryId;
+        }
+    }
+
+    /**
+     * Tracks how far into the spooled archive the reader is, for progress reporting
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
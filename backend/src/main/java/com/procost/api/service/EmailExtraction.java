@@ -0,0 +1,36 @@
+package com.procost.api.service;
+
+import com.procost.api.model.Customer;
+import com.procost.api.model.EnquiryItem;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classification, customer and product items extracted from one email,
+ * with the steps that were answered by OpenAI rather than patterns
+ */
+public class EmailExtraction {
+    
+    private String classification;
+    private Customer customer;
+    private List<EnquiryItem> items = new ArrayList<>();
+    private final Set<AIOperation> aiOperations = EnumSet.noneOf(AIOperation.class);
+    private int openAICalls;
+    
+    public String getClassification() { return classification; }
+    public void setClassification(String classification) { this.classification = classification; }
+    
+    public Customer getCustomer() { return customer; }
+    public void setCustomer(Customer customer) { this.customer = customer; }
+    
+    public List<EnquiryItem> getItems() { return items; }
+    public void setItems(List<EnquiryItem> items) { this.items = items; }
+    
+    public Set<AIOperation> getAiOperations() { return aiOperations; }
+    
+    public int getOpenAICalls() { return openAICalls; }
+    public void setOpenAICalls(int openAICalls) { this.openAICalls = openAICalls; }
+}
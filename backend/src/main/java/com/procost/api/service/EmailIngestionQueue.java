@@ -0,0 +1,144 @@
+package com.procost.api.service;
+
+import com.procost.api.model.EmailEnquiry;
+import com.procost.api.model.IngestionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded work queue that drains accepted email enquiries on a dedicated worker pool,
+ * keeping AI processing off the servlet request threads.
+ */
+@Service
+public class EmailIngestionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailIngestionQueue.class);
+
+    @Autowired
+    private EmailEnquiryService emailEnquiryService;
+
+    @Value("${email.ingestion.workers:4}")
+    private int workers;
+
+    @Value("${email.ingestion.queue.capacity:500}")
+    private int queueCapacity;
+
+    @Value("${email.ingestion.shutdown.timeout.seconds:30}")
+    private int shutdownTimeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        executor = new ThreadPoolExecutor(
+            workers, workers,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "email-ingest-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        logger.info("Email ingestion queue started with {} workers and capacity {}", workers, queueCapacity);
+    }
+
+    /**
+     * Queue an accepted enquiry for processing
+     * @return false if the queue is full and the caller should apply back-pressure
+     */
+    public boolean enqueue(String enquiryId) {
+        try {
+            executor.execute(() -> process(enquiryId));
+            logger.debug("Queued enquiry {} (queue depth: {})", enquiryId, executor.getQueue().size());
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            logger.warn("Email ingestion queue full, rejecting enquiry {}", enquiryId);
+            return false;
+        }
+    }
+
+    /**
+     * Re-queue enquiries that were accepted but not finished before the last shutdown
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingEnquiries() {
+        List<String> pending = emailEnquiryService.findPendingEnquiryIds();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        logger.info("Recovering {} pending email enquiries", pending.size());
+        for (String enquiryId : pending) {
+            if (!enqueue(enquiryId)) {
+                logger.warn("Queue full during recovery, remaining enquiries will be retried on next start");
+                break;
+            }
+        }
+    }
+
+    public Map<String, Object> getQueueStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", workers);
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completed", completedCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("Email ingestion workers did not finish in time, {} enquiries left queued",
+                           executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(String enquiryId) {
+        try {
+            EmailEnquiry enquiry = emailEnquiryService.processQueuedEnquiry(enquiryId);
+            if (enquiry.getIngestionStatus() == IngestionStatus.FAILED) {
+                failedCount.incrementAndGet();
+            } else {
+                completedCount.incrementAndGet();
+            }
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            logger.error("Error draining enquiry {} from ingestion queue", enquiryId, e);
+        }
+    }
+}
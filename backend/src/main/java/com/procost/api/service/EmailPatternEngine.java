@@ -0,0 +1,390 @@
+package com.procost.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Pattern matching engine shared by the email processors.
+ * All keyword lists are merged into a single Aho-Corasick automaton and every
+ * extraction regex is compiled once, so an email body is scanned in one pass.
+ */
+@Component
+public class EmailPatternEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailPatternEngine.class);
+
+    public enum KeywordGroup {
+        CLASSIFICATION, PRODUCT, TRIM, SKU_MARKER
+    }
+
+    public enum RegexSet {
+        CONTACT_PERSON, COMPANY_NAME, PHONE_NUMBER, ADDRESS
+    }
+
+    // Email classification keywords
+    private static final Map<String, List<String>> CLASSIFICATION_KEYWORDS = new LinkedHashMap<>();
+    // Product mapping keywords
+    private static final Map<String, List<String>> PRODUCT_KEYWORDS = new LinkedHashMap<>();
+    // Trim type keywords
+    private static final Map<String, List<String>> TRIM_KEYWORDS = new LinkedHashMap<>();
+    // Words that introduce a customer SKU reference
+    private static final Map<String, List<String>> SKU_MARKER_KEYWORDS = new LinkedHashMap<>();
+
+    static {
+        CLASSIFICATION_KEYWORDS.put("ENQUIRY", Arrays.asList("enquiry", "inquiry", "quote", "price", "cost", "information", "details"));
+        CLASSIFICATION_KEYWORDS.put("ORDER", Arrays.asList("order", "purchase", "buy", "confirm", "proceed"));
+        CLASSIFICATION_KEYWORDS.put("COMPLAINT", Arrays.asList("complaint", "issue", "problem", "wrong", "error"));
+        CLASSIFICATION_KEYWORDS.put("QUOTE_RESPONSE", Arrays.asList("accept", "reject", "approve", "decline", "confirm quote"));
+        CLASSIFICATION_KEYWORDS.put("GENERAL", Arrays.asList("hello", "hi", "thanks", "information"));
+
+        PRODUCT_KEYWORDS.put("SALMON", Arrays.asList("salmon", "atlantic salmon", "norwegian salmon", "farmed salmon"));
+        PRODUCT_KEYWORDS.put("COD", Arrays.asList("cod", "atlantic cod", "pacific cod", "gadus"));
+        PRODUCT_KEYWORDS.put("HADDOCK", Arrays.asList("haddock", "melanogrammus"));
+        PRODUCT_KEYWORDS.put("POLLOCK", Arrays.asList("pollock", "alaska pollock", "pollachius"));
+        PRODUCT_KEYWORDS.put("MACKEREL", Arrays.asList("mackerel", "scomber", "atlantic mackerel"));
+        PRODUCT_KEYWORDS.put("HERRING", Arrays.asList("herring", "clupea", "atlantic herring"));
+
+        TRIM_KEYWORDS.put("FILLET", Arrays.asList("fillet", "fillets", "skinless", "boneless"));
+        TRIM_KEYWORDS.put("WHOLE", Arrays.asList("whole", "round", "gutted", "h&g"));
+        TRIM_KEYWORDS.put("STEAK", Arrays.asList("steak", "steaks", "portion", "portions"));
+        TRIM_KEYWORDS.put("LOIN", Arrays.asList("loin", "loins", "supreme"));
+        TRIM_KEYWORDS.put("TAIL", Arrays.asList("tail", "tails", "collar"));
+
+        SKU_MARKER_KEYWORDS.put("SKU", Arrays.asList("sku", "item", "code", "ref"));
+    }
+
+    private static final Map<RegexSet, List<Pattern>> REGEX_SETS = new EnumMap<>(RegexSet.class);
+
+    static {
+        REGEX_SETS.put(RegexSet.CONTACT_PERSON, compile(
+            "(?i)best regards,\\s*([^\\n]+)",
+            "(?i)regards,\\s*([^\\n]+)",
+            "(?i)sincerely,\\s*([^\\n]+)",
+            "(?i)kind regards,\\s*([^\\n]+)",
+            "(?i)from[:\\s]+([^\\n]+)"
+        ));
+        REGEX_SETS.put(RegexSet.COMPANY_NAME, compile(
+            "(?i)([A-Z][a-z]+\\s*(?:Ltd|Limited|Inc|Corporation|Corp|Company|Co))",
+            "(?i)([A-Z][a-z]+\\s*(?:AS|AB|GmbH|S\\.A|B\\.V))",
+            "(?i)company[:\\s]+([^\\n]+)",
+            "(?i)from[:\\s]+([^\\n]+(?:Ltd|Limited|Inc|Corp))"
+        ));
+        REGEX_SETS.put(RegexSet.PHONE_NUMBER, compile(
+            "(?i)phone[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
+            "(?i)tel[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
+            "(?i)mobile[:\\s]+(\\+?[\\d\\s\\-\\(\\)]{8,})",
+            "(\\+\\d{1,3}[\\s\\-]?\\d{1,4}[\\s\\-]?\\d{1,4}[\\s\\-]?\\d{1,9})"
+        ));
+        REGEX_SETS.put(RegexSet.ADDRESS, compile(
+            "(?i)address[:\\s]+([^\\n]+)",
+            "(?i)location[:\\s]+([^\\n]+)",
+            "(?i)(\\d+\\s+[A-Za-z\\s]+(?:Street|St|Avenue|Ave|Road|Rd|Lane|Ln)[^\\n]*)"
+        ));
+    }
+
+    // Keyword dictionary, indexed by keyword id
+    private final List<Keyword> keywords = new ArrayList<>();
+    private final Map<KeywordGroup, Map<String, int[]>> labelKeywordIds = new EnumMap<>(KeywordGroup.class);
+
+    // Aho-Corasick automaton: ASCII char -> char class, full transition table and merged outputs
+    private final int[] charClass = new int[128];
+    private int[][] transitions;
+    private int[][] outputs;
+
+    public EmailPatternEngine() {
+        addKeywords(KeywordGroup.CLASSIFICATION, CLASSIFICATION_KEYWORDS);
+        addKeywords(KeywordGroup.PRODUCT, PRODUCT_KEYWORDS);
+        addKeywords(KeywordGroup.TRIM, TRIM_KEYWORDS);
+        addKeywords(KeywordGroup.SKU_MARKER, SKU_MARKER_KEYWORDS);
+        buildAutomaton();
+        logger.info("Email pattern engine built with {} keywords and {} automaton states",
+                   keywords.size(), transitions.length);
+    }
+
+    /**
+     * Scan text for every keyword in a single pass. Multiple segments are scanned
+     * as if joined by a single space, without concatenating them.
+     */
+    public KeywordMatches scan(CharSequence... segments) {
+        KeywordMatches matches = new KeywordMatches();
+        int state = 0;
+        int position = 0;
+
+        for (int s = 0; s < segments.length; s++) {
+            if (s > 0) {
+                state = step(state, ' ', position++, matches);
+            }
+            CharSequence segment = segments[s];
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                state = step(state, segment.charAt(i), position++, matches);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Scan a region of text for every keyword in a single pass
+     */
+    public KeywordMatches scan(CharSequence text, int start, int end) {
+        KeywordMatches matches = new KeywordMatches();
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i), i - start, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Advance a streaming scan by one character, reporting every keyword that ends at
+     * this position. Start from state 0; the returned state is passed to the next call.
+     */
+    public int step(int state, char ch, int position, KeywordListener listener) {
+        int next = transitions[state][classOf(ch)];
+        for (int id : outputs[next]) {
+            Keyword keyword = keywords.get(id);
+            listener.onKeyword(keyword.group, keyword.label, position - keyword.text.length() + 1, position + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Precompiled regular expressions for a field, in priority order
+     */
+    public List<Pattern> patterns(RegexSet set) {
+        return REGEX_SETS.get(set);
+    }
+
+    /**
+     * Labels of a keyword group in declaration order (e.g. ENQUIRY, ORDER, ...)
+     */
+    public Set<String> labels(KeywordGroup group) {
+        return labelKeywordIds.get(group).keySet();
+    }
+
+    /**
+     * Number of keywords registered for a label
+     */
+    public int keywordCount(KeywordGroup group, String label) {
+        int[] ids = labelKeywordIds.get(group).get(label);
+        return ids != null ? ids.length : 0;
+    }
+
+    private int step(int state, char ch, int position, KeywordMatches matches) {
+        int next = transitions[state][classOf(ch)];
+
+        int[] found = outputs[next];
+        for (int id : found) {
+            matches.record(id, position - keywords.get(id).text.length() + 1);
+        }
+        return next;
+    }
+
+    private int classOf(char ch) {
+        char lower = ch < 128 ? (ch >= 'A' && ch <= 'Z' ? (char) (ch + 32) : ch) : Character.toLowerCase(ch);
+        return lower < 128 ? charClass[lower] : 0;
+    }
+
+    private void addKeywords(KeywordGroup group, Map<String, List<String>> source) {
+        Map<String, int[]> byLabel = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : source.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = keywords.size();
+                keywords.add(new Keyword(group, entry.getKey(), entry.getValue().get(i)));
+            }
+            byLabel.put(entry.getKey(), ids);
+        }
+        labelKeywordIds.put(group, byLabel);
+    }
+
+    private void buildAutomaton() {
+        // Class 0 is reserved for characters that appear in no keyword
+        int classes = 1;
+        for (Keyword keyword : keywords) {
+            for (char ch : keyword.text.toCharArray()) {
+                if (ch >= 128) {
+                    throw new IllegalStateException("Non-ASCII keyword not supported: " + keyword.text);
+                }
+                if (charClass[ch] == 0) {
+                    charClass[ch] = classes++;
+                }
+            }
+        }
+
+        List<int[]> gotoTable = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        gotoTable.add(newRow(classes));
+        nodeOutputs.add(new ArrayList<>());
+
+        for (int id = 0; id < keywords.size(); id++) {
+            int node = 0;
+            for (char ch : keywords.get(id).text.toCharArray()) {
+                int cls = charClass[ch];
+                if (gotoTable.get(node)[cls] < 0) {
+                    gotoTable.get(node)[cls] = gotoTable.size();
+                    gotoTable.add(newRow(classes));
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = gotoTable.get(node)[cls];
+            }
+            nodeOutputs.get(node).add(id);
+        }
+
+        // Breadth-first failure links, folding them into a complete transition table
+        int[] fail = new int[gotoTable.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int[] root = gotoTable.get(0);
+        for (int cls = 0; cls < classes; cls++) {
+            if (root[cls] < 0) {
+                root[cls] = 0;
+            } else {
+                fail[root[cls]] = 0;
+                queue.add(root[cls]);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(fail[node]));
+            int[] row = gotoTable.get(node);
+            int[] failRow = gotoTable.get(fail[node]);
+            for (int cls = 0; cls < classes; cls++) {
+                if (row[cls] < 0) {
+                    row[cls] = failRow[cls];
+                } else {
+                    fail[row[cls]] = failRow[cls];
+                    queue.add(row[cls]);
+                }
+            }
+        }
+
+        transitions = gotoTable.toArray(new int[0][]);
+        outputs = new int[nodeOutputs.size()][];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = nodeOutputs.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static int[] newRow(int classes) {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static List<Pattern> compile(String... regexes) {
+        List<Pattern> patterns = new ArrayList<>(regexes.length);
+        for (String regex : regexes) {
+            patterns.add(Pattern.compile(regex));
+        }
+        return Collections.unmodifiableList(patterns);
+    }
+
+    /**
+     * Receives keywords found by a streaming scan; start is inclusive and end exclusive
+     */
+    public interface KeywordListener {
+        void onKeyword(KeywordGroup group, String label, int start, int end);
+    }
+
+    private static final class Keyword {
+        private final KeywordGroup group;
+        private final String label;
+        private final String text;
+
+        private Keyword(KeywordGroup group, String label, String text) {
+            this.group = group;
+            this.label = label;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Result of a single keyword scan: hit counts and first positions per keyword
+     */
+    public final class KeywordMatches {
+        private final int[] counts = new int[keywords.size()];
+        private final int[] firstStart = new int[keywords.size()];
+
+        private KeywordMatches() {
+            Arrays.fill(firstStart, -1);
+        }
+
+        private void record(int id, int start) {
+            if (counts[id]++ == 0) {
+                firstStart[id] = start;
+            }
+        }
+
+        /**
+         * Total occurrences of all keywords of a label
+         */
+        public int score(KeywordGroup group, String label) {
+            int score = 0;
+            for (int id : idsOf(group, label)) {
+                score += counts[id];
+            }
+            return score;
+        }
+
+        /**
+         * Number of distinct keywords of a label that occurred at least once
+         */
+        public int distinctMatches(KeywordGroup group, String label) {
+            int matched = 0;
+            for (int id : idsOf(group, label)) {
+                if (counts[id] > 0) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * Whether any keyword of the group occurred
+         */
+        public boolean hasAny(KeywordGroup group) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0 && keywords.get(id).group == group) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Label of the earliest keyword of the group in the text (longest keyword wins ties),
+         * or null when none occurred
+         */
+        public String firstLabel(KeywordGroup group) {
+            String label = null;
+            int bestStart = Integer.MAX_VALUE;
+            int bestLength = 0;
+            for (int id = 0; id < counts.length; id++) {
+                Keyword keyword = keywords.get(id);
+                if (counts[id] == 0 || keyword.group != group) {
+                    continue;
+                }
+                int start = firstStart[id];
+                if (start < bestStart || (start == bestStart && keyword.text.length() > bestLength)) {
+                    label = keyword.label;
+                    bestStart = start;
+                    bestLength = keyword.text.length();
+                }
+            }
+            return label;
+        }
+
+        private int[] idsOf(KeywordGroup group, String label) {
+            int[] ids = labelKeywordIds.get(group).get(label);
+            return ids != null ? ids : new int[0];
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.procost.api.service;
+
+import com.procost.api.model.ChargeRate;
+import com.procost.api.model.Factory;
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, read-optimized copy of one factory's pricing data. A new snapshot is built
+ * whenever the factory's rates change and swapped in as a whole, so readers never see a half-applied edit.
+ */
+public final class FactoryRateSnapshot {
+
+    private final Long factoryId;
+    private final long version;
+    private final LocalDateTime loadedAt = LocalDateTime.now();
+    private final String currency;
+    private final RateIndex rates;
+    private final RateGrid grid;
+    // chargeName|productType|product|subtype, matched ignoring case; a missing subtype is stored as ""
+    private final Map<String, Double> chargeRates;
+    // productType|product -> schedule, for products with charge rates of their own
+    private final Map<String, ChargeSchedule> chargeSchedules;
+    private final ChargeSchedule defaultChargeSchedule;
+
+    FactoryRateSnapshot(Factory factory, long version, List<RateTable> rateTables,
+                        List<PackagingRate> packagingRates, List<ChargeRate> charges) {
+        this.factoryId = factory.getId();
+        this.version = version;
+        this.currency = factory.getCurrency();
+        this.rates = new RateIndex(rateTables, packagingRates);
+        this.grid = new RateGrid(rateTables, packagingRates);
+
+        Map<String, Double> chargeMap = new HashMap<>();
+        for (ChargeRate charge : charges) {
+            chargeMap.putIfAbsent(chargeKey(charge.getChargeName(), charge.getProductType(),
+                charge.getProduct(), charge.getSubtype()), charge.getRateValue());
+        }
+        this.chargeRates = Collections.unmodifiableMap(chargeMap);
+
+        this.defaultChargeSchedule = compileSchedule(factory, null, null);
+        Map<String, ChargeSchedule> schedules = new HashMap<>();
+        for (ChargeRate charge : charges) {
+            schedules.computeIfAbsent(scheduleKey(charge.getProductType(), charge.getProduct()),
+                k -> compileSchedule(factory, charge.getProductType(), charge.getProduct()));
+        }
+        this.chargeSchedules = Collections.unmodifiableMap(schedules);
+    }
+
+    public Long getFactoryId() {
+        return factoryId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public RateIndex getRates() {
+        return rates;
+    }
+
+    public RateGrid getGrid() {
+        return grid;
+    }
+
+    public Double filingRate(String product, String trimType, String rmSpec) {
+        return rates.filingRate(product, trimType, rmSpec);
+    }
+
+    public Double packagingRate(String prodType, String product, String packType, String transportMode) {
+        return rates.packagingRate(prodType, product, packType, transportMode);
+    }
+
+    /**
+     * Rate for a named charge, trying the exact subtype first and then the charge without a subtype
+     */
+    public Double chargeRate(String chargeName, String productType, String product, String subtype) {
+        Double rate = chargeRates.get(chargeKey(chargeName, productType, product, subtype));
+        if (rate == null && subtype != null && !subtype.isEmpty()) {
+            rate = chargeRates.get(chargeKey(chargeName, productType, product, null));
+        }
+        return rate;
+    }
+
+    /**
+     * Compiled charges for a product, or the factory-wide schedule when the product has no charge rates
+     */
+    public ChargeSchedule chargeSchedule(String productType, String product) {
+        return chargeSchedules.getOrDefault(scheduleKey(productType, product), defaultChargeSchedule);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("factoryId", factoryId);
+        map.put("version", version);
+        map.put("loadedAt", loadedAt);
+        map.put("rateTables", rates.getRateTableSize());
+        map.put("packagingRates", rates.getPackagingTableSize());
+        map.put("chargeRates", chargeRates.size());
+        return map;
+    }
+
+    /**
+     * Product-specific "Pallet Charge", "Terminal Charge", "ProdaB" and "Encoding" rates override
+     * the factory's pallet and terminal fees and the standard optional charges
+     */
+    private ChargeSchedule compileSchedule(Factory factory, String productType, String product) {
+        Double palletCharge = chargeRate("Pallet Charge", productType, product, null);
+        Double terminalCharge = chargeRate("Terminal Charge", productType, product, null);
+        return ChargeSchedule.forFactory(
+            palletCharge != null ? palletCharge : factory.getPalletCharge(),
+            terminalCharge != null ? terminalCharge : factory.getTerminalCharge(),
+            chargeRate("ProdaB", productType, product, null),
+            chargeRate("Encoding", productType, product, null),
+            factory.getReceptionFee(),
+            factory.getDispatchFee(),
+            factory.getEnvironmentalFeePercentage(),
+            factory.getElectricityFeePercentage());
+    }
+
+    private static String scheduleKey(String productType, String product) {
+        return (productType + '|' + product).toLowerCase(Locale.ROOT);
+    }
+
+    private static String chargeKey(String chargeName, String productType, String product, String subtype) {
+        return (chargeName + '|' + productType + '|' + product + '|' + (subtype != null ? subtype : ""))
+            .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,18 @@
+package com.procost.api.service;
+
+/**
+ * Published when a factory's rate tables, packaging rates, charge rates or fee settings change,
+ * so the pricing snapshot for that factory is rebuilt once the change is committed
+ */
+public class FactoryRatesChangedEvent {
+
+    private final Long factoryId;
+
+    public FactoryRatesChangedEvent(Long factoryId) {
+        this.factoryId = factoryId;
+    }
+
+    public Long getFactoryId() {
+        return factoryId;
+    }
+}
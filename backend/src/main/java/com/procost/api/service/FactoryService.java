@@ -1,5 +1,7 @@
 package com.procost.api.service;
 
+import com.procost.api.dto.FactorySummary;
+import com.procost.api.dto.KeysetPage;
 import com.procost.api.model.Factory;
 import com.procost.api.model.PackagingRate;
 import com.procost.api.model.RateTable;
@@ -9,10 +11,14 @@ import com.procost.api.repository.RateTableRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import javax.persistence.EntityNotFoundException;
+import java.time.LocalDateTime;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -24,20 +30,62 @@ public class FactoryService {
     private final FactoryRepository factoryRepository;
     private final PackagingRateRepository packagingRateRepository;
     private final RateTableRepository rateTableRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RateTableSyncService rateTableSyncService;
+    private final RatePageQuery ratePageQuery;
 
     @Autowired
     public FactoryService(FactoryRepository factoryRepository, 
                           PackagingRateRepository packagingRateRepository,
-                          RateTableRepository rateTableRepository) {
+                          RateTableRepository rateTableRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          RateTableSyncService rateTableSyncService,
+                          RatePageQuery ratePageQuery) {
         this.factoryRepository = factoryRepository;
         this.packagingRateRepository = packagingRateRepository;
         this.rateTableRepository = rateTableRepository;
+        this.eventPublisher = eventPublisher;
+        this.rateTableSyncService = rateTableSyncService;
+        this.ratePageQuery = ratePageQuery;
     }
 
     public List<Factory> getAllFactories() {
         return factoryRepository.findAll();
     }
 
+    public List<FactorySummary> getFactorySummaries() {
+        return factoryRepository.findSummaries();
+    }
+
+    /**
+     * Rate table rows after a cursor id, optionally filtered by product, trim type and RM spec
+     */
+    public KeysetPage<RateTable> getRateTablePage(Long factoryId, Long after, int limit,
+                                                  String product, String trimType, String rmSpec) {
+        List<RateTable> rows = ratePageQuery.findPage(RateTable.class, factoryId, after, limit + 1,
+            RatePageQuery.filters("product", product, "trimType", trimType, "rmSpec", rmSpec));
+        return KeysetPage.of(rows, limit, RateTable::getId);
+    }
+
+    /**
+     * Packaging rate rows after a cursor id, optionally filtered by product type, product, pack and transport mode
+     */
+    public KeysetPage<PackagingRate> getPackagingRatePage(Long factoryId, Long after, int limit, String prodType,
+                                                          String product, String pack, String transportMode) {
+        List<PackagingRate> rows = ratePageQuery.findPage(PackagingRate.class, factoryId, after, limit + 1,
+            RatePageQuery.filters("prodType", prodType, "product", product, "pack", pack,
+                "transportMode", transportMode));
+        return KeysetPage.of(rows, limit, PackagingRate::getId);
+    }
+
+    /**
+     * Records when a factory's rates last changed, in the transaction that changed them
+     */
+    @EventListener
+    public void onRatesChanged(FactoryRatesChangedEvent event) {
+        factoryRepository.touchRatesUpdatedAt(event.getFactoryId(), LocalDateTime.now());
+    }
+
     public Optional<Factory> getFactoryById(Long id) {
         return factoryRepository.findById(id);
     }
@@ -47,140 +95,69 @@ public class FactoryService {
     }
 
     public Factory updateFactory(Factory factory) {
-        return factoryRepository.save(factory);
+        Factory savedFactory = factoryRepository.save(factory);
+        eventPublisher.publishEvent(new FactoryRatesChangedEvent(savedFactory.getId()));
+        return savedFactory;
     }
 
     public void deleteFactory(Long id) {
         factoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new FactoryRatesChangedEvent(id));
     }
 
+    /**
+     * Replace the factory's packaging rates with a full edited copy, changing only the rows that differ
+     */
     @Transactional
     public Factory savePackagingRates(Long factoryId, List<PackagingRate> packagingRates) {
         try {
             logger.info("Attempting to save packaging rates for factory ID: {}", factoryId);
             logger.info("Number of packaging rates to save: {}", packagingRates.size());
             
-            Optional<Factory> factoryOpt = factoryRepository.findById(factoryId);
-            if (!factoryOpt.isPresent()) {
-                logger.warn("Factory not found with id: {}", factoryId);
-                throw new RuntimeException("Factory not found with id: " + factoryId);
-            }
-            
-            Factory factory = factoryOpt.get();
-            logger.info("Found factory: {}", factory.getName());
-            
-            // Use repository for operations
-            // First ensure this is transactional by executing in a single call
-            // This will delete all existing entries for this factory directly from the DB
-            int deleted = packagingRateRepository.deleteAllByFactoryId(factoryId);
-            logger.info("Deleted {} existing packaging rates", deleted);
-            
-            // Force commit the transaction to ensure deletion is processed
-            packagingRateRepository.flush();
-            
-            // Clear the in-memory list as well
-            factory.getPackagingRates().clear();
-            factoryRepository.save(factory);
-            factoryRepository.flush();
-            
-            // Create completely new PackagingRate objects to avoid any ID conflicts
-            List<PackagingRate> newRates = new ArrayList<>();
-            
-            for (PackagingRate sourceRate : packagingRates) {
-                // Create a completely new instance to avoid any association with previous records
-                PackagingRate newRate = new PackagingRate();
-                newRate.setId(null); // Explicitly set ID to null
-                newRate.setProdType(sourceRate.getProdType());
-                newRate.setProduct(sourceRate.getProduct());
-                newRate.setBoxQty(sourceRate.getBoxQty());
-                newRate.setPack(sourceRate.getPack());
-                newRate.setTransportMode(sourceRate.getTransportMode());
-                newRate.setPackagingRate(sourceRate.getPackagingRate());
-                
-                // Set factory explicitly
-                newRate.setFactory(factory);
-                
-                // Save the new rate directly to the database
-                PackagingRate savedRate = packagingRateRepository.save(newRate);
-                newRates.add(savedRate);
-            }
-            
-            // Update factory's packaging rates list with the saved rates
-            factory.getPackagingRates().clear();
-            factory.getPackagingRates().addAll(newRates);
-            
-            logger.info("Saving factory with {} new packaging rates", newRates.size());
-            Factory savedFactory = factoryRepository.save(factory);
-            logger.info("Successfully saved factory with packaging rates");
-            return savedFactory;
+            RateTableSyncService.Changes changes = rateTableSyncService.syncPackagingRates(factoryId, packagingRates);
+            logger.info("Successfully saved packaging rates: {}", changes);
+            return factoryRepository.findById(factoryId)
+                .orElseThrow(() -> new EntityNotFoundException("Factory not found with id: " + factoryId));
         } catch (Exception e) {
             logger.error("Error saving packaging rates: {}", e.getMessage(), e);
             throw new RuntimeException("Error saving packaging rates: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Replace the factory's rate tables with a full edited copy, changing only the rows that differ
+     */
     @Transactional
     public Factory saveRateTables(Long factoryId, List<RateTable> rateTables) {
         try {
             logger.info("Attempting to save rate tables for factory ID: {}", factoryId);
             logger.info("Number of rate tables to save: {}", rateTables.size());
             
-            Optional<Factory> factoryOpt = factoryRepository.findById(factoryId);
-            if (!factoryOpt.isPresent()) {
-                logger.warn("Factory not found with id: {}", factoryId);
-                throw new RuntimeException("Factory not found with id: " + factoryId);
-            }
-            
-            Factory factory = factoryOpt.get();
-            logger.info("Found factory: {}", factory.getName());
-            
-            // Use repository for operations
-            // First ensure this is transactional by executing in a single call
-            // This will delete all existing entries for this factory directly from the DB
-            int deleted = rateTableRepository.deleteAllByFactoryId(factoryId);
-            logger.info("Deleted {} existing rate tables", deleted);
-            
-            // Force commit the transaction to ensure deletion is processed
-            rateTableRepository.flush();
-            
-            // Clear the in-memory list as well
-            factory.getRateTables().clear();
-            factoryRepository.save(factory);
-            factoryRepository.flush();
-            
-            // Create completely new RateTable objects to avoid any ID conflicts
-            List<RateTable> newRates = new ArrayList<>();
-            
-            for (RateTable sourceRate : rateTables) {
-                // Create a completely new instance to avoid any association with previous records
-                RateTable newRate = new RateTable();
-                newRate.setId(null); // Explicitly set ID to null
-                newRate.setProduct(sourceRate.getProduct());
-                newRate.setTrimType(sourceRate.getTrimType());
-                newRate.setRmSpec(sourceRate.getRmSpec());
-                newRate.setRatePerKg(sourceRate.getRatePerKg());
-                
-                // Set factory explicitly
-                newRate.setFactory(factory);
-                
-                // Save the new rate directly to the database
-                RateTable savedRate = rateTableRepository.save(newRate);
-                newRates.add(savedRate);
-            }
-            
-            // Update factory's rate tables list with the saved rates
-            factory.getRateTables().clear();
-            factory.getRateTables().addAll(newRates);
-            
-            logger.info("Saving factory with {} new rate tables", newRates.size());
-            Factory savedFactory = factoryRepository.save(factory);
-            logger.info("Successfully saved factory with rate tables");
-            return savedFactory;
+            RateTableSyncService.Changes changes = rateTableSyncService.syncRateTables(factoryId, rateTables);
+            logger.info("Successfully saved rate tables: {}", changes);
+            return factoryRepository.findById(factoryId)
+                .orElseThrow(() -> new EntityNotFoundException("Factory not found with id: " + factoryId));
         } catch (Exception e) {
             logger.error("Error saving rate tables: {}", e.getMessage(), e);
             throw new RuntimeException("Error saving rate tables: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Like {@link #savePackagingRates}, returning what changed instead of the factory
+     */
+    @Transactional
+    public RateTableSyncService.Changes syncPackagingRates(Long factoryId, List<PackagingRate> packagingRates) {
+        return rateTableSyncService.syncPackagingRates(factoryId, packagingRates);
+    }
+
+    /**
+     * Like {@link #saveRateTables}, returning what changed instead of the factory
+     */
+    @Transactional
+    public RateTableSyncService.Changes syncRateTables(Long factoryId, List<RateTable> rateTables) {
+        return rateTableSyncService.syncRateTables(factoryId, rateTables);
+    }
     
     public List<PackagingRate> getPackagingRates(Long factoryId) {
         Optional<Factory> factoryOpt = factoryRepository.findById(factoryId);
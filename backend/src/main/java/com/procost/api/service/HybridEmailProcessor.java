@@ -2,13 +2,18 @@ package com.procost.api.service;
 
 import com.procost.api.model.*;
 import com.procost.api.repository.CustomerRepository;
+import com.procost.api.service.EmailPatternEngine.KeywordGroup;
+import com.procost.api.service.EmailPatternEngine.KeywordMatches;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.util.context.Context;
 
 import java.util.*;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class HybridEmailProcessor {
@@ -21,9 +26,27 @@ public class HybridEmailProcessor {
     @Autowired
     private OpenAIEmailProcessor openAIProcessor;
     
+    @Autowired
+    private EmailPatternEngine patternEngine;
+    
     @Autowired
     private CustomerRepository customerRepository;
     
+    @Autowired
+    private AIResponseCache responseCache;
+    
+    @Autowired
+    private AICostModel costModel;
+    
+    @Autowired
+    private OpenAIGuard openAIGuard;
+    
+    @Autowired
+    private AIUsageMetrics metrics;
+    
+    @Autowired
+    private AIBudgetGovernor budgetGovernor;
+    
     @Value("${ai.hybrid.enabled:true}")
     private boolean hybridModeEnabled;
     
@@ -33,40 +56,41 @@ public class HybridEmailProcessor {
     @Value("${ai.confidence.threshold:0.7}")
     private double confidenceThreshold;
     
+    @Value("${ai.batch.processing:false}")
+    private boolean batchProcessingEnabled;
+    
     /**
-     * Hybrid email classification - tries patterns first, then AI
+     * Hybrid email classification - tries patterns first, then AI; AI calls are charged to the sender's budget
      */
-    public String classifyEmail(String subject, String body) {
+    public String classifyEmail(String fromEmail, String subject, String body) {
         logger.info("🔄 Starting hybrid email classification for: {}", subject);
         
-        // Step 1: Try pattern-based classification
-        String patternResult = patternProcessor.classifyEmail(subject, body);
-        double patternConfidence = calculateClassificationConfidence(subject, body, patternResult);
+        // Step 1: Try pattern-based classification (one keyword scan feeds both result and confidence)
+        KeywordMatches keywordMatches = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_SCAN,
+            () -> patternEngine.scan(subject, body));
+        String patternResult = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_CLASSIFY,
+            () -> patternProcessor.classifyEmail(keywordMatches));
+        double patternConfidence = calculateClassificationConfidence(keywordMatches, subject, body, patternResult);
         
         logger.info("📊 Pattern classification: {} (confidence: {:.2f})", patternResult, patternConfidence);
         
         // Step 2: Decide if we need AI fallback
-        if (shouldUseAIFallback(patternResult, patternConfidence, subject, body)) {
-            logger.info("🤖 Pattern confidence low, trying OpenAI classification...");
-            
-            try {
-                String aiResult = openAIProcessor.classifyEmailWithAI(subject, body);
-                logger.info("✅ OpenAI classification: {}", aiResult);
-                
-                // Track usage for analytics
-                recordAIUsage("classification", "openai_used", subject.length() + body.length());
-                
-                return aiResult;
-                
-            } catch (Exception e) {
-                logger.warn("❌ OpenAI classification failed, using pattern result: {}", e.getMessage());
-                recordAIUsage("classification", "openai_failed", 0);
+        boolean priority = budgetGovernor.isPriority(patternResult);
+        if (needsAI("classification", classificationFallbackReason(patternResult, patternConfidence, subject, body))) {
+            String unavailable = aiUnavailableOutcome("classification", fromEmail, priority);
+            if (unavailable != null) {
+                recordAIUsage("classification", unavailable);
                 return patternResult;
             }
+            logger.info("🤖 Pattern confidence low, trying OpenAI classification...");
+            AIOutcome outcome = new AIOutcome();
+            String result = classifyWithAI(subject, body, patternResult, budgetGovernor.context(fromEmail, priority), outcome);
+            recordAIUsage("classification", outcome.value);
+            return result;
         }
         
         logger.info("✅ Using pattern classification result: {}", patternResult);
-        recordAIUsage("classification", "pattern_sufficient", 0);
+        recordAIUsage("classification", AIUsageMetrics.OUTCOME_PATTERN_SUFFICIENT);
         return patternResult;
     }
     
@@ -84,98 +108,289 @@ public class HybridEmailProcessor {
         }
         
         // Step 1: Try pattern-based extraction
-        Customer patternCustomer = patternProcessor.extractCustomerInfo(fromEmail, body, subject);
+        Customer patternCustomer = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_EXTRACT,
+            () -> patternProcessor.extractCustomerInfo(fromEmail, body, subject));
         double extractionScore = calculateCustomerExtractionScore(patternCustomer);
         
         logger.info("📊 Pattern extraction score: {:.2f} for customer: {}", 
                    extractionScore, patternCustomer.getContactPerson());
         
         // Step 2: Decide if we need AI fallback
-        if (shouldUseAIForCustomerExtraction(extractionScore, body)) {
-            logger.info("🤖 Pattern extraction insufficient, trying OpenAI...");
-            
-            try {
-                Customer aiCustomer = openAIProcessor.extractCustomerInfoWithAI(fromEmail, body, subject);
-                logger.info("✅ OpenAI extracted customer: {} from {}", 
-                           aiCustomer.getContactPerson(), aiCustomer.getCompanyName());
-                
-                recordAIUsage("customer_extraction", "openai_used", body.length());
-                return aiCustomer;
-                
-            } catch (Exception e) {
-                logger.warn("❌ OpenAI customer extraction failed, using pattern result: {}", e.getMessage());
-                recordAIUsage("customer_extraction", "openai_failed", 0);
+        if (needsAI("customer_extraction", customerFallbackReason(extractionScore, body))) {
+            String unavailable = aiUnavailableOutcome("customer_extraction", fromEmail, false);
+            if (unavailable != null) {
+                recordAIUsage("customer_extraction", unavailable);
                 return patternCustomer;
             }
+            logger.info("🤖 Pattern extraction insufficient, trying OpenAI...");
+            AIOutcome outcome = new AIOutcome();
+            Customer customer = extractCustomerWithAI(fromEmail, body, subject, patternCustomer,
+                budgetGovernor.context(fromEmail, false), outcome);
+            recordAIUsage("customer_extraction", outcome.value);
+            return customer;
         }
         
         logger.info("✅ Using pattern extraction result for: {}", patternCustomer.getContactPerson());
-        recordAIUsage("customer_extraction", "pattern_sufficient", 0);
+        recordAIUsage("customer_extraction", AIUsageMetrics.OUTCOME_PATTERN_SUFFICIENT);
         return patternCustomer;
     }
     
     /**
-     * Hybrid product parsing - tries patterns first, then AI
+     * Hybrid product parsing - tries patterns first, then AI; AI calls are charged to the sender's budget
      */
-    public List<EnquiryItem> parseProductRequirements(String emailBody) {
+    public List<EnquiryItem> parseProductRequirements(String fromEmail, String emailBody) {
         logger.info("🔄 Starting hybrid product parsing");
         
         // Step 1: Try pattern-based parsing
-        List<EnquiryItem> patternItems = patternProcessor.parseProductRequirements(emailBody);
+        List<EnquiryItem> patternItems = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_PARSE,
+            () -> patternProcessor.parseProductRequirements(emailBody));
         double parsingScore = calculateProductParsingScore(patternItems, emailBody);
         
         logger.info("📊 Pattern parsing score: {:.2f}, found {} items", parsingScore, patternItems.size());
         
         // Step 2: Decide if we need AI fallback
-        if (shouldUseAIForProductParsing(parsingScore, patternItems, emailBody)) {
+        if (needsAI("product_parsing", productFallbackReason(parsingScore, patternItems, emailBody))) {
+            String unavailable = aiUnavailableOutcome("product_parsing", fromEmail, false);
+            if (unavailable != null) {
+                recordAIUsage("product_parsing", unavailable);
+                return patternItems;
+            }
             logger.info("🤖 Pattern parsing insufficient, trying OpenAI...");
+            AIOutcome outcome = new AIOutcome();
+            List<EnquiryItem> items = parseProductsWithAI(emailBody, patternItems,
+                budgetGovernor.context(fromEmail, false), outcome);
+            recordAIUsage("product_parsing", outcome.value);
+            return items;
+        }
+        
+        logger.info("✅ Using pattern parsing result: {} items", patternItems.size());
+        recordAIUsage("product_parsing", AIUsageMetrics.OUTCOME_PATTERN_SUFFICIENT);
+        return patternItems;
+    }
+    
+    /**
+     * Hybrid processing of a whole email. Patterns run for every step first; the steps that
+     * still need AI are sent to OpenAI as one combined request when the cost model says it
+     * pays off, otherwise as one request each.
+     */
+    public EmailExtraction processEmail(String fromEmail, String subject, String body) {
+        return processEmail(fromEmail, subject, body, null);
+    }
+    
+    /**
+     * Hybrid processing of a whole email, holding one of the given permits while OpenAI is
+     * called so bulk callers can cap their AI concurrency. Null permits means no limit.
+     * One email_processing outcome is recorded per email, whether its AI steps ran combined or separately.
+     */
+    public EmailExtraction processEmail(String fromEmail, String subject, String body, Semaphore aiPermits) {
+        logger.info("🔄 Starting hybrid email processing for: {}", subject);
+        
+        EmailExtraction extraction = new EmailExtraction();
+        Set<AIOperation> needsAI = EnumSet.noneOf(AIOperation.class);
+        
+        // Step 1: Pattern-based results for every step
+        KeywordMatches keywordMatches = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_SCAN,
+            () -> patternEngine.scan(subject, body));
+        String patternClassification = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_CLASSIFY,
+            () -> patternProcessor.classifyEmail(keywordMatches));
+        double classificationConfidence = calculateClassificationConfidence(keywordMatches, subject, body, patternClassification);
+        extraction.setClassification(patternClassification);
+        if (needsAI("classification",
+                classificationFallbackReason(patternClassification, classificationConfidence, subject, body))) {
+            needsAI.add(AIOperation.CLASSIFICATION);
+        }
+        
+        Optional<Customer> existingCustomer = customerRepository.findByEmail(fromEmail);
+        if (existingCustomer.isPresent()) {
+            extraction.setCustomer(existingCustomer.get());
+        } else {
+            Customer patternCustomer = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_EXTRACT,
+                () -> patternProcessor.extractCustomerInfo(fromEmail, body, subject));
+            extraction.setCustomer(patternCustomer);
+            if (needsAI("customer_extraction",
+                    customerFallbackReason(calculateCustomerExtractionScore(patternCustomer), body))) {
+                needsAI.add(AIOperation.CUSTOMER_EXTRACTION);
+            }
+        }
+        
+        List<EnquiryItem> patternItems = metrics.timeStage(AIUsageMetrics.STAGE_PATTERN_PARSE,
+            () -> patternProcessor.parseProductRequirements(body));
+        extraction.setItems(patternItems);
+        if (needsAI("product_parsing",
+                productFallbackReason(calculateProductParsingScore(patternItems, body), patternItems, body))) {
+            needsAI.add(AIOperation.PRODUCT_PARSING);
+        }
+        
+        if (needsAI.isEmpty()) {
+            logger.info("✅ Pattern results sufficient for all steps");
+            recordAIUsage("email_processing", AIUsageMetrics.OUTCOME_PATTERN_SUFFICIENT);
+            return extraction;
+        }
+        
+        // ORDER mail draws on the reserved share of the daily AI budget
+        boolean priority = budgetGovernor.isPriority(patternClassification);
+        String unavailable = aiUnavailableOutcome("email_processing", fromEmail, priority);
+        if (unavailable != null) {
+            recordAIUsage("email_processing", unavailable);
+            return extraction;
+        }
+        Context budget = budgetGovernor.context(fromEmail, priority);
+        AIOutcome outcome = new AIOutcome();
+        
+        if (aiPermits != null) {
+            aiPermits.acquireUninterruptibly();
+        }
+        try {
+            processWithAI(extraction, needsAI, fromEmail, subject, body, patternClassification, budget, outcome);
+        } finally {
+            if (aiPermits != null) {
+                aiPermits.release();
+            }
+        }
+        recordAIUsage("email_processing", outcome.value);
+        return extraction;
+    }
+    
+    private void processWithAI(EmailExtraction extraction, Set<AIOperation> needsAI, String fromEmail, String subject,
+                               String body, String patternClassification, Context budget, AIOutcome outcome) {
+        List<EnquiryItem> patternItems = extraction.getItems();
+        
+        // Step 2: One combined OpenAI request for the remaining steps when it pays off
+        int inputChars = fromEmail.length() + subject.length() + body.length();
+        if (batchProcessingEnabled && costModel.shouldCombine(needsAI, inputChars, patternItems.size())) {
+            logger.info("🤖 Sending {} to OpenAI in one combined request", needsAI);
             
             try {
-                List<EnquiryItem> aiItems = openAIProcessor.parseProductRequirementsWithAI(emailBody);
-                logger.info("✅ OpenAI parsed {} product items", aiItems.size());
+                EmailExtraction aiExtraction = openAIProcessor.extractWithAIReactive(
+                        needsAI, fromEmail, subject, body, costModel.getCombinedMaxOutputTokens())
+                    .contextWrite(budget)
+                    .block();
+                
+                if (needsAI.contains(AIOperation.CLASSIFICATION)) {
+                    extraction.setClassification(aiExtraction.getClassification());
+                }
+                if (needsAI.contains(AIOperation.CUSTOMER_EXTRACTION)) {
+                    extraction.setCustomer(aiExtraction.getCustomer());
+                }
+                if (needsAI.contains(AIOperation.PRODUCT_PARSING)) {
+                    extraction.setItems(aiExtraction.getItems());
+                }
+                extraction.getAiOperations().addAll(needsAI);
+                extraction.setOpenAICalls(1);
                 
-                recordAIUsage("product_parsing", "openai_used", emailBody.length());
-                return aiItems;
+                costModel.recordCombined(costModel.estimateSeparate(needsAI, inputChars, patternItems.size()),
+                                         costModel.estimateCombined(needsAI, inputChars, patternItems.size()));
                 
             } catch (Exception e) {
-                logger.warn("❌ OpenAI product parsing failed, using pattern result: {}", e.getMessage());
-                recordAIUsage("product_parsing", "openai_failed", 0);
-                return patternItems;
+                logger.warn("❌ Combined OpenAI extraction failed, using pattern results: {}", e.getMessage());
+                outcome.failed(e);
             }
+            return;
         }
         
-        logger.info("✅ Using pattern parsing result: {} items", patternItems.size());
-        recordAIUsage("product_parsing", "pattern_sufficient", 0);
-        return patternItems;
+        // Step 2 (alternative): Separate OpenAI requests
+        if (needsAI.contains(AIOperation.CLASSIFICATION)) {
+            extraction.setClassification(classifyWithAI(subject, body, patternClassification, budget, outcome));
+        }
+        if (needsAI.contains(AIOperation.CUSTOMER_EXTRACTION)) {
+            extraction.setCustomer(extractCustomerWithAI(fromEmail, body, subject, extraction.getCustomer(), budget,
+                                                         outcome));
+        }
+        if (needsAI.contains(AIOperation.PRODUCT_PARSING)) {
+            extraction.setItems(parseProductsWithAI(body, patternItems, budget, outcome));
+        }
+        extraction.getAiOperations().addAll(needsAI);
+        extraction.setOpenAICalls(needsAI.size());
     }
     
     /**
-     * Calculate confidence score for classification
+     * Why OpenAI can't be used right now, or null if it can: the pattern result is kept while the
+     * circuit breaker is open or once the daily AI budget for this sender is used up
      */
-    private double calculateClassificationConfidence(String subject, String body, String classification) {
-        String combinedText = (subject + " " + body).toLowerCase();
-        
-        // Count keyword matches for the classification
-        Map<String, List<String>> patterns = Map.of(
-            "ENQUIRY", Arrays.asList("enquiry", "inquiry", "quote", "price", "cost", "information", "details"),
-            "ORDER", Arrays.asList("order", "purchase", "buy", "confirm", "proceed"),
-            "COMPLAINT", Arrays.asList("complaint", "issue", "problem", "wrong", "error"),
-            "QUOTE_RESPONSE", Arrays.asList("accept", "reject", "approve", "decline", "confirm quote"),
-            "GENERAL", Arrays.asList("hello", "hi", "thanks", "information")
-        );
-        
-        List<String> classificationPatterns = patterns.getOrDefault(classification, Collections.emptyList());
-        int matches = 0;
-        int totalWords = combinedText.split("\\s+").length;
-        
-        for (String pattern : classificationPatterns) {
-            if (combinedText.contains(pattern)) {
-                matches++;
-            }
+    private String aiUnavailableOutcome(String operation, String fromEmail, boolean priority) {
+        if (openAIGuard.isOpen()) {
+            logger.info("⚡ OpenAI circuit open, using pattern result for {}", operation);
+            return AIUsageMetrics.OUTCOME_CIRCUIT_OPEN;
+        }
+        if (!budgetGovernor.hasBudget(fromEmail, priority)) {
+            logger.info("💸 AI budget exhausted, using pattern result for {}", operation);
+            return AIUsageMetrics.OUTCOME_BUDGET_EXHAUSTED;
         }
+        return null;
+    }
+    
+    /**
+     * Outcome to record for a failed OpenAI step; the pattern result is kept either way.
+     * A budget that ran out while the email was in flight counts as budget_exhausted, like one
+     * that was already used up before it started.
+     */
+    private static String failureOutcome(Exception e) {
+        if (e instanceof AIBudgetGovernor.BudgetExceededException) {
+            return AIUsageMetrics.OUTCOME_BUDGET_EXHAUSTED;
+        }
+        return e instanceof CallNotPermittedException
+            ? AIUsageMetrics.OUTCOME_CIRCUIT_OPEN : AIUsageMetrics.OUTCOME_OPENAI_FAILED;
+    }
+    
+    private String classifyWithAI(String subject, String body, String patternResult, Context budget,
+                                  AIOutcome outcome) {
+        try {
+            String aiResult = openAIProcessor.classifyEmailWithAIReactive(subject, body).contextWrite(budget).block();
+            logger.info("✅ OpenAI classification: {}", aiResult);
+            return aiResult;
+            
+        } catch (Exception e) {
+            logger.warn("❌ OpenAI classification failed, using pattern result: {}", e.getMessage());
+            outcome.failed(e);
+            return patternResult;
+        }
+    }
+    
+    private Customer extractCustomerWithAI(String fromEmail, String body, String subject, Customer patternCustomer,
+                                           Context budget, AIOutcome outcome) {
+        try {
+            Customer aiCustomer = openAIProcessor.extractCustomerInfoWithAIReactive(fromEmail, body, subject)
+                .contextWrite(budget)
+                .block();
+            logger.info("✅ OpenAI extracted customer: {} from {}", 
+                       aiCustomer.getContactPerson(), aiCustomer.getCompanyName());
+            return aiCustomer;
+            
+        } catch (Exception e) {
+            logger.warn("❌ OpenAI customer extraction failed, using pattern result: {}", e.getMessage());
+            outcome.failed(e);
+            return patternCustomer;
+        }
+    }
+    
+    private List<EnquiryItem> parseProductsWithAI(String emailBody, List<EnquiryItem> patternItems, Context budget,
+                                                  AIOutcome outcome) {
+        try {
+            List<EnquiryItem> aiItems = openAIProcessor.parseProductRequirementsWithAIReactive(emailBody)
+                .contextWrite(budget)
+                .block();
+            logger.info("✅ OpenAI parsed {} product items", aiItems.size());
+            return aiItems;
+            
+        } catch (Exception e) {
+            logger.warn("❌ OpenAI product parsing failed, using pattern result: {}", e.getMessage());
+            outcome.failed(e);
+            return patternItems;
+        }
+    }
+    
+    /**
+     * Calculate confidence score for classification
+     */
+    private double calculateClassificationConfidence(KeywordMatches keywordMatches, String subject, String body,
+                                                     String classification) {
+        // Count distinct keyword matches for the classification
+        int matches = keywordMatches.distinctMatches(KeywordGroup.CLASSIFICATION, classification);
+        int keywordCount = patternEngine.keywordCount(KeywordGroup.CLASSIFICATION, classification);
+        int totalWords = countWords(subject) + countWords(body);
         
         // Calculate confidence based on matches and text length
-        double confidence = Math.min(1.0, (double) matches / Math.max(1, classificationPatterns.size()));
+        double confidence = Math.min(1.0, (double) matches / Math.max(1, keywordCount));
         
         // Boost confidence for shorter, focused emails
         if (totalWords < 50 && matches > 0) {
@@ -185,6 +400,26 @@ public class HybridEmailProcessor {
         return confidence;
     }
     
+    /**
+     * Count whitespace-separated words without splitting the text
+     */
+    private int countWords(String text) {
+        if (text == null) {
+            return 0;
+        }
+        
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inWord) {
+                words++;
+            }
+            inWord = !whitespace;
+        }
+        return words;
+    }
+    
     /**
      * Calculate customer extraction score
      */
@@ -264,76 +499,84 @@ public class HybridEmailProcessor {
     }
     
     /**
-     * Decide if AI fallback is needed for classification
+     * Record the fallback decision for a step; a null reason means the pattern result is kept
+     */
+    private boolean needsAI(String operation, String reason) {
+        metrics.recordFallbackDecision(operation, reason != null ? reason : AIUsageMetrics.OUTCOME_PATTERN_SUFFICIENT);
+        return reason != null;
+    }
+    
+    /**
+     * Why AI fallback is needed for classification, or null if it is not
      */
-    private boolean shouldUseAIFallback(String classification, double confidence, String subject, String body) {
+    private String classificationFallbackReason(String classification, double confidence, String subject, String body) {
         if (!hybridModeEnabled || !openAIFallbackEnabled) {
-            return false;
+            return null;
         }
         
         // Use AI if confidence is low
         if (confidence < confidenceThreshold) {
-            return true;
+            return "low_confidence";
         }
         
         // Use AI for "GENERAL" classification (often means unclear)
         if ("GENERAL".equals(classification)) {
-            return true;
+            return "general_classification";
         }
         
         // Use AI for complex emails (long content, multiple sentences)
         if (isComplexEmail(subject, body)) {
-            return true;
+            return "complex_email";
         }
         
-        return false;
+        return null;
     }
     
     /**
-     * Decide if AI is needed for customer extraction
+     * Why AI is needed for customer extraction, or null if it is not
      */
-    private boolean shouldUseAIForCustomerExtraction(double extractionScore, String body) {
+    private String customerFallbackReason(double extractionScore, String body) {
         if (!hybridModeEnabled || !openAIFallbackEnabled) {
-            return false;
+            return null;
         }
         
         // Use AI if extraction score is low
         if (extractionScore < 0.5) {
-            return true;
+            return "low_score";
         }
         
         // Use AI for emails with no formal signature but rich content
         if (extractionScore < 0.7 && body.length() > 200) {
-            return true;
+            return "no_signature_rich_content";
         }
         
-        return false;
+        return null;
     }
     
     /**
-     * Decide if AI is needed for product parsing
+     * Why AI is needed for product parsing, or null if it is not
      */
-    private boolean shouldUseAIForProductParsing(double parsingScore, List<EnquiryItem> items, String emailBody) {
+    private String productFallbackReason(double parsingScore, List<EnquiryItem> items, String emailBody) {
         if (!hybridModeEnabled || !openAIFallbackEnabled) {
-            return false;
+            return null;
         }
         
         // Use AI if no products found
         if (items.isEmpty()) {
-            return true;
+            return "no_items";
         }
         
         // Use AI if parsing score is low
         if (parsingScore < 0.6) {
-            return true;
+            return "low_score";
         }
         
         // Use AI for emails that seem to have product mentions but weren't extracted
         if (containsProductIndicators(emailBody) && items.size() < 2) {
-            return true;
+            return "unextracted_indicators";
         }
         
-        return false;
+        return null;
     }
     
     /**
@@ -389,16 +632,12 @@ public class HybridEmailProcessor {
     }
     
     /**
-     * Record AI usage for analytics
+     * Record the outcome of one call to a public entry point; the only place outcomes are counted
      */
-    private void recordAIUsage(String operation, String result, int textLength) {
+    private void recordAIUsage(String operation, String result) {
         // Log for monitoring and cost tracking
-        logger.info("📈 AI Usage: operation={}, result={}, textLength={}", operation, result, textLength);
-        
-        // TODO: Implement metrics collection
-        // - Track cost per operation
-        // - Monitor pattern vs AI success rates
-        // - Alert on high AI usage
+        logger.info("📈 AI Usage: operation={}, result={}", operation, result);
+        metrics.recordOutcome(operation, result);
     }
     
     /**
@@ -409,12 +648,26 @@ public class HybridEmailProcessor {
         stats.put("hybridModeEnabled", hybridModeEnabled);
         stats.put("openAIFallbackEnabled", openAIFallbackEnabled);
         stats.put("confidenceThreshold", confidenceThreshold);
-        
-        // TODO: Add real metrics from database/cache
-        stats.put("patternSuccessRate", 0.75);
-        stats.put("aiUsageRate", 0.25);
-        stats.put("costSavings", "75%");
+        stats.put("batchProcessingEnabled", batchProcessingEnabled);
+        stats.put("responseCache", responseCache.getStats());
+        stats.put("combinedExtraction", costModel.getStats());
+        stats.putAll(openAIGuard.getStats());
+        stats.putAll(metrics.getStats());
+        stats.put("budget", budgetGovernor.getStats());
         
         return stats;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Outcome of the OpenAI steps for one email: openai_used unless a step failed, then the first failure
+     */
+    private static class AIOutcome {
+        private String value = AIUsageMetrics.OUTCOME_OPENAI_USED;
+        
+        void failed(Exception e) {
+            if (AIUsageMetrics.OUTCOME_OPENAI_USED.equals(value)) {
+                value = failureOutcome(e);
+            }
+        }
+    }
+}
@@ -58,6 +58,7 @@ public class InquiryService {
         inquiry.setTerminalCharge(inquiryRequest.getTerminalCharge());
         inquiry.setOptionalCharges(inquiryRequest.getOptionalCharges());
         inquiry.setTotalCharges(inquiryRequest.getTotalCharges());
+        inquiry.setRateVersion(inquiryRequest.getRateVersion());
         
         inquiryRepository.save(inquiry);
         
@@ -65,7 +66,7 @@ public class InquiryService {
     }
     
     private InquiryResponse mapToInquiryResponse(Inquiry inquiry) {
-        return new InquiryResponse(
+        InquiryResponse response = new InquiryResponse(
                 inquiry.getId(),
                 inquiry.getUser().getId(),
                 inquiry.getProduct(),
@@ -84,5 +85,7 @@ public class InquiryService {
                 inquiry.getTotalCharges(),
                 inquiry.getCreatedAt()
         );
+        response.setRateVersion(inquiry.getRateVersion());
+        return response;
     }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package com.procost.api.service;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Buckets whose state is kept in the rate_limit_buckets table, so all instances pointing at the
+ * same database enforce one quota per key. Each request locks the key's row with SELECT ... FOR UPDATE,
+ * applies the bucket4j command and writes the new state back in the same short transaction.
+ * Rows record when their bucket will be full again and are deleted after that by a periodic sweep.
+ */
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimitStore.class);
+
+    private static final String SELECT_FOR_UPDATE = "SELECT state FROM rate_limit_buckets WHERE bucket_key = ? FOR UPDATE";
+    private static final String INSERT_EMPTY = "INSERT INTO rate_limit_buckets (bucket_key, state, expires_at) VALUES (?, NULL, ?)";
+    private static final String UPDATE_STATE = "UPDATE rate_limit_buckets SET state = ?, expires_at = ? WHERE bucket_key = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM rate_limit_buckets WHERE expires_at < ?";
+
+    private final DataSource dataSource;
+    private final ProxyManager proxyManager = new ProxyManager();
+    private final int sweepInterval;
+
+    private final AtomicInteger writesSinceSweep = new AtomicInteger();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong expiredDeleted = new AtomicLong();
+
+    public JdbcRateLimitStore(DataSource dataSource, int sweepInterval) {
+        this.dataSource = dataSource;
+        this.sweepInterval = sweepInterval;
+    }
+
+    @Override
+    public Bucket getBucket(String key, Supplier<BucketConfiguration> configuration) {
+        // A proxy holds no state; the row is created atomically on the first command for the key
+        return proxyManager.builder().build(key, configuration);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", "jdbc");
+        stats.put("writes", writes.get());
+        stats.put("expiredDeleted", expiredDeleted.get());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) FROM rate_limit_buckets");
+             ResultSet rs = count.executeQuery()) {
+            rs.next();
+            stats.put("buckets", rs.getLong(1));
+        } catch (SQLException e) {
+            stats.put("error", e.getMessage());
+        }
+        return stats;
+    }
+
+    private void afterWrite() {
+        writes.incrementAndGet();
+        if (writesSinceSweep.incrementAndGet() >= sweepInterval) {
+            writesSinceSweep.set(0);
+            sweep();
+        }
+    }
+
+    /**
+     * Delete buckets that have refilled completely; a new request for the key starts a fresh, full bucket
+     */
+    private void sweep() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE_EXPIRED)) {
+            delete.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            int deleted = delete.executeUpdate();
+            expiredDeleted.addAndGet(deleted);
+            if (deleted > 0) {
+                logger.debug("Deleted {} refilled rate limit buckets", deleted);
+            }
+        } catch (SQLException e) {
+            logger.warn("Rate limit bucket sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private final class ProxyManager extends AbstractSelectForUpdateBasedProxyManager<String> {
+
+        private ProxyManager() {
+            super(ClientSideConfig.getDefault());
+        }
+
+        @Override
+        protected SelectForUpdateBasedTransaction allocateTransaction(String key) {
+            return new RowTransaction(key);
+        }
+
+        @Override
+        public boolean isAsyncModeSupported() {
+            return false;
+        }
+
+        @Override
+        public void removeProxy(String key) {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM rate_limit_buckets WHERE bucket_key = ?")) {
+                delete.setString(1, key);
+                delete.executeUpdate();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not remove rate limit bucket " + key, e);
+            }
+        }
+    }
+
+    /**
+     * One command against one key's row, on a dedicated connection
+     */
+    private final class RowTransaction implements SelectForUpdateBasedTransaction {
+
+        private final String key;
+        private Connection connection;
+
+        private RowTransaction(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void begin() {
+            try {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw failure("begin", e);
+            }
+        }
+
+        @Override
+        public LockAndGetResult tryLockAndGet() {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+                select.setString(1, key);
+                try (ResultSet rs = select.executeQuery()) {
+                    return rs.next() ? LockAndGetResult.locked(rs.getBytes(1)) : LockAndGetResult.notLocked();
+                }
+            } catch (SQLException e) {
+                throw failure("lock", e);
+            }
+        }
+
+        @Override
+        public boolean tryInsertEmptyData() {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY)) {
+                insert.setString(1, key);
+                insert.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                return insert.executeUpdate() == 1;
+            } catch (SQLException e) {
+                // Another instance inserted the row first; the caller retries and locks it
+                return false;
+            }
+        }
+
+        @Override
+        public void update(byte[] data, RemoteBucketState newState) {
+            long nowMillis = System.currentTimeMillis();
+            long refillMillis = TimeUnit.NANOSECONDS.toMillis(
+                newState.calculateFullRefillingTime(TimeUnit.MILLISECONDS.toNanos(nowMillis)));
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_STATE)) {
+                update.setBytes(1, data);
+                update.setTimestamp(2, new Timestamp(nowMillis + refillMillis));
+                update.setString(3, key);
+                update.executeUpdate();
+            } catch (SQLException e) {
+                throw failure("update", e);
+            }
+        }
+
+        @Override
+        public void commit() {
+            try {
+                connection.commit();
+                afterWrite();
+            } catch (SQLException e) {
+                throw failure("commit", e);
+            }
+        }
+
+        @Override
+        public void rollback() {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                throw failure("rollback", e);
+            }
+        }
+
+        @Override
+        public void release() {
+            if (connection != null) {
+                try {
+                    connection.setAutoCommit(true);
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.warn("Could not release rate limit connection: {}", e.getMessage());
+                }
+            }
+        }
+
+        private IllegalStateException failure(String step, SQLException e) {
+            return new IllegalStateException("Rate limit store " + step + " failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+}
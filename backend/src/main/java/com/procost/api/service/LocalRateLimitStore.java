@@ -0,0 +1,122 @@
+package com.procost.api.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Buckets held in this JVM. Buckets not used for the idle time are dropped (a dropped bucket
+ * would have refilled anyway), and the number of buckets never exceeds maxEntries: when full,
+ * the least recently used tenth is evicted, so scanners cycling through addresses cannot grow the heap.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalRateLimitStore.class);
+
+    private final ConcurrentHashMap<String, Entry> buckets = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long idleNanos;
+    private final int sweepInterval;
+
+    private final AtomicInteger createdSinceSweep = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+
+    public LocalRateLimitStore(int maxEntries, Duration idleTimeout, int sweepInterval) {
+        this.maxEntries = maxEntries;
+        this.idleNanos = idleTimeout.toNanos();
+        this.sweepInterval = sweepInterval;
+    }
+
+    @Override
+    public Bucket getBucket(String key, Supplier<BucketConfiguration> configuration) {
+        long now = System.nanoTime();
+        Entry entry = buckets.get(key);
+        if (entry == null) {
+            if (buckets.size() >= maxEntries || createdSinceSweep.get() >= sweepInterval) {
+                sweep(now);
+            }
+            entry = buckets.computeIfAbsent(key, k -> {
+                created.incrementAndGet();
+                createdSinceSweep.incrementAndGet();
+                return new Entry(newBucket(configuration.get()), now);
+            });
+        }
+        entry.lastUsed = now;
+        return entry.bucket;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", "local");
+        stats.put("buckets", buckets.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("idleTimeoutSeconds", Duration.ofNanos(idleNanos).getSeconds());
+        stats.put("created", created.get());
+        stats.put("idleEvictions", idleEvictions.get());
+        stats.put("capacityEvictions", capacityEvictions.get());
+        return stats;
+    }
+
+    /**
+     * Drop idle buckets; if the store is still full, drop the least recently used tenth
+     */
+    private synchronized void sweep(long now) {
+        if (buckets.size() < maxEntries && createdSinceSweep.get() < sweepInterval) {
+            // Another thread swept while this one waited
+            return;
+        }
+        createdSinceSweep.set(0);
+
+        int before = buckets.size();
+        buckets.values().removeIf(entry -> now - entry.lastUsed > idleNanos);
+        idleEvictions.addAndGet(before - buckets.size());
+
+        if (buckets.size() >= maxEntries) {
+            // Sort on a copy of the access times, which keep changing while the store is in use
+            List<Object[]> entries = new ArrayList<>(buckets.size());
+            buckets.forEach((key, entry) -> entries.add(new Object[] {key, entry, entry.lastUsed}));
+            entries.sort(Comparator.comparingLong(e -> (Long) e[2]));
+            int excess = buckets.size() - maxEntries + Math.max(1, maxEntries / 10);
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                buckets.remove((String) entries.get(i)[0], (Entry) entries.get(i)[1]);
+            }
+            capacityEvictions.addAndGet(excess);
+            logger.warn("Rate limit store full ({} buckets), evicted the {} least recently used", maxEntries, excess);
+        }
+    }
+
+    private static Bucket newBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    private static final class Entry {
+        private final Bucket bucket;
+        private volatile long lastUsed;
+
+        private Entry(Bucket bucket, long lastUsed) {
+            this.bucket = bucket;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
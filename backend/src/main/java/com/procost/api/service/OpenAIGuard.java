@@ -0,0 +1,140 @@
+package com.procost.api.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker and bulkhead around the OpenAI API.
+ * The breaker opens on a high failure or slow-call rate and probes again after a wait;
+ * the bulkhead caps concurrent in-flight calls so an outage cannot tie up every worker.
+ */
+@Component
+public class OpenAIGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAIGuard.class);
+
+    @Value("${ai.circuit.failure.rate.threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${ai.circuit.slow.call.duration.ms:10000}")
+    private long slowCallDurationMs;
+
+    @Value("${ai.circuit.slow.call.rate.threshold:80}")
+    private float slowCallRateThreshold;
+
+    @Value("${ai.circuit.window.size:20}")
+    private int windowSize;
+
+    @Value("${ai.circuit.minimum.calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.circuit.open.wait.seconds:30}")
+    private long openWaitSeconds;
+
+    @Value("${ai.circuit.half.open.calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${ai.bulkhead.max.concurrent:8}")
+    private int maxConcurrentCalls;
+
+    @Value("${ai.bulkhead.max.wait.ms:0}")
+    private long maxWaitMs;
+
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = CircuitBreaker.of("openai", CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .waitDurationInOpenState(Duration.ofSeconds(openWaitSeconds))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(this::isOutage)
+                .build());
+
+        bulkhead = Bulkhead.of("openai", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMs))
+                .build());
+
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("OpenAI circuit breaker {}", event.getStateTransition()));
+    }
+
+    /**
+     * Guard a single attempt with the circuit breaker
+     */
+    public <T> Mono<T> withCircuitBreaker(Mono<T> attempt) {
+        return attempt.transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Guard a whole call, including its retries, with the bulkhead
+     */
+    public <T> Mono<T> withBulkhead(Mono<T> call) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead));
+    }
+
+    /**
+     * Whether OpenAI calls are currently being rejected, so callers can use pattern results straight away
+     */
+    public boolean isOpen() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    public Map<String, Object> getStats() {
+        CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+
+        Map<String, Object> breaker = new HashMap<>();
+        breaker.put("state", circuitBreaker.getState().name());
+        breaker.put("failureRate", metrics.getFailureRate());
+        breaker.put("slowCallRate", metrics.getSlowCallRate());
+        breaker.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+        breaker.put("failedCalls", metrics.getNumberOfFailedCalls());
+        breaker.put("slowCalls", metrics.getNumberOfSlowCalls());
+        breaker.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+
+        Map<String, Object> bulkheadStats = new HashMap<>();
+        bulkheadStats.put("maxConcurrentCalls", maxConcurrentCalls);
+        bulkheadStats.put("availableConcurrentCalls", bulkhead.getMetrics().getAvailableConcurrentCalls());
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("circuitBreaker", breaker);
+        stats.put("bulkhead", bulkheadStats);
+        return stats;
+    }
+
+    /**
+     * Client errors other than rate limiting are request problems, not an OpenAI outage
+     */
+    private boolean isOutage(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            HttpStatus status = ((WebClientResponseException) error).getStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS || status.is5xxServerError();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,323 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procost.api.dto.CalculateChargesRequest;
+import com.procost.api.dto.PricingSimulationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * What-if pricing over every filleting x packaging combination. Rates are read from the columnar
+ * {@link RateGrid} of the current snapshot; each block of combinations is evaluated in a tight loop
+ * over primitive arrays on the fork-join pool, and blocks are written out in order as they complete,
+ * so only a bounded window of results is ever in memory.
+ *
+ * Costs for a combination at yield Y% and finished weight W kg:
+ * filleting is charged per kg of raw material (W * 100 / Y), packaging and the per-kg charges on W.
+ */
+@Service
+public class PricingSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingSimulator.class);
+
+    private static final String[] COLUMNS = {
+        "product", "trimType", "rmSpec", "prodType", "packType", "transportMode",
+        "filingRate", "packagingRate", "chargesPerKg", "costPerKg", "totalCost"
+    };
+
+    @Autowired
+    private DataLoaderService dataLoaderService;
+
+    @Autowired
+    private FactoryRateEngine factoryRateEngine;
+
+    @Autowired
+    private CalculatorService calculatorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${pricing.simulation.max.combinations:5000000}")
+    private long maxCombinations;
+
+    // Combinations evaluated per fork-join task
+    @Value("${pricing.simulation.block.combinations:16384}")
+    private int blockCombinations;
+
+    /**
+     * Select the rows a query covers from the current rate snapshot
+     * @throws IllegalArgumentException if the query is invalid or covers more than the allowed combinations
+     */
+    public Simulation prepare(PricingSimulationRequest request) {
+        if (request.getWeight() == null || request.getWeight() <= 0) {
+            throw new IllegalArgumentException("weight must be a positive number");
+        }
+        if (request.getYieldValue() == null || request.getYieldValue() <= 0 || request.getYieldValue() > 100) {
+            throw new IllegalArgumentException("yieldValue must be a percentage above 0 and at most 100");
+        }
+
+        FactoryRateSnapshot factory = request.getFactoryId() != null
+            ? factoryRateEngine.snapshot(request.getFactoryId()) : null;
+        RateSnapshot standard = factory == null ? dataLoaderService.getSnapshot() : null;
+        RateGrid grid = factory != null ? factory.getGrid() : standard.getGrid();
+        long version = factory != null ? factory.getVersion() : standard.getVersion();
+
+        Simulation simulation = new Simulation(request, grid, factory, version);
+        if (simulation.combinations > maxCombinations) {
+            throw new IllegalArgumentException("Query covers " + simulation.combinations
+                + " combinations, more than the limit of " + maxCombinations + "; narrow it with filters");
+        }
+        return simulation;
+    }
+
+    /**
+     * The selected slice of the grid, ready to be evaluated and streamed as CSV or JSON
+     */
+    public final class Simulation {
+
+        private final PricingSimulationRequest request;
+        private final RateGrid grid;
+        private final long rateVersion;
+        private final double weight;
+        private final double rawWeight;
+
+        // Selected filleting rows, and for each the range of matching selected packaging rows
+        private final int[] filingRows;
+        private final int[] packFrom;
+        private final int[] packTo;
+        // Selected packaging rows with their charges and packaging + charges per kg
+        private final int[] packRows;
+        private final double[] chargesPerKg;
+        private final double[] packPerKg;
+        // Block b covers selected filleting rows blockStart[b] until blockStart[b + 1]
+        private final int[] blockStart;
+        private final long combinations;
+
+        private Simulation(PricingSimulationRequest request, RateGrid grid, FactoryRateSnapshot factory, long rateVersion) {
+            this.request = request;
+            this.grid = grid;
+            this.rateVersion = rateVersion;
+            this.weight = request.getWeight();
+            this.rawWeight = weight * 100 / request.getYieldValue();
+
+            CalculateChargesRequest.OptionsDto options = new CalculateChargesRequest.OptionsDto();
+            options.setProdaB(request.isProdaB());
+            options.setEncoding(request.isEncoding());
+
+            int[] selectedPacks = new int[grid.packagingRate.length];
+            double[] charges = new double[grid.packagingRate.length];
+            double[] perKg = new double[grid.packagingRate.length];
+            int[] selectedFiling = new int[grid.filingRate.length];
+            int[] from = new int[grid.filingRate.length];
+            int[] to = new int[grid.filingRate.length];
+            int packs = 0, filings = 0;
+            long total = 0;
+
+            for (int g = 0; g < grid.getGroupCount(); g++) {
+                int groupFrom = packs;
+                for (int p = grid.packStart[g]; p < grid.packStart[g + 1]; p++) {
+                    if (matches(request.getProdType(), grid.prodType[p])
+                            && matches(request.getPackType(), grid.packType[p])
+                            && matches(request.getTransportMode(), grid.transportMode[p])) {
+                        selectedPacks[packs] = p;
+                        charges[packs] = calculatorService.chargesPerKg(factory, grid.prodType[p], grid.packProduct[p], options);
+                        perKg[packs] = grid.packagingRate[p] + charges[packs];
+                        packs++;
+                    }
+                }
+                if (packs == groupFrom) {
+                    continue;
+                }
+                for (int f = grid.filingStart[g]; f < grid.filingStart[g + 1]; f++) {
+                    if (matches(request.getProduct(), grid.product[f])
+                            && matches(request.getTrimType(), grid.trimType[f])
+                            && matches(request.getRmSpec(), grid.rmSpec[f])) {
+                        selectedFiling[filings] = f;
+                        from[filings] = groupFrom;
+                        to[filings] = packs;
+                        filings++;
+                        total += packs - groupFrom;
+                    }
+                }
+            }
+
+            this.packRows = Arrays.copyOf(selectedPacks, packs);
+            this.chargesPerKg = Arrays.copyOf(charges, packs);
+            this.packPerKg = Arrays.copyOf(perKg, packs);
+            this.filingRows = Arrays.copyOf(selectedFiling, filings);
+            this.packFrom = Arrays.copyOf(from, filings);
+            this.packTo = Arrays.copyOf(to, filings);
+            this.combinations = total;
+
+            List<Integer> starts = new ArrayList<>();
+            long inBlock = 0;
+            for (int k = 0; k < filings; k++) {
+                if (k == 0 || inBlock >= blockCombinations) {
+                    starts.add(k);
+                    inBlock = 0;
+                }
+                inBlock += packTo[k] - packFrom[k];
+            }
+            starts.add(filings);
+            this.blockStart = starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        public long getCombinations() {
+            return combinations;
+        }
+
+        public long getRateVersion() {
+            return rateVersion;
+        }
+
+        public void writeCsv(OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+            run((k, j, totalCost) -> {
+                int f = filingRows[k];
+                int p = packRows[j];
+                writer.write(csv(grid.product[f]) + ',' + csv(grid.trimType[f]) + ',' + csv(grid.rmSpec[f]) + ','
+                    + csv(grid.prodType[p]) + ',' + csv(grid.packType[p]) + ',' + csv(grid.transportMode[p]) + ','
+                    + grid.filingRate[f] + ',' + grid.packagingRate[p] + ',' + chargesPerKg[j] + ','
+                    + totalCost / weight + ',' + totalCost + '\n');
+            });
+            writer.flush();
+        }
+
+        public void writeJson(OutputStream out) throws IOException {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            json.writeStartObject();
+            json.writeNumberField("rateVersion", rateVersion);
+            if (request.getFactoryId() != null) {
+                json.writeNumberField("factoryId", request.getFactoryId());
+            }
+            json.writeNumberField("yieldValue", request.getYieldValue());
+            json.writeNumberField("weight", weight);
+            json.writeNumberField("combinationCount", combinations);
+            json.writeArrayFieldStart("combinations");
+            Summary summary = run((k, j, totalCost) -> {
+                int f = filingRows[k];
+                int p = packRows[j];
+                json.writeStartObject();
+                json.writeStringField(COLUMNS[0], grid.product[f]);
+                json.writeStringField(COLUMNS[1], grid.trimType[f]);
+                json.writeStringField(COLUMNS[2], grid.rmSpec[f]);
+                json.writeStringField(COLUMNS[3], grid.prodType[p]);
+                json.writeStringField(COLUMNS[4], grid.packType[p]);
+                json.writeStringField(COLUMNS[5], grid.transportMode[p]);
+                json.writeNumberField(COLUMNS[6], grid.filingRate[f]);
+                json.writeNumberField(COLUMNS[7], grid.packagingRate[p]);
+                json.writeNumberField(COLUMNS[8], chargesPerKg[j]);
+                json.writeNumberField(COLUMNS[9], totalCost / weight);
+                json.writeNumberField(COLUMNS[10], totalCost);
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+            if (summary.count > 0) {
+                json.writeNumberField("minTotalCost", summary.min);
+                json.writeNumberField("maxTotalCost", summary.max);
+            }
+            json.writeEndObject();
+            json.flush();
+        }
+
+        /**
+         * Evaluate blocks a window at a time on the fork-join pool and hand the results to the
+         * writer in input order
+         */
+        private Summary run(RowWriter writer) throws IOException {
+            long startTime = System.currentTimeMillis();
+            Summary summary = new Summary();
+            int blocks = blockStart.length - 1;
+            int window = Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+            for (int first = 0; first < blocks; first += window) {
+                double[][] totals = IntStream.range(first, Math.min(blocks, first + window))
+                    .parallel()
+                    .mapToObj(this::evaluate)
+                    .toArray(double[][]::new);
+
+                for (int b = 0; b < totals.length; b++) {
+                    int o = 0;
+                    for (int k = blockStart[first + b]; k < blockStart[first + b + 1]; k++) {
+                        for (int j = packFrom[k]; j < packTo[k]; j++) {
+                            double totalCost = totals[b][o++];
+                            summary.add(totalCost);
+                            writer.write(k, j, totalCost);
+                        }
+                    }
+                }
+            }
+            logger.debug("Simulated {} combinations in {}ms", summary.count, System.currentTimeMillis() - startTime);
+            return summary;
+        }
+
+        private double[] evaluate(int block) {
+            int size = 0;
+            for (int k = blockStart[block]; k < blockStart[block + 1]; k++) {
+                size += packTo[k] - packFrom[k];
+            }
+            double[] totals = new double[size];
+            int o = 0;
+            for (int k = blockStart[block]; k < blockStart[block + 1]; k++) {
+                double filleting = grid.filingRate[filingRows[k]] * rawWeight;
+                int from = packFrom[k];
+                int count = packTo[k] - from;
+                // Straight-line loop over primitive arrays so the JIT can vectorize it
+                for (int j = 0; j < count; j++) {
+                    totals[o + j] = filleting + packPerKg[from + j] * weight;
+                }
+                o += count;
+            }
+            return totals;
+        }
+    }
+
+    private interface RowWriter {
+        void write(int filing, int pack, double totalCost) throws IOException;
+    }
+
+    private static final class Summary {
+        long count;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+
+        void add(double totalCost) {
+            count++;
+            min = Math.min(min, totalCost);
+            max = Math.max(max, totalCost);
+        }
+    }
+
+    private static boolean matches(String filter, String value) {
+        return filter == null || filter.isEmpty() || filter.equalsIgnoreCase(value);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,350 @@
+package com.procost.api.service;
+
+import com.procost.api.service.EmailPatternEngine.KeywordGroup;
+import com.procost.api.service.EmailPatternEngine.KeywordListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer for product requirement lines.
+ * Walks an email body once, feeding the keyword automaton and recognising quantities
+ * and SKU references in place, and hands each trimmed line with its typed tokens to a
+ * handler. Lines are addressed by offsets into the body, so no per-line strings are built.
+ */
+@Component
+public class ProductLineTokenizer {
+
+    public enum TokenType {
+        QUANTITY, PRODUCT, TRIM, SKU
+    }
+
+    public enum Unit {
+        KG(true), TON(true), POUND(true), LBS(true), PIECE(false);
+
+        private final boolean weight;
+
+        Unit(boolean weight) {
+            this.weight = weight;
+        }
+
+        public boolean isWeight() {
+            return weight;
+        }
+    }
+
+    @Autowired
+    private EmailPatternEngine patternEngine;
+
+    /**
+     * Receives each line of the body once it has been tokenized. The line object is
+     * reused for the next line, so handlers must copy out anything they keep.
+     */
+    public interface LineHandler {
+        void onLine(TokenizedLine line);
+    }
+
+    /**
+     * Tokenize every line of the text in order
+     */
+    public void tokenize(CharSequence text, LineHandler handler) {
+        TokenizedLine line = new TokenizedLine(text);
+        int length = text.length();
+        int lineStart = 0;
+
+        while (lineStart <= length) {
+            line.reset(lineStart);
+            int state = 0;
+            int position = lineStart;
+
+            for (; position < length; position++) {
+                char ch = text.charAt(position);
+                if (ch == '\n') {
+                    break;
+                }
+                if (ch > ' ') {
+                    line.extend(position);
+                }
+                if (isDigit(ch) && (position == lineStart || !isDigit(text.charAt(position - 1)))) {
+                    readQuantity(text, position, line);
+                }
+                state = patternEngine.step(state, ch, position, line);
+            }
+
+            handler.onLine(line);
+            lineStart = position + 1;
+        }
+    }
+
+    /**
+     * Recognise a number followed by a unit, e.g. "500kg", "2.5 tons" or "40 pieces"
+     */
+    private static void readQuantity(CharSequence text, int start, TokenizedLine line) {
+        int length = text.length();
+        int i = start;
+        double value = 0;
+
+        while (i < length && isDigit(text.charAt(i))) {
+            value = value * 10 + (text.charAt(i++) - '0');
+        }
+        if (i + 1 < length && text.charAt(i) == '.' && isDigit(text.charAt(i + 1))) {
+            i++;
+            double scale = 1;
+            while (i < length && isDigit(text.charAt(i))) {
+                scale /= 10;
+                value += (text.charAt(i++) - '0') * scale;
+            }
+        }
+        while (i < length && isInlineSpace(text.charAt(i))) {
+            i++;
+        }
+
+        Unit unit;
+        int end;
+        if (regionMatches(text, i, "kg")) {
+            unit = Unit.KG;
+            end = i + 2;
+        } else if (regionMatches(text, i, "tons")) {
+            unit = Unit.TON;
+            end = i + 4;
+        } else if (regionMatches(text, i, "ton")) {
+            unit = Unit.TON;
+            end = i + 3;
+        } else if (regionMatches(text, i, "pound")) {
+            unit = Unit.POUND;
+            end = i + 5;
+        } else if (regionMatches(text, i, "lbs")) {
+            unit = Unit.LBS;
+            end = i + 3;
+        } else if (regionMatches(text, i, "pieces")) {
+            unit = Unit.PIECE;
+            end = i + 6;
+        } else if (regionMatches(text, i, "piece")) {
+            unit = Unit.PIECE;
+            end = i + 5;
+        } else {
+            return;
+        }
+
+        line.add(new Token(TokenType.QUANTITY, start, end, null, value, unit));
+    }
+
+    /**
+     * Complete an SKU marker ("sku", "item", "code", "ref") with the reference after it
+     */
+    private static void readSkuReference(CharSequence text, int markerStart, int markerEnd, TokenizedLine line) {
+        int length = text.length();
+        int i = markerEnd;
+        while (i < length && isSkuSeparator(text.charAt(i))) {
+            i++;
+        }
+        if (i == markerEnd) {
+            return;
+        }
+
+        int valueStart = i;
+        while (i < length && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        if (i > valueStart) {
+            line.add(new Token(TokenType.SKU, markerStart, i, null, 0, null, valueStart, i));
+        }
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, String lowerCaseWord) {
+        if (offset + lowerCaseWord.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseWord.length(); i++) {
+            char ch = text.charAt(offset + i);
+            if (ch >= 'A' && ch <= 'Z') {
+                ch = (char) (ch + 32);
+            }
+            if (ch != lowerCaseWord.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isWordChar(char ch) {
+        return isDigit(ch) || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_';
+    }
+
+    private static boolean isInlineSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\r' || ch == '\f' || ch == '\u000B';
+    }
+
+    private static boolean isSkuSeparator(char ch) {
+        return ch == ':' || ch == '#' || isInlineSpace(ch);
+    }
+
+    /**
+     * A typed token with offsets into the tokenized text (start inclusive, end exclusive)
+     */
+    public static final class Token {
+        private final TokenType type;
+        private final int start;
+        private final int end;
+        private final String label;
+        private final double value;
+        private final Unit unit;
+        private final int valueStart;
+        private final int valueEnd;
+
+        private Token(TokenType type, int start, int end, String label, double value, Unit unit) {
+            this(type, start, end, label, value, unit, start, end);
+        }
+
+        private Token(TokenType type, int start, int end, String label, double value, Unit unit,
+                      int valueStart, int valueEnd) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.label = label;
+            this.value = value;
+            this.unit = unit;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+        }
+
+        public TokenType getType() { return type; }
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public String getLabel() { return label; }
+        public double getValue() { return value; }
+        public Unit getUnit() { return unit; }
+        public int getValueStart() { return valueStart; }
+        public int getValueEnd() { return valueEnd; }
+    }
+
+    /**
+     * One trimmed line of the text and the tokens found on it
+     */
+    public static final class TokenizedLine implements KeywordListener {
+        private final CharSequence text;
+        private final List<Token> tokens = new ArrayList<>();
+        private int start;
+        private int end;
+
+        private TokenizedLine(CharSequence text) {
+            this.text = text;
+        }
+
+        private void reset(int lineStart) {
+            tokens.clear();
+            start = -1;
+            end = lineStart;
+        }
+
+        private void extend(int position) {
+            if (start < 0) {
+                start = position;
+            }
+            end = position + 1;
+        }
+
+        private void add(Token token) {
+            tokens.add(token);
+        }
+
+        @Override
+        public void onKeyword(KeywordGroup group, String label, int keywordStart, int keywordEnd) {
+            switch (group) {
+                case PRODUCT:
+                    tokens.add(new Token(TokenType.PRODUCT, keywordStart, keywordEnd, label, 0, null));
+                    break;
+                case TRIM:
+                    tokens.add(new Token(TokenType.TRIM, keywordStart, keywordEnd, label, 0, null));
+                    break;
+                case SKU_MARKER:
+                    readSkuReference(text, keywordStart, keywordEnd, this);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Length of the line without leading and trailing whitespace
+         */
+        public int length() {
+            return start < 0 ? 0 : end - start;
+        }
+
+        public List<Token> getTokens() {
+            return tokens;
+        }
+
+        /**
+         * Whether the line names a product, carries a quantity or is a list entry
+         */
+        public boolean hasProductMention() {
+            if (first(TokenType.PRODUCT) != null || first(TokenType.QUANTITY) != null) {
+                return true;
+            }
+            char lead = start < 0 ? 0 : text.charAt(start);
+            return lead == '-' || lead == '•' || lead == '*';
+        }
+
+        /**
+         * Earliest token of a type on the line (the longer token wins ties), or null
+         */
+        public Token first(TokenType type) {
+            Token best = null;
+            for (Token token : tokens) {
+                if (token.type != type) {
+                    continue;
+                }
+                if (best == null || token.start < best.start
+                        || (token.start == best.start && token.end > best.end)) {
+                    best = token;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * First quantity given in a weight unit, or null
+         */
+        public Double weightQuantity() {
+            Token best = null;
+            for (Token token : tokens) {
+                if (token.type == TokenType.QUANTITY && token.unit.isWeight()
+                        && (best == null || token.start < best.start)) {
+                    best = token;
+                }
+            }
+            return best != null ? best.value : null;
+        }
+
+        /**
+         * Label of the earliest keyword token of a type, or null
+         */
+        public String label(TokenType type) {
+            Token token = first(type);
+            return token != null ? token.label : null;
+        }
+
+        /**
+         * Customer SKU reference on the line, or null
+         */
+        public String skuReference() {
+            Token token = first(TokenType.SKU);
+            return token != null ? text.subSequence(token.valueStart, token.valueEnd).toString() : null;
+        }
+
+        /**
+         * The trimmed line as a string
+         */
+        public String text() {
+            return start < 0 ? "" : text.subSequence(start, end).toString();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procost.api.repository.FactoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a factory's rate rows to a response as CSV or NDJSON, optionally gzipped. Rows are
+ * read from a scrolling JPA query as plain column values, so no entities pile up in the
+ * persistence context and memory use does not grow with the size of the table. CSV exports use
+ * the column names the importer accepts, so an export can be edited and uploaded again.
+ */
+@Service
+public class RateExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateExportService.class);
+
+    private static final int FETCH_SIZE = 500;
+    // Rows between flushes, so clients see progress on large exports
+    private static final int FLUSH_ROWS = 1000;
+
+    public enum Table {
+        RATE_TABLES("rate-tables", "RateTable",
+            new String[] {"product", "trimType", "rmSpec", "ratePerKg"},
+            new String[] {"product", "trim_type", "rm_spec", "rate_per_kg"}),
+        PACKAGING_RATES("packaging-rates", "PackagingRate",
+            new String[] {"prodType", "product", "boxQty", "pack", "transportMode", "packagingRate"},
+            new String[] {"prod_type", "product", "box_qty", "pack", "transport_mode", "packaging_rate"}),
+        CHARGE_RATES("charge-rates", "ChargeRate",
+            new String[] {"chargeName", "productType", "product", "subtype", "rateValue"},
+            new String[] {"charge_name", "product_type", "product", "subtype", "rate_value"});
+
+        private final String fileName;
+        private final String entityName;
+        private final String[] fields;
+        private final String[] csvColumns;
+
+        Table(String fileName, String entityName, String[] fields, String[] csvColumns) {
+            this.fileName = fileName;
+            this.entityName = entityName;
+            this.fields = fields;
+            this.csvColumns = csvColumns;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        private String query() {
+            return "SELECT r.id, r." + String.join(", r.", fields) + " FROM " + entityName
+                + " r WHERE r.factory.id = :factoryId ORDER BY r.id";
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private FactoryRepository factoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @throws EntityNotFoundException if the factory does not exist; checked before the response starts
+     */
+    public void checkFactory(Long factoryId) {
+        if (!factoryRepository.existsById(factoryId)) {
+            throw new EntityNotFoundException("Factory not found with id: " + factoryId);
+        }
+    }
+
+    /**
+     * Write every row of one table for a factory, in id order
+     * @return the number of rows written
+     */
+    public long export(Long factoryId, Table table, RateRowReader.Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024, true) : out;
+        Long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> stream = entityManager.createQuery(table.query(), Object[].class)
+                        .setParameter("factoryId", factoryId)
+                        .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                        .setHint("org.hibernate.readOnly", true)
+                        .getResultStream()) {
+                    return format == RateRowReader.Format.CSV
+                        ? writeCsv(table, stream.iterator(), target)
+                        : writeNdjson(table, stream.iterator(), target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+        target.flush();
+        logger.info("📤 Exported {} {} rows for factory {} as {} in {} ms", rows, table.fileName, factoryId,
+                   format, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private long writeCsv(Table table, Iterator<Object[]> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("id,");
+        writer.write(String.join(",", table.csvColumns));
+        writer.write('\n');
+        writer.flush();
+
+        long count = 0;
+        StringBuilder line = new StringBuilder(128);
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            line.setLength(0);
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(csv(row[i]));
+            }
+            writer.append(line).append('\n');
+            if (++count % FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Table table, Iterator<Object[]> rows, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // One object per line with nothing around them
+        json.setRootValueSeparator(null);
+
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            json.writeStartObject();
+            json.writeObjectField("id", row[0]);
+            for (int i = 0; i < table.fields.length; i++) {
+                json.writeObjectField(table.fields[i], row[i + 1]);
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+            if (++count % FLUSH_ROWS == 0 || count == 1) {
+                json.flush();
+            }
+        }
+        json.flush();
+        return count;
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
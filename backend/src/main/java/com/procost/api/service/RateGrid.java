@@ -0,0 +1,114 @@
+package com.procost.api.service;
+
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Column-oriented copy of the rate tables for evaluating every combination at once. Filleting and
+ * packaging rows are grouped by product (the join key between the two tables) and stored as
+ * parallel arrays, with rates in primitive doubles. Duplicate keys keep the first row, as in {@link RateIndex}.
+ */
+public final class RateGrid {
+
+    private static final RateGrid EMPTY = new RateGrid(new ArrayList<>(), new ArrayList<>());
+
+    // Filleting rows; group g owns rows filingStart[g] until filingStart[g + 1]
+    final String[] product;
+    final String[] trimType;
+    final String[] rmSpec;
+    final double[] filingRate;
+    final int[] filingStart;
+
+    // Packaging rows; group g owns rows packStart[g] until packStart[g + 1]
+    final String[] prodType;
+    final String[] packProduct;
+    final String[] packType;
+    final String[] transportMode;
+    final double[] packagingRate;
+    final int[] packStart;
+
+    public RateGrid(List<RateTable> rateTable, List<PackagingRate> packagingTable) {
+        Map<String, List<RateTable>> filingGroups = new LinkedHashMap<>();
+        Set<String> seenFiling = new HashSet<>();
+        for (RateTable rate : rateTable) {
+            if (seenFiling.add(key(rate.getProduct(), rate.getTrimType(), rate.getRmSpec()))) {
+                filingGroups.computeIfAbsent(key(rate.getProduct()), k -> new ArrayList<>()).add(rate);
+            }
+        }
+        Map<String, List<PackagingRate>> packGroups = new LinkedHashMap<>();
+        Set<String> seenPacking = new HashSet<>();
+        for (PackagingRate rate : packagingTable) {
+            if (filingGroups.containsKey(key(rate.getProduct()))
+                    && seenPacking.add(key(rate.getProdType(), rate.getProduct(), rate.getPack(), rate.getTransportMode()))) {
+                packGroups.computeIfAbsent(key(rate.getProduct()), k -> new ArrayList<>()).add(rate);
+            }
+        }
+
+        int filingRows = filingGroups.values().stream().mapToInt(List::size).sum();
+        int packRows = packGroups.values().stream().mapToInt(List::size).sum();
+        product = new String[filingRows];
+        trimType = new String[filingRows];
+        rmSpec = new String[filingRows];
+        filingRate = new double[filingRows];
+        filingStart = new int[filingGroups.size() + 1];
+        prodType = new String[packRows];
+        packProduct = new String[packRows];
+        packType = new String[packRows];
+        transportMode = new String[packRows];
+        packagingRate = new double[packRows];
+        packStart = new int[filingGroups.size() + 1];
+
+        int group = 0, f = 0, p = 0;
+        for (Map.Entry<String, List<RateTable>> entry : filingGroups.entrySet()) {
+            filingStart[group] = f;
+            packStart[group] = p;
+            for (RateTable rate : entry.getValue()) {
+                product[f] = rate.getProduct();
+                trimType[f] = rate.getTrimType();
+                rmSpec[f] = rate.getRmSpec();
+                filingRate[f++] = rate.getRatePerKg();
+            }
+            for (PackagingRate rate : packGroups.getOrDefault(entry.getKey(), new ArrayList<>())) {
+                prodType[p] = rate.getProdType();
+                packProduct[p] = rate.getProduct();
+                packType[p] = rate.getPack();
+                transportMode[p] = rate.getTransportMode();
+                packagingRate[p++] = rate.getPackagingRate();
+            }
+            group++;
+        }
+        filingStart[group] = f;
+        packStart[group] = p;
+    }
+
+    public static RateGrid empty() {
+        return EMPTY;
+    }
+
+    public int getGroupCount() {
+        return filingStart.length - 1;
+    }
+
+    /**
+     * Number of filleting x packaging combinations, before any filtering
+     */
+    public long getCombinationCount() {
+        long combinations = 0;
+        for (int g = 0; g < getGroupCount(); g++) {
+            combinations += (long) (filingStart[g + 1] - filingStart[g]) * (packStart[g + 1] - packStart[g]);
+        }
+        return combinations;
+    }
+
+    private static String key(String... parts) {
+        return String.join("|", parts).toLowerCase(Locale.ROOT);
+    }
+}
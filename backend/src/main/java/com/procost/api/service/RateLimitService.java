@@ -1,67 +1,244 @@
 package com.procost.api.service;
 
 import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
+import javax.annotation.PostConstruct;
 import java.time.Duration;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Service to provide different rate limits based on user role, endpoint, etc.
+ * Rate limit policies by role and route. Every request falls in one route group with its own
+ * bucket per client, so cheap lookups cannot use up the quota for pricing or webhooks, and costs
+ * what its route rule says, so a batch or an AI-processed email takes more tokens than a dropdown.
+ * Capacities scale from the per-role capacity; routes are resolved once per controller mapping
+ * pattern, leaving a map lookup and an array index per request.
  */
 @Service
 public class RateLimitService {
 
-    // Different rate limits based on user roles
-    private static final int ANONYMOUS_CAPACITY = 20;
-    private static final int USER_CAPACITY = 40;
-    private static final int ADMIN_CAPACITY = 100;
-    
-    // Default refill rate: once per minute
-    private static final Duration REFILL_DURATION = Duration.ofMinutes(1);
-    
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+    public enum Role { ANONYMOUS, USER, ADMIN }
+
     /**
-     * Create a rate limiter for the current user based on their role
+     * Route groups, with their capacity relative to the role capacity
+     * (override with rate.limit.group.&lt;name&gt;.scale and .refill.minutes)
      */
-    public Bucket createRateLimiterForCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        
-        // Default to anonymous rate limit
-        int capacity = ANONYMOUS_CAPACITY;
-        
-        if (auth != null && auth.isAuthenticated()) {
-            Collection<? extends GrantedAuthority> authorities = auth.getAuthorities();
-            
-            // Check roles and adjust rate limits
-            if (authorities.contains(new SimpleGrantedAuthority("ROLE_ADMIN"))) {
-                capacity = ADMIN_CAPACITY;
-            } else if (authorities.contains(new SimpleGrantedAuthority("ROLE_USER"))) {
-                capacity = USER_CAPACITY;
+    public enum Group {
+        DEFAULT(1.0),
+        LOOKUP(4.0),
+        PRICING(1.0),
+        WEBHOOK(5.0),
+        BULK(0.25);
+
+        private final double scale;
+
+        Group(double scale) {
+            this.scale = scale;
+        }
+    }
+
+    // Ordered; the first rule whose pattern matches the controller mapping pattern applies
+    private static final List<Rule> RULES = Arrays.asList(
+        new Rule("/inquiries/calculateBatch", Group.PRICING, 10),
+        new Rule("/inquiries/simulate", Group.PRICING, 10),
+        new Rule("/inquiries/calculate*", Group.PRICING, 1),
+        new Rule("/inquiries/**", Group.LOOKUP, 1),
+        new Rule("/webhooks/zapier/email-received", Group.WEBHOOK, 5),
+        new Rule("/webhooks/zapier/send-quote/**", Group.WEBHOOK, 2),
+        new Rule("/webhooks/**", Group.WEBHOOK, 1),
+        new Rule("/api/factories/*/*/import", Group.BULK, 5),
+        new Rule("/api/factories/*/*/export", Group.BULK, 2),
+        new Rule("/api/emails/backfill", Group.BULK, 5),
+        new Rule("/**", Group.DEFAULT, 1)
+    );
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${rate.limit.capacity.anonymous:20}")
+    private int anonymousCapacity;
+
+    @Value("${rate.limit.capacity.user:40}")
+    private int userCapacity;
+
+    @Value("${rate.limit.capacity.admin:100}")
+    private int adminCapacity;
+
+    @Value("${rate.limit.refill.duration.minutes:1}")
+    private int refillDurationMinutes;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    // Policies of each rule by role, in rule order
+    private Policy[][] rulePolicies;
+
+    // Controller mapping pattern to the policies of its rule by role
+    private final Map<String, Policy[]> routes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Map<Role, Integer> roleCapacities = new EnumMap<>(Role.class);
+        roleCapacities.put(Role.ANONYMOUS, anonymousCapacity);
+        roleCapacities.put(Role.USER, userCapacity);
+        roleCapacities.put(Role.ADMIN, adminCapacity);
+
+        Policy[][] policies = new Policy[Group.values().length][Role.values().length];
+        for (Group group : Group.values()) {
+            String prefix = "rate.limit.group." + group.name().toLowerCase() + ".";
+            double scale = environment.getProperty(prefix + "scale", Double.class, group.scale);
+            int refillMinutes = environment.getProperty(prefix + "refill.minutes", Integer.class, refillDurationMinutes);
+            for (Role role : Role.values()) {
+                int capacity = (int) Math.max(1, Math.round(roleCapacities.get(role) * scale));
+                policies[group.ordinal()][role.ordinal()] = new Policy(group, role, capacity, Duration.ofMinutes(refillMinutes), 1);
+            }
+        }
+
+        rulePolicies = new Policy[RULES.size()][];
+        for (int i = 0; i < RULES.size(); i++) {
+            Rule rule = RULES.get(i);
+            rulePolicies[i] = new Policy[Role.values().length];
+            for (Role role : Role.values()) {
+                rulePolicies[i][role.ordinal()] = policies[rule.group.ordinal()][role.ordinal()].withCost(rule.cost);
             }
         }
-        
-        // Create bandwidth limit based on user role
-        Bandwidth limit = Bandwidth.classic(capacity, Refill.intervally(capacity, REFILL_DURATION));
-        
-        // Build and return the bucket
-        return Bucket.builder().addLimit(limit).build();
     }
-    
+
     /**
-     * Create a rate limiter for specific API endpoint with custom rate limit
+     * Resolve the rule of every controller mapping up front
      */
-    public Bucket createRateLimiterForEndpoint(String endpoint, int requestsPerMinute) {
-        Bandwidth limit = Bandwidth.classic(
-            requestsPerMinute, 
-            Refill.intervally(requestsPerMinute, Duration.ofMinutes(1))
-        );
-        
-        return Bucket.builder().addLimit(limit).build();
+    @EventListener(ApplicationReadyEvent.class)
+    public void compileRoutes(ApplicationReadyEvent event) {
+        RequestMappingHandlerMapping handlerMapping = event.getApplicationContext()
+            .getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Group, Integer> counts = new EnumMap<>(Group.class);
+        for (RequestMappingInfo info : handlerMapping.getHandlerMethods().keySet()) {
+            for (String pattern : info.getPatternValues()) {
+                Policy[] policies = routes.computeIfAbsent(pattern, this::match);
+                counts.merge(policies[0].group, 1, Integer::sum);
+            }
+        }
+        logger.info("Compiled rate limit policies for {} routes: {}", routes.size(), counts);
+    }
+
+    /**
+     * @param pattern the controller mapping pattern that matched the request, null if none did
+     */
+    public Policy resolve(String pattern, Role role) {
+        Policy[] policies = pattern != null ? routes.computeIfAbsent(pattern, this::match)
+            : rulePolicies[RULES.size() - 1];
+        return policies[role.ordinal()];
+    }
+
+    public Role roleOf(Authentication auth) {
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return Role.ANONYMOUS;
+        }
+        Role role = Role.ANONYMOUS;
+        for (GrantedAuthority authority : auth.getAuthorities()) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                return Role.ADMIN;
+            }
+            if ("ROLE_USER".equals(authority.getAuthority())) {
+                role = Role.USER;
+            }
+        }
+        return role;
+    }
+
+    private Policy[] match(String pattern) {
+        for (int i = 0; i < RULES.size(); i++) {
+            if (pathMatcher.match(RULES.get(i).pattern, pattern)) {
+                return rulePolicies[i];
+            }
+        }
+        return rulePolicies[RULES.size() - 1];
+    }
+
+    private static final class Rule {
+        private final String pattern;
+        private final Group group;
+        private final int cost;
+
+        private Rule(String pattern, Group group, int cost) {
+            this.pattern = pattern;
+            this.group = group;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Bucket settings for one group and role, and the tokens the matched route costs
+     */
+    public static final class Policy {
+        private final Group group;
+        private final Role role;
+        private final int capacity;
+        private final Duration refillPeriod;
+        private final BucketConfiguration configuration;
+        private final String name;
+        private final int cost;
+
+        private Policy(Group group, Role role, int capacity, Duration refillPeriod, int cost) {
+            this(group, role, capacity, refillPeriod, BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, refillPeriod)))
+                .build(), cost);
+        }
+
+        private Policy(Group group, Role role, int capacity, Duration refillPeriod,
+                       BucketConfiguration configuration, int cost) {
+            this.group = group;
+            this.role = role;
+            this.capacity = capacity;
+            this.refillPeriod = refillPeriod;
+            this.configuration = configuration;
+            this.name = group.name().toLowerCase() + "/" + role.name().toLowerCase();
+            // A cost above the capacity could never be paid
+            this.cost = Math.min(cost, capacity);
+        }
+
+        private Policy withCost(int cost) {
+            return new Policy(group, role, capacity, refillPeriod, configuration, cost);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public Duration getRefillPeriod() {
+            return refillPeriod;
+        }
+
+        public BucketConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        public int getCost() {
+            return cost;
+        }
     }
-} 
\ No newline at end of file
+}
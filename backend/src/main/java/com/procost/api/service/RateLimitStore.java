@@ -0,0 +1,23 @@
+package com.procost.api.service;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Where rate limit buckets live. The local store keeps them in this JVM; the JDBC store keeps
+ * their state in a shared table so every instance of the API draws from the same quota.
+ * Selected with rate.limit.store (local or jdbc).
+ */
+public interface RateLimitStore {
+
+    /**
+     * Bucket for a key, created on first use with the given configuration. Concurrent first
+     * requests for one key always get the same bucket.
+     */
+    Bucket getBucket(String key, Supplier<BucketConfiguration> configuration);
+
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,216 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads rate rows one at a time from a CSV file with a header line, or from NDJSON with one
+ * object per line, so uploads of any size are never held in memory. Columns are matched by name
+ * ignoring case, underscores and spaces, so "trim_type", "Trim Type" and "trimType" are the same column.
+ */
+public class RateRowReader implements Closeable {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Format format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    // Accepted names of each output column, already normalized
+    private final String[][] columns;
+    private final String[] names;
+    private final boolean[] optional;
+    private final String[] row;
+
+    private int[] csvIndexes;
+    private long lineNumber;
+
+    /**
+     * @param columns for each output column, the names it may appear under
+     * @param optional for each output column, whether a CSV header may leave it out
+     */
+    public RateRowReader(InputStream in, Format format, ObjectMapper objectMapper, String[][] columns,
+                         boolean[] optional) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.columns = new String[columns.length][];
+        this.names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = new String[columns[i].length];
+            this.names[i] = columns[i][0];
+            for (int j = 0; j < columns[i].length; j++) {
+                this.columns[i][j] = normalize(columns[i][j]);
+            }
+        }
+        this.optional = optional;
+        this.row = new String[columns.length];
+    }
+
+    /**
+     * Next row with its values in column order (null for missing values), or null at the end.
+     * The returned array is reused by the next call.
+     * @throws MalformedRowException if the line cannot be parsed, or the CSV header lacks a required column
+     */
+    public String[] read() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.trim().isEmpty());
+
+        if (format == Format.NDJSON) {
+            readJson(line);
+            return row;
+        }
+        if (csvIndexes == null) {
+            readHeader(line);
+            return read();
+        }
+
+        List<String> fields = splitCsv(line);
+        for (int i = 0; i < row.length; i++) {
+            int index = csvIndexes[i];
+            row[i] = index >= 0 && index < fields.size() ? fields.get(index) : null;
+        }
+        return row;
+    }
+
+    /**
+     * Line number of the last row read, counting the header, for error reporting
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader(String line) throws MalformedRowException {
+        if (line.charAt(0) == '\uFEFF') {
+            line = line.substring(1);
+        }
+        List<String> header = splitCsv(line);
+        csvIndexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            csvIndexes[i] = -1;
+            for (int h = 0; h < header.size() && csvIndexes[i] < 0; h++) {
+                if (matches(columns[i], normalize(header.get(h)))) {
+                    csvIndexes[i] = h;
+                }
+            }
+            if (csvIndexes[i] < 0 && !optional[i]) {
+                throw new MalformedRowException("Line " + lineNumber + ": header has no " + names[i] + " column");
+            }
+        }
+    }
+
+    private void readJson(String line) throws MalformedRowException {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new MalformedRowException("Line " + lineNumber + " is not valid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new MalformedRowException("Line " + lineNumber + " is not a JSON object");
+        }
+
+        for (int i = 0; i < row.length; i++) {
+            row[i] = null;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = normalize(field.getKey());
+            for (int i = 0; i < columns.length; i++) {
+                if (row[i] == null && matches(columns[i], name) && !field.getValue().isNull()) {
+                    row[i] = field.getValue().asText();
+                }
+            }
+        }
+    }
+
+    /**
+     * Split one CSV line; fields may be double-quoted, with "" for a quote inside them
+     */
+    private List<String> splitCsv(String line) throws MalformedRowException {
+        List<String> fields = new ArrayList<>(columns.length + 2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new MalformedRowException("Line " + lineNumber + " has an unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean matches(String[] names, String name) {
+        for (String candidate : names) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_' && c != ' ' && c != '-') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    public static class MalformedRowException extends IOException {
+        public MalformedRowException(String message) {
+            super(message);
+        }
+    }
+}
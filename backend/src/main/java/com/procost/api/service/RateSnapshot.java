@@ -0,0 +1,62 @@
+package com.procost.api.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One published version of the standard rate tables. Callers take a snapshot once per calculation,
+ * so every lookup in it sees the same tables even if a reload lands mid-request.
+ */
+public final class RateSnapshot {
+
+    private final long version;
+    private final LocalDateTime loadedAt = LocalDateTime.now();
+    private final String rateTableSource;
+    private final String packagingTableSource;
+    private final RateIndex rates;
+    private final RateGrid grid;
+
+    RateSnapshot(long version, String rateTableSource, String packagingTableSource, RateIndex rates, RateGrid grid) {
+        this.version = version;
+        this.rateTableSource = rateTableSource;
+        this.packagingTableSource = packagingTableSource;
+        this.rates = rates;
+        this.grid = grid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    public RateIndex getRates() {
+        return rates;
+    }
+
+    public RateGrid getGrid() {
+        return grid;
+    }
+
+    public Double filingRate(String product, String trimType, String rmSpec) {
+        return rates.filingRate(product, trimType, rmSpec);
+    }
+
+    public Double packagingRate(String prodType, String product, String packType, String transportMode) {
+        return rates.packagingRate(prodType, product, packType, transportMode);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("version", version);
+        map.put("loadedAt", loadedAt);
+        map.put("rateTableSource", rateTableSource);
+        map.put("packagingTableSource", packagingTableSource);
+        map.put("rateTables", rates.getRateTableSize());
+        map.put("packagingRates", rates.getPackagingTableSize());
+        return map;
+    }
+}
@@ -0,0 +1,237 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces a factory's filleting or packaging rates from a streamed CSV or NDJSON upload.
+ * Rows are validated as they are read and written with JDBC batch inserts, one chunk at a time,
+ * in the same transaction that deletes the old rows; an invalid row rolls the whole import back,
+ * so readers see either the old rate set or the complete new one.
+ */
+@Service
+public class RateTableImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateTableImportService.class);
+
+    private static final int MAX_TEXT_LENGTH = 100;
+
+    public enum Table {
+        RATE_TABLES("rate_tables",
+            "INSERT INTO rate_tables (product, trim_type, rm_spec, rate_per_kg, factory_id) VALUES (?, ?, ?, ?, ?)",
+            new String[][] {
+                {"product"},
+                {"trimType", "trim"},
+                {"rmSpec", "spec"},
+                {"ratePerKg", "rate"}
+            }),
+        PACKAGING_RATES("packaging_rates",
+            "INSERT INTO packaging_rates (prod_type, product, box_qty, pack, transport_mode, packaging_rate, factory_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)",
+            new String[][] {
+                {"prodType", "productType"},
+                {"product"},
+                {"boxQty", "boxQuantity"},
+                {"pack", "packType"},
+                {"transportMode", "transport"},
+                {"packagingRate", "rate"}
+            });
+
+        private final String tableName;
+        private final String insertSql;
+        private final String[][] columns;
+
+        Table(String tableName, String insertSql, String[][] columns) {
+            this.tableName = tableName;
+            this.insertSql = insertSql;
+            this.columns = columns;
+        }
+
+        // The rate is always the last column; the others are required text except the optional box quantity
+        private int rateColumn() {
+            return columns.length - 1;
+        }
+
+        private boolean isOptional(int column) {
+            return this == PACKAGING_RATES && column == 2;
+        }
+
+        private boolean[] optionalColumns() {
+            boolean[] optional = new boolean[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                optional[i] = isOptional(i);
+            }
+            return optional;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${rates.import.batch.size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Replace all of a factory's rows in one table with the rows of an upload
+     * @return counts of rows deleted and imported, chunks written and the time taken
+     * @throws EntityNotFoundException if the factory does not exist
+     * @throws RateRowReader.MalformedRowException if a row cannot be parsed or is invalid, the CSV header lacks
+     * a required column, or there are no rows; nothing is changed
+     */
+    public Map<String, Object> importRates(Long factoryId, Table table, InputStream in, RateRowReader.Format format)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Object> result = transactionTemplate.execute(status -> {
+                try {
+                    return replaceRows(factoryId, table, in, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            result.put("durationMs", System.currentTimeMillis() - start);
+            logger.info("📥 Imported {} {} rows for factory {}: {}", result.get("imported"), table.tableName,
+                       factoryId, result);
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Map<String, Object> replaceRows(Long factoryId, Table table, InputStream in, RateRowReader.Format format)
+            throws IOException {
+        // Locks the factory row, so concurrent imports for one factory run one after the other
+        List<Long> factory = jdbcTemplate.queryForList("SELECT id FROM factories WHERE id = ? FOR UPDATE",
+            Long.class, factoryId);
+        if (factory.isEmpty()) {
+            throw new EntityNotFoundException("Factory not found with id: " + factoryId);
+        }
+
+        int deleted = jdbcTemplate.update("DELETE FROM " + table.tableName + " WHERE factory_id = ?", factoryId);
+
+        List<Object[]> chunk = new ArrayList<>(batchSize);
+        long imported = 0;
+        int chunks = 0;
+        try (RateRowReader reader = new RateRowReader(in, format, objectMapper, table.columns,
+                table.optionalColumns())) {
+            String[] row;
+            while ((row = reader.read()) != null) {
+                chunk.add(validate(table, row, reader.getLineNumber(), factoryId));
+                if (chunk.size() >= batchSize) {
+                    imported += writeChunk(table, chunk);
+                    chunks++;
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            imported += writeChunk(table, chunk);
+            chunks++;
+        }
+        if (imported == 0) {
+            // An empty or truncated upload must not wipe the table; throwing rolls the delete back
+            throw new RateRowReader.MalformedRowException("No " + table.tableName + " rows found in the upload");
+        }
+
+        // Delivered after commit, when the rate engine rebuilds the factory's snapshot
+        eventPublisher.publishEvent(new FactoryRatesChangedEvent(factoryId));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("factoryId", factoryId);
+        result.put("table", table.tableName);
+        result.put("deleted", deleted);
+        result.put("imported", imported);
+        result.put("chunks", chunks);
+        return result;
+    }
+
+    private int writeChunk(Table table, List<Object[]> chunk) {
+        int size = chunk.size();
+        jdbcTemplate.batchUpdate(table.insertSql, chunk, size, (ps, values) -> {
+            for (int i = 0; i < values.length; i++) {
+                ps.setObject(i + 1, values[i]);
+            }
+        });
+        chunk.clear();
+        return size;
+    }
+
+    /**
+     * Insert parameters for one row, in column order followed by the factory id
+     */
+    private Object[] validate(Table table, String[] row, long lineNumber, Long factoryId)
+            throws RateRowReader.MalformedRowException {
+        int rateColumn = table.rateColumn();
+        Object[] values = new Object[row.length + 1];
+
+        for (int i = 0; i < rateColumn; i++) {
+            String value = row[i] != null ? row[i].trim() : "";
+            if (value.isEmpty() && table.isOptional(i)) {
+                // Packaging rows without a box quantity use the pack, as the bundled pack table does
+                value = row[3] != null ? row[3].trim() : "";
+            }
+            if (value.isEmpty()) {
+                throw invalid(lineNumber, table.columns[i][0] + " is required");
+            }
+            if (value.length() > MAX_TEXT_LENGTH) {
+                throw invalid(lineNumber, table.columns[i][0] + " cannot exceed " + MAX_TEXT_LENGTH + " characters");
+            }
+            values[i] = value;
+        }
+
+        String rateName = table.columns[rateColumn][0];
+        String rateText = row[rateColumn] != null ? row[rateColumn].trim() : "";
+        if (rateText.isEmpty()) {
+            throw invalid(lineNumber, rateName + " is required");
+        }
+        double rate;
+        try {
+            rate = Double.parseDouble(rateText);
+        } catch (NumberFormatException e) {
+            throw invalid(lineNumber, rateName + " is not a number: " + rateText);
+        }
+        if (!Double.isFinite(rate) || rate < 0) {
+            throw invalid(lineNumber, rateName + " must be greater than or equal to 0");
+        }
+        values[rateColumn] = rate;
+        values[row.length] = factoryId;
+        return values;
+    }
+
+    private static RateRowReader.MalformedRowException invalid(long lineNumber, String message) {
+        return new RateRowReader.MalformedRowException("Line " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.procost.api.service;
+
+import com.procost.api.model.EmailEnquiry;
+import com.procost.api.repository.EmailEnquiryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "openai.api.key=",
+    "ai.openai.fallback.enabled=false"
+})
+class EmailBackfillServiceTest {
+
+    @Autowired
+    private EmailBackfillService backfillService;
+
+    @Autowired
+    private EmailEnquiryRepository emailEnquiryRepository;
+
+    @Test
+    void backfilledEnquiriesReadBackThroughRepository() throws Exception {
+        String longBody = "Please quote 500 kg fresh salmon fillets, trim A, 1-2 kg. "
+            + "Æøå – delivery by air. ".repeat(400);
+        String archive = line("<m1@buyer.example>", "Salmon enquiry", longBody)
+            + line("<m2@buyer.example>", "Cod enquiry", "Please quote 200 kg cod loins.")
+            + line("<m1@buyer.example>", "Salmon enquiry again", longBody);
+
+        EmailBackfillJob first = run(archive);
+        assertEquals(EmailBackfillJob.Status.COMPLETED, first.getStatus());
+        assertEquals(2, first.written.get());
+        assertEquals(1, first.skipped.get());
+
+        List<EmailEnquiry> imported = emailEnquiryRepository.findAll().stream()
+            .filter(enquiry -> "<m1@buyer.example>".equals(enquiry.getOriginalEmailId()))
+            .collect(Collectors.toList());
+        assertEquals(1, imported.size());
+        assertEquals(longBody, imported.get(0).getEmailBody());
+        assertTrue(imported.get(0).getProcessingNotes().contains(first.getJobId()));
+
+        // A second import of the same archive finds every Message-ID already in the database
+        EmailBackfillJob second = run(archive);
+        assertEquals(0, second.written.get());
+        assertEquals(3, second.skipped.get());
+    }
+
+    private EmailBackfillJob run(String archive) throws Exception {
+        EmailBackfillJob job = backfillService.submit(
+            new ByteArrayInputStream(archive.getBytes(StandardCharsets.UTF_8)), EmailArchiveReader.Format.NDJSON, true);
+        for (int i = 0; i < 300 && !job.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(job.isFinished(), "backfill did not finish");
+        return job;
+    }
+
+    private static String line(String messageId, String subject, String body) {
+        return "{\"fromEmail\":\"buyer@buyer.example\",\"messageId\":\"" + messageId + "\",\"subject\":\""
+            + subject + "\",\"emailBody\":\"" + body + "\"}\n";
+    }
+}
@@ -0,0 +1,125 @@
+package com.procost.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks and writes the results as JSON, by default to target/jmh-results.json.
+ * Given a baseline results file, it compares every benchmark and parameter combination present
+ * in both and exits with status 1 if any got worse by more than the threshold (default 10%).
+ * Any other arguments are passed to JMH, e.g. a benchmark name pattern or -f 1 -wi 1 -i 3.
+ * <pre>
+ * java -cp target/benchmarks.jar com.procost.benchmarks.BenchmarkRunner \
+ *     [--results file] [--baseline file] [--threshold 0.10] [jmh options]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String results = "target/jmh-results.json";
+        String baseline = null;
+        double threshold = 0.10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--results":
+                    results = args[++i];
+                    break;
+                case "--baseline":
+                    baseline = args[++i];
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    jmhArgs.add(args[i]);
+                    break;
+            }
+        }
+
+        File resultsFile = new File(results);
+        if (resultsFile.getAbsoluteFile().getParentFile() != null) {
+            resultsFile.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        new Runner(new OptionsBuilder()
+            .parent(new CommandLineOptions(jmhArgs.toArray(new String[0])))
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultsFile.getPath())
+            .build()).run();
+        System.out.println("Results written to " + resultsFile.getPath());
+
+        if (baseline != null) {
+            int regressions = compare(new File(baseline), resultsFile, threshold);
+            if (regressions > 0) {
+                System.out.println(regressions + " regression(s) beyond " + Math.round(threshold * 100) + "%");
+                System.exit(1);
+            }
+            System.out.println("No regressions beyond " + Math.round(threshold * 100) + "%");
+        }
+    }
+
+    /**
+     * Print the change of every result found in both files
+     * @return how many got worse by more than the threshold
+     */
+    static int compare(File baseline, File current, double threshold) throws IOException {
+        Map<String, JsonNode> before = byKey(MAPPER.readTree(baseline));
+        Map<String, JsonNode> after = byKey(MAPPER.readTree(current));
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode old = before.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("NEW   %s%n", entry.getKey());
+                continue;
+            }
+            double oldScore = old.path("primaryMetric").path("score").asDouble();
+            double newScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+            if (oldScore == 0) {
+                continue;
+            }
+            // Throughput is better when higher; average and sample times when lower
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double change = (newScore - oldScore) / oldScore;
+            double worse = higherIsBetter ? -change : change;
+            boolean regressed = worse > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-5s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "WORSE" : "OK", entry.getKey(),
+                oldScore, newScore, entry.getValue().path("primaryMetric").path("scoreUnit").asText(), change * 100);
+        }
+        return regressions;
+    }
+
+    private static Map<String, JsonNode> byKey(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            byKey.put(result.path("benchmark").asText() + (params.isEmpty() ? "" : " " + params), result);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,145 @@
+package com.procost.benchmarks;
+
+import com.procost.api.dto.BatchCalculateRequest;
+import com.procost.api.dto.BatchCalculateResponse;
+import com.procost.api.dto.CalculateChargesRequest;
+import com.procost.api.dto.CalculateChargesResponse;
+import com.procost.api.model.ChargeRate;
+import com.procost.api.model.Factory;
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+import com.procost.api.repository.ChargeRateRepository;
+import com.procost.api.repository.FactoryRepository;
+import com.procost.api.repository.PackagingRateRepository;
+import com.procost.api.repository.RateTableRepository;
+import com.procost.api.service.CalculatorService;
+import com.procost.api.service.FactoryRateEngine;
+import com.procost.api.service.FactoryRateSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charge calculation with the standard and a factory's charges, a 1,000-line batch priced
+ * against one factory snapshot, and a rebuild of that snapshot. The factory's tables come from
+ * in-memory repositories, so the rebuild measures indexing, not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculatorBenchmark {
+
+    private static final Long FACTORY_ID = 1L;
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int batchLines;
+
+    private FactoryRateEngine engine;
+    private CalculatorService calculator;
+    private CalculateChargesRequest chargesRequest;
+    private BatchCalculateRequest batchRequest;
+
+    @Setup
+    public void setUp() {
+        RateTables tables = new RateTables(rows);
+        Factory factory = new Factory();
+        factory.setId(FACTORY_ID);
+        factory.setName("Benchmark Factory");
+        factory.setPalletCharge(0.12);
+        factory.setTerminalCharge(0.08);
+        factory.setReceptionFee(0.05);
+        factory.setDispatchFee(0.05);
+        factory.setEnvironmentalFeePercentage(1.5);
+        factory.setElectricityFeePercentage(2.0);
+        List<RateTable> rateTables = tables.rateTables(1);
+        List<PackagingRate> packagingRates = tables.packagingRates(2);
+        List<ChargeRate> chargeRates = tables.chargeRates(3);
+
+        engine = new FactoryRateEngine();
+        BenchmarkSupport.inject(engine, "factoryRepository", BenchmarkSupport.repository(FactoryRepository.class,
+            Collections.singletonMap("findById", args -> Optional.of(factory))));
+        BenchmarkSupport.inject(engine, "rateTableRepository", BenchmarkSupport.repository(RateTableRepository.class,
+            Collections.singletonMap("findAllByFactoryId", args -> rateTables)));
+        BenchmarkSupport.inject(engine, "packagingRateRepository", BenchmarkSupport.repository(PackagingRateRepository.class,
+            Collections.singletonMap("findAllByFactoryId", args -> packagingRates)));
+        BenchmarkSupport.inject(engine, "chargeRateRepository", BenchmarkSupport.repository(ChargeRateRepository.class,
+            Collections.singletonMap("findByFactoryId", args -> chargeRates)));
+        BenchmarkSupport.inject(engine, "transactionManager", BenchmarkSupport.noTransactions());
+        engine.init();
+        engine.reload(FACTORY_ID);
+
+        calculator = new CalculatorService();
+        BenchmarkSupport.inject(calculator, "factoryRateEngine", engine);
+        BenchmarkSupport.inject(calculator, "parallelThreshold", 500);
+
+        chargesRequest = new CalculateChargesRequest();
+        chargesRequest.setProdType(RateTables.prodType(0));
+        chargesRequest.setProduct(RateTables.product(tables.products / 2));
+        chargesRequest.setWeight(1250.0);
+        chargesRequest.setOptions(options(true));
+
+        Random random = new Random(11);
+        List<BatchCalculateRequest.LineDto> lines = new ArrayList<>(batchLines);
+        for (int i = 0; i < batchLines; i++) {
+            BatchCalculateRequest.LineDto line = new BatchCalculateRequest.LineDto();
+            line.setProduct(RateTables.product(random.nextInt(tables.products)));
+            line.setTrimType(RateTables.trimType(random.nextInt(10)));
+            line.setRmSpec(RateTables.rmSpec(random.nextInt(10)));
+            line.setProdType(RateTables.prodType(random.nextInt(2)));
+            line.setPackType(RateTables.pack(random.nextInt(25)));
+            line.setTransportMode(RateTables.transportMode(random.nextInt(2)));
+            line.setWeight(50.0 + random.nextInt(5000));
+            line.setOptions(options(random.nextBoolean()));
+            lines.add(line);
+        }
+        batchRequest = new BatchCalculateRequest();
+        batchRequest.setFactoryId(FACTORY_ID);
+        batchRequest.setLines(lines);
+    }
+
+    private static CalculateChargesRequest.OptionsDto options(boolean all) {
+        CalculateChargesRequest.OptionsDto options = new CalculateChargesRequest.OptionsDto();
+        options.setProdaB(true);
+        options.setEncoding(all);
+        options.setReceptionFee(all);
+        options.setDispatchFee(true);
+        options.setEnvironmentalFee(all);
+        options.setElectricityFee(all);
+        return options;
+    }
+
+    @Benchmark
+    public CalculateChargesResponse calculateCharges() {
+        return calculator.calculateCharges(chargesRequest);
+    }
+
+    @Benchmark
+    public CalculateChargesResponse calculateFactoryCharges() {
+        return calculator.calculateCharges(FACTORY_ID, chargesRequest);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BatchCalculateResponse calculateBatch() {
+        return calculator.calculateBatch(batchRequest);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Optional<FactoryRateSnapshot> reloadFactorySnapshot() {
+        return engine.reload(FACTORY_ID);
+    }
+}
@@ -0,0 +1,113 @@
+package com.procost.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Synthetic inbound emails: a short inquiry, a long conversational inquiry with a signature
+ * block, and a multi-line RFQ with one product per line. Seeded, so every run sees the same text.
+ */
+final class EmailCorpus {
+
+    static final String SHORT = "short";
+    static final String LONG = "long";
+    static final String RFQ = "rfq";
+
+    private static final String[] PRODUCTS = {
+        "Atlantic Salmon", "Norwegian salmon", "Pacific Cod", "Haddock", "Alaska Pollock", "Mackerel", "Herring"
+    };
+    private static final String[] TRIMS = {"fillets", "skinless", "whole gutted", "H&G", "steaks", "loins", "tails"};
+    private static final String[] UNITS = {"kg", "KG", "tons", "lbs", "pieces"};
+
+    private static final String[] SMALL_TALK = {
+        "Thank you for the quick turnaround on our last order, the quality was excellent.",
+        "We are planning our promotions for the coming quarter and need firm prices soon.",
+        "Our warehouse receives goods Monday to Thursday between 06:00 and 14:00.",
+        "Please confirm the shelf life on arrival and the catch area for each lot.",
+        "Payment terms as before, 30 days net from invoice date.",
+        "Let me know if you need our updated delivery address or VAT number."
+    };
+
+    private EmailCorpus() {
+    }
+
+    static final class Email {
+        final String from;
+        final String subject;
+        final String body;
+
+        private Email(String from, String subject, String body) {
+            this.from = from;
+            this.subject = subject;
+            this.body = body;
+        }
+    }
+
+    /**
+     * @param kind short, long or rfq
+     * @param rfqLines product lines in an rfq email
+     */
+    static Email email(String kind, int rfqLines, long seed) {
+        Random random = new Random(seed);
+        switch (kind) {
+            case SHORT:
+                return new Email("buyer@freshfish.example", "Price request",
+                    "Hi, what is your price for 500 kg salmon fillets? Thanks, Tom");
+            case LONG:
+                return new Email("purchasing@nordicseafood.example", "Inquiry for next month deliveries",
+                    longBody(random));
+            case RFQ:
+                return new Email("procurement@retailgroup.example", "RFQ - weekly whitefish and salmon programme",
+                    rfq(rfqLines, random));
+            default:
+                throw new IllegalArgumentException("Unknown email kind: " + kind);
+        }
+    }
+
+    private static String longBody(Random random) {
+        StringBuilder body = new StringBuilder(8 * 1024);
+        body.append("Dear Sales Team,\n\n");
+        for (int i = 0; i < 40; i++) {
+            body.append(SMALL_TALK[random.nextInt(SMALL_TALK.length)]).append(' ');
+            if (i % 4 == 3) {
+                body.append("\n\n");
+            }
+        }
+        body.append("\nFor this week we would like to order:\n");
+        for (int i = 0; i < 6; i++) {
+            body.append("- ").append(productLine(random)).append('\n');
+        }
+        body.append("\nBest regards,\nJane Doe\nHead of Purchasing\nNordic Seafood AS\n")
+            .append("Strandkaien 12, 5013 Bergen, Norway\nTel: +47 55 12 34 56\n");
+        return body.toString();
+    }
+
+    /**
+     * A request for quotation with the given number of lines, mostly product lines
+     */
+    static String rfq(int lineCount, Random random) {
+        StringBuilder body = new StringBuilder(lineCount * 64);
+        body.append("Dear Sales Team,\n\nPlease quote the following for delivery next month:\n\n");
+        for (int i = 0; i < lineCount; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    body.append("Note: pallets must be labelled with our PO number and delivery date\n");
+                    break;
+                case 1:
+                    body.append("* ").append(random.nextInt(900) + 100).append(' ')
+                        .append(UNITS[random.nextInt(UNITS.length)]).append(" mixed whitefish portions\n");
+                    break;
+                default:
+                    body.append("- ").append(productLine(random)).append('\n');
+                    break;
+            }
+        }
+        body.append("\nBest regards,\nJane Doe\nNordic Seafood AS\n");
+        return body.toString();
+    }
+
+    private static String productLine(Random random) {
+        return PRODUCTS[random.nextInt(PRODUCTS.length)] + ' ' + TRIMS[random.nextInt(TRIMS.length)] + ", "
+            + (random.nextInt(5000) + 50) + '.' + random.nextInt(10) + ' ' + UNITS[random.nextInt(UNITS.length)]
+            + ", SKU: PC" + (10000 + random.nextInt(90000));
+    }
+}
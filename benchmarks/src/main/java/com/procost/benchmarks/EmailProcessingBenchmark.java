@@ -0,0 +1,63 @@
+package com.procost.benchmarks;
+
+import com.procost.api.model.Customer;
+import com.procost.api.model.EnquiryItem;
+import com.procost.api.repository.CustomerRepository;
+import com.procost.api.service.AIEmailProcessor;
+import com.procost.api.service.EmailPatternEngine;
+import com.procost.api.service.ProductLineTokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pattern-based steps of email processing on a short inquiry, a long inquiry with a
+ * signature and a 500-line RFQ. Senders are never known customers, so extraction always runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailProcessingBenchmark {
+
+    @Param({EmailCorpus.SHORT, EmailCorpus.LONG, EmailCorpus.RFQ})
+    public String email;
+
+    @Param({"500"})
+    public int rfqLines;
+
+    private EmailCorpus.Email message;
+    private AIEmailProcessor processor;
+
+    @Setup
+    public void setUp() {
+        message = EmailCorpus.email(email, rfqLines, 42);
+        EmailPatternEngine patternEngine = new EmailPatternEngine();
+        processor = new AIEmailProcessor();
+        BenchmarkSupport.inject(processor, "patternEngine", patternEngine);
+        BenchmarkSupport.inject(processor, "productLineTokenizer",
+            BenchmarkSupport.inject(new ProductLineTokenizer(), "patternEngine", patternEngine));
+        BenchmarkSupport.inject(processor, "customerRepository", BenchmarkSupport.repository(CustomerRepository.class,
+            Collections.singletonMap("findByEmail", args -> Optional.empty())));
+    }
+
+    @Benchmark
+    public String classifyEmail() {
+        return processor.classifyEmail(message.subject, message.body);
+    }
+
+    @Benchmark
+    public List<EnquiryItem> parseProductRequirements() {
+        return processor.parseProductRequirements(message.body);
+    }
+
+    @Benchmark
+    public Customer extractCustomerInfo() {
+        return processor.extractCustomerInfo(message.from, message.body, message.subject);
+    }
+}
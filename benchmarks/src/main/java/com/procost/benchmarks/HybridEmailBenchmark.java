@@ -0,0 +1,146 @@
+package com.procost.benchmarks;
+
+import com.procost.api.model.Customer;
+import com.procost.api.model.EnquiryItem;
+import com.procost.api.repository.AIResponseCacheRepository;
+import com.procost.api.repository.CustomerRepository;
+import com.procost.api.service.AIBudgetGovernor;
+import com.procost.api.service.AICostModel;
+import com.procost.api.service.AIEmailProcessor;
+import com.procost.api.service.AIOperation;
+import com.procost.api.service.AIResponseCache;
+import com.procost.api.service.AIUsageMetrics;
+import com.procost.api.service.EmailExtraction;
+import com.procost.api.service.EmailPatternEngine;
+import com.procost.api.service.HybridEmailProcessor;
+import com.procost.api.service.OpenAIEmailProcessor;
+import com.procost.api.service.OpenAIGuard;
+import com.procost.api.service.ProductLineTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-email hybrid processing, with and without the OpenAI fallback. OpenAI answers
+ * instantly from a stub, so the numbers are the pattern steps, fallback decisions and
+ * bookkeeping around the calls, not network time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HybridEmailBenchmark {
+
+    @Param({EmailCorpus.SHORT, EmailCorpus.LONG, EmailCorpus.RFQ})
+    public String email;
+
+    @Param({"500"})
+    public int rfqLines;
+
+    @Param({"true", "false"})
+    public boolean fallback;
+
+    private EmailCorpus.Email message;
+    private AnnotationConfigApplicationContext context;
+    private HybridEmailProcessor processor;
+
+    @Setup
+    public void setUp() {
+        message = EmailCorpus.email(email, rfqLines, 42);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+            Collections.singletonMap("ai.openai.fallback.enabled", String.valueOf(fallback))));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(CustomerRepository.class, () -> BenchmarkSupport.repository(CustomerRepository.class,
+            Collections.singletonMap("findByEmail", args -> Optional.empty())));
+        context.registerBean(AIResponseCacheRepository.class,
+            () -> BenchmarkSupport.repository(AIResponseCacheRepository.class, Collections.emptyMap()));
+        context.registerBean("openAIWebClient", WebClient.class, () -> WebClient.create());
+        context.registerBean(EmailPatternEngine.class);
+        context.registerBean(ProductLineTokenizer.class);
+        context.registerBean(AIEmailProcessor.class);
+        context.registerBean(AICostModel.class);
+        context.registerBean(AIUsageMetrics.class);
+        context.registerBean(AIBudgetGovernor.class);
+        context.registerBean(OpenAIGuard.class);
+        context.registerBean(AIResponseCache.class);
+        context.registerBean(OpenAIEmailProcessor.class, StubOpenAIEmailProcessor::new);
+        context.registerBean(HybridEmailProcessor.class);
+        context.refresh();
+        processor = context.getBean(HybridEmailProcessor.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EmailExtraction processEmail() {
+        return processor.processEmail(message.from, message.subject, message.body);
+    }
+
+    /**
+     * Answers every OpenAI request at once with a fixed result
+     */
+    static class StubOpenAIEmailProcessor extends OpenAIEmailProcessor {
+
+        @Override
+        public Mono<String> classifyEmailWithAIReactive(String subject, String body) {
+            return Mono.just("INQUIRY");
+        }
+
+        @Override
+        public Mono<Customer> extractCustomerInfoWithAIReactive(String fromEmail, String body, String subject) {
+            return Mono.fromSupplier(() -> customer(fromEmail));
+        }
+
+        @Override
+        public Mono<List<EnquiryItem>> parseProductRequirementsWithAIReactive(String emailBody) {
+            return Mono.fromSupplier(StubOpenAIEmailProcessor::items);
+        }
+
+        @Override
+        public Mono<EmailExtraction> extractWithAIReactive(Set<AIOperation> operations, String fromEmail, String subject,
+                                                           String body, int maxTokens) {
+            return Mono.fromSupplier(() -> {
+                EmailExtraction extraction = new EmailExtraction();
+                extraction.setClassification("INQUIRY");
+                extraction.setCustomer(customer(fromEmail));
+                extraction.setItems(items());
+                return extraction;
+            });
+        }
+
+        private static Customer customer(String fromEmail) {
+            Customer customer = new Customer();
+            customer.setEmail(fromEmail);
+            customer.setContactPerson("Jane Doe");
+            customer.setCompanyName("Nordic Seafood AS");
+            return customer;
+        }
+
+        private static List<EnquiryItem> items() {
+            EnquiryItem item = new EnquiryItem();
+            item.setProductDescription("Atlantic Salmon fillets");
+            item.setRequestedQuantity(500);
+            List<EnquiryItem> items = new ArrayList<>();
+            items.add(item);
+            return items;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.procost.benchmarks;
+
+import com.procost.api.model.EnquiryItem;
+import com.procost.api.service.AIEmailProcessor;
+import com.procost.api.service.EmailPatternEngine;
+import com.procost.api.service.ProductLineTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of product requirement parsing on a synthetic 5,000-line RFQ.
+ * The regex baseline reproduces the previous per-line split, lowercase and regex scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductLineParsingBenchmark {
+
+    private static final Pattern QUANTITY = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(?:kg|ton|tons|pound|lbs)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CUSTOMER_SKU = Pattern.compile("(?:sku|item|code|ref)[:\\s#]+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern QUANTITY_INDICATOR = Pattern.compile("\\d+\\s*(kg|ton|tons|pound|lbs|pieces?)", Pattern.CASE_INSENSITIVE);
+
+    @Param({"5000"})
+    public int lines;
+
+    private String rfq;
+    private EmailPatternEngine patternEngine;
+    private ProductLineTokenizer tokenizer;
+    private AIEmailProcessor processor;
+
+    @Setup
+    public void setUp() {
+        rfq = EmailCorpus.rfq(lines, new Random(42));
+        patternEngine = new EmailPatternEngine();
+        tokenizer = BenchmarkSupport.inject(new ProductLineTokenizer(), "patternEngine", patternEngine);
+        processor = new AIEmailProcessor();
+        BenchmarkSupport.inject(processor, "patternEngine", patternEngine);
+        BenchmarkSupport.inject(processor, "productLineTokenizer", tokenizer);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        tokenizer.tokenize(rfq, line -> blackhole.consume(line.getTokens().size()));
+    }
+
+    @Benchmark
+    public List<EnquiryItem> parseProductRequirements() {
+        return processor.parseProductRequirements(rfq);
+    }
+
+    @Benchmark
+    public void regexBaseline(Blackhole blackhole) {
+        for (String line : rfq.split("\n")) {
+            line = line.trim();
+            if (line.length() < 10) continue;
+            String lower = line.toLowerCase();
+            boolean mention = lower.contains("salmon") || lower.contains("cod") || lower.contains("haddock")
+                || lower.contains("pollock") || lower.contains("mackerel") || lower.contains("herring")
+                || QUANTITY_INDICATOR.matcher(line).find() || line.startsWith("-") || line.startsWith("*");
+            if (!mention) continue;
+
+            Matcher quantity = QUANTITY.matcher(line);
+            blackhole.consume(quantity.find() ? Double.parseDouble(quantity.group(1)) : null);
+            Matcher sku = CUSTOMER_SKU.matcher(line);
+            blackhole.consume(sku.find() ? sku.group(1) : null);
+            blackhole.consume(patternEngine.scan(line));
+            blackhole.consume(line);
+        }
+    }
+}
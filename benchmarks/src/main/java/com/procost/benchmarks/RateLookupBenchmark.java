@@ -0,0 +1,84 @@
+package com.procost.benchmarks;
+
+import com.procost.api.service.DataLoaderService;
+import com.procost.api.service.RateSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Standard rate lookups and a full reload of rate_table.csv and pack_table.csv, on generated
+ * tables of 1k to 100k rows each. About one lookup in ten misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLookupBenchmark {
+
+    private static final int KEYS = 4096;
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private Path directory;
+    private DataLoaderService dataLoaderService;
+    private String[][] filingKeys;
+    private String[][] packagingKeys;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        RateTables tables = new RateTables(rows);
+        directory = Files.createTempDirectory("procost-rates");
+        tables.writeCsv(directory, 42);
+        // Not init(), which would also start watching the directory
+        dataLoaderService = BenchmarkSupport.inject(new DataLoaderService(), "ratesDirectory", directory.toString());
+        dataLoaderService.reload();
+
+        Random random = new Random(7);
+        filingKeys = new String[KEYS][];
+        packagingKeys = new String[KEYS][];
+        for (int i = 0; i < KEYS; i++) {
+            boolean miss = random.nextInt(10) == 0;
+            String product = RateTables.product(miss ? tables.products + random.nextInt(100) : random.nextInt(tables.products));
+            filingKeys[i] = new String[] {product, RateTables.trimType(random.nextInt(10)), RateTables.rmSpec(random.nextInt(10))};
+            packagingKeys[i] = new String[] {RateTables.prodType(random.nextInt(2)), product,
+                RateTables.pack(random.nextInt(25)), RateTables.transportMode(random.nextInt(2))};
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Double calculateFilingRate() {
+        String[] key = filingKeys[next++ & (KEYS - 1)];
+        return dataLoaderService.calculateFilingRate(key[0], key[1], key[2]);
+    }
+
+    @Benchmark
+    public Double calculatePackagingRate() {
+        String[] key = packagingKeys[next++ & (KEYS - 1)];
+        return dataLoaderService.calculatePackagingRate(key[0], key[1], key[2], key[3]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RateSnapshot reload() {
+        return dataLoaderService.reload();
+    }
+}
@@ -0,0 +1,155 @@
+package com.procost.benchmarks;
+
+import com.procost.api.model.ChargeRate;
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated rate tables of a given size, shaped like the bundled ones: each product has 10 trim
+ * types by 10 raw material specs, and 2 product types by 25 packs by 2 transport modes.
+ */
+final class RateTables {
+
+    private static final String[] PROD_TYPES = {"Fresh", "Frozen"};
+    private static final String[] TRANSPORT_MODES = {"regular", "air"};
+
+    final int rows;
+    final int products;
+
+    /**
+     * @param rows rows in each of the rate and packaging tables, rounded down to whole products
+     */
+    RateTables(int rows) {
+        this.products = Math.max(1, rows / 100);
+        this.rows = products * 100;
+    }
+
+    static String product(int i) {
+        return "Product " + i;
+    }
+
+    static String trimType(int i) {
+        return "Trim " + (char) ('A' + i);
+    }
+
+    static String rmSpec(int i) {
+        return i + "-" + (i + 1) + " kg";
+    }
+
+    static String prodType(int i) {
+        return PROD_TYPES[i];
+    }
+
+    static String pack(int i) {
+        return "EPS " + (5 + i) + " kg";
+    }
+
+    static String transportMode(int i) {
+        return TRANSPORT_MODES[i];
+    }
+
+    /**
+     * rate_table.csv and pack_table.csv in the format DataLoaderService reads from rates.directory
+     */
+    void writeCsv(Path directory, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (Writer out = Files.newBufferedWriter(directory.resolve("rate_table.csv"), StandardCharsets.UTF_8)) {
+            out.write("product,trim_type,rm_spec,rate\n");
+            for (int p = 0; p < products; p++) {
+                for (int t = 0; t < 10; t++) {
+                    for (int s = 0; s < 10; s++) {
+                        out.write(product(p) + ',' + trimType(t) + ',' + rmSpec(s) + ',' + rate(random) + '\n');
+                    }
+                }
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve("pack_table.csv"), StandardCharsets.UTF_8)) {
+            out.write("prod_type,product,pack_type,transport_mode,packaging_rate\n");
+            for (int p = 0; p < products; p++) {
+                for (int pt = 0; pt < 2; pt++) {
+                    for (int k = 0; k < 25; k++) {
+                        for (int m = 0; m < 2; m++) {
+                            out.write(prodType(pt) + ',' + product(p) + ',' + pack(k) + ',' + transportMode(m) + ','
+                                + rate(random) + '\n');
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    List<RateTable> rateTables(long seed) {
+        Random random = new Random(seed);
+        List<RateTable> rates = new ArrayList<>(rows);
+        for (int p = 0; p < products; p++) {
+            for (int t = 0; t < 10; t++) {
+                for (int s = 0; s < 10; s++) {
+                    RateTable rate = new RateTable();
+                    rate.setProduct(product(p));
+                    rate.setTrimType(trimType(t));
+                    rate.setRmSpec(rmSpec(s));
+                    rate.setRatePerKg(rate(random));
+                    rates.add(rate);
+                }
+            }
+        }
+        return rates;
+    }
+
+    List<PackagingRate> packagingRates(long seed) {
+        Random random = new Random(seed);
+        List<PackagingRate> rates = new ArrayList<>(rows);
+        for (int p = 0; p < products; p++) {
+            for (int pt = 0; pt < 2; pt++) {
+                for (int k = 0; k < 25; k++) {
+                    for (int m = 0; m < 2; m++) {
+                        PackagingRate rate = new PackagingRate();
+                        rate.setProdType(prodType(pt));
+                        rate.setProduct(product(p));
+                        rate.setPack(pack(k));
+                        rate.setBoxQty(pack(k));
+                        rate.setTransportMode(transportMode(m));
+                        rate.setPackagingRate(rate(random));
+                        rates.add(rate);
+                    }
+                }
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Pallet, terminal, ProdaB and Encoding rates for every product and product type
+     */
+    List<ChargeRate> chargeRates(long seed) {
+        Random random = new Random(seed);
+        String[] names = {"Pallet Charge", "Terminal Charge", "ProdaB", "Encoding"};
+        List<ChargeRate> charges = new ArrayList<>(products * PROD_TYPES.length * names.length);
+        for (int p = 0; p < products; p++) {
+            for (String prodType : PROD_TYPES) {
+                for (String name : names) {
+                    ChargeRate charge = new ChargeRate();
+                    charge.setChargeName(name);
+                    charge.setProductType(prodType);
+                    charge.setProduct(product(p));
+                    charge.setRateValue(rate(random) / 10);
+                    charges.add(charge);
+                }
+            }
+        }
+        return charges;
+    }
+
+    private static double rate(Random random) {
+        return Math.round((1 + random.nextDouble() * 20) * 100) / 100.0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.procost.api.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking HTTP client for the OpenAI API with a dedicated connection pool and
+ * connect, response, read and write timeouts
+ */
+@Configuration
+public class OpenAIClientConfig {
+
+    @Value("${ai.request.timeout:30000}")
+    private int requestTimeoutMs;
+
+    @Value("${openai.connect.timeout.ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${openai.pool.max.connections:50}")
+    private int maxConnections;
+
+    @Value("${openai.pool.pending.acquire.timeout.ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${openai.pool.max.idle.ms:30000}")
+    private long maxIdleMs;
+
+    @Value("${openai.max.response.bytes:2097152}")
+    private int maxResponseBytes;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAIConnectionProvider() {
+        return ConnectionProvider.builder("openai")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .build();
+    }
+
+    @Bean
+    public WebClient openAIWebClient(ConnectionProvider openAIConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(openAIConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(requestTimeoutMs))
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(requestTimeoutMs, TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(requestTimeoutMs, TimeUnit.MILLISECONDS)));
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxResponseBytes))
+                .build();
+    }
+}
@@ -1,11 +1,17 @@
 package com.procost.api.config;
 
+import com.procost.api.service.JdbcRateLimitStore;
+import com.procost.api.service.LocalRateLimitStore;
+import com.procost.api.service.RateLimitStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import java.time.Duration;
 
 /**
  * Configuration for API rate limiting
@@ -14,11 +20,34 @@ import java.util.concurrent.ConcurrentHashMap;
 @EnableCaching
 public class RateLimitingConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitingConfig.class);
+
     /**
-     * Cache to store rate limiters by client IP address
+     * Where buckets are kept: "local" for this instance only, "jdbc" to share quotas between
+     * instances through the database
      */
+    @Value("${rate.limit.store:local}")
+    private String store;
+
+    @Value("${rate.limit.local.max.entries:100000}")
+    private int localMaxEntries;
+
+    @Value("${rate.limit.local.idle.minutes:10}")
+    private int localIdleMinutes;
+
+    @Value("${rate.limit.sweep.interval:1000}")
+    private int sweepInterval;
+
     @Bean
-    public Map<String, Object> rateLimiters() {
-        return new ConcurrentHashMap<>();
+    public RateLimitStore rateLimitStore(DataSource dataSource) {
+        if ("jdbc".equalsIgnoreCase(store)) {
+            logger.info("Rate limit buckets shared through the database");
+            return new JdbcRateLimitStore(dataSource, sweepInterval);
+        }
+        if (!"local".equalsIgnoreCase(store)) {
+            throw new IllegalArgumentException("Unknown rate.limit.store: " + store + " (expected local or jdbc)");
+        }
+        logger.info("Rate limit buckets kept in memory (max {}, idle {} min)", localMaxEntries, localIdleMinutes);
+        return new LocalRateLimitStore(localMaxEntries, Duration.ofMinutes(localIdleMinutes), sweepInterval);
     }
-} 
\ No newline at end of file
+}
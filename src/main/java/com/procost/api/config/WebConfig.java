@@ -30,10 +30,10 @@ public WebConfig(RateLimitInterceptor rateLimitInterceptor) {
 
     @Override
 public void addInterceptors(@NonNull InterceptorRegistry registry) {
-    // Apply rate limiting to all API endpoints
+    // Apply rate limiting to all API endpoints, including pricing and webhooks
     registry.addInterceptor(rateLimitInterceptor)
-            .addPathPatterns("/api/**")
+            .addPathPatterns("/api/**", "/inquiries/**", "/webhooks/**")
             // Exclude authentication endpoints to prevent login issues
-            .excludePathPatterns("/api/auth/**");
+            .excludePathPatterns("/api/auth/**", "/auth/**");
 }
 }
\ No newline at end of file
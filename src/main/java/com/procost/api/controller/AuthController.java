@@ -6,6 +6,7 @@ import com.procost.api.dto.MessageResponse;
 import com.procost.api.dto.RegisterRequest;
 import com.procost.api.model.User;
 import com.procost.api.repository.UserRepository;
+import com.procost.api.security.JwtPrincipalCache;
 import com.procost.api.service.AuthService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,9 @@ public class AuthController {
     
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private JwtPrincipalCache principalCache;
     
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
@@ -75,6 +79,7 @@ public class AuthController {
         User user = userOpt.get();
         user.setAdmin(true);
         userRepository.save(user);
+        principalCache.invalidateUser(user.getUsername());
         
         logger.info("Chaitanya has been made an admin");
         return ResponseEntity.ok(new MessageResponse("Chaitanya has been made an admin"));
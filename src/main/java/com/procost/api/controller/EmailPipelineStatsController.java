@@ -0,0 +1,62 @@
+package com.procost.api.controller;
+
+import com.procost.api.service.AIResponseCache;
+import com.procost.api.service.EmailIngestionQueue;
+import com.procost.api.service.HybridEmailProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Operational statistics of the email pipeline: the async ingestion queue, hybrid AI
+ * processing and the OpenAI response cache. Admin only.
+ */
+@RestController
+@RequestMapping("/api/admin/email-pipeline")
+@PreAuthorize("hasRole('ADMIN')")
+public class EmailPipelineStatsController {
+
+    @Autowired
+    private EmailIngestionQueue emailIngestionQueue;
+
+    @Autowired
+    private HybridEmailProcessor hybridEmailProcessor;
+
+    @Autowired
+    private AIResponseCache aiResponseCache;
+
+    @Value("${email.ingestion.async.enabled:false}")
+    private boolean asyncIngestionEnabled;
+
+    /**
+     * Worker pool and queue statistics for the async email webhook
+     */
+    @GetMapping("/queue/stats")
+    public ResponseEntity<Map<String, Object>> getEmailQueueStats() {
+        Map<String, Object> stats = emailIngestionQueue.getQueueStats();
+        stats.put("asyncEnabled", asyncIngestionEnabled);
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Hybrid AI processing statistics, including OpenAI circuit breaker state
+     */
+    @GetMapping("/ai/stats")
+    public ResponseEntity<Map<String, Object>> getAIStats() {
+        return ResponseEntity.ok(hybridEmailProcessor.getProcessingStats());
+    }
+
+    /**
+     * Hit/miss counters for the OpenAI response cache
+     */
+    @GetMapping("/ai-cache/stats")
+    public ResponseEntity<Map<String, Object>> getAICacheStats() {
+        return ResponseEntity.ok(aiResponseCache.getStats());
+    }
+}
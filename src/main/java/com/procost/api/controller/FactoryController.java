@@ -1,5 +1,8 @@
 package com.procost.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procost.api.dto.FactorySummary;
+import com.procost.api.dto.KeysetPage;
 import com.procost.api.model.ErrorResponse;
 import com.procost.api.model.Factory;
 import com.procost.api.model.PackagingRate;
@@ -10,10 +13,16 @@ import com.procost.api.repository.RateTableRepository;
 import com.procost.api.repository.ChargeRateRepository;
 import com.procost.api.service.FactoryService;
 import com.procost.api.service.ChargeRateService;
+import com.procost.api.service.RateExportService;
+import com.procost.api.service.RateRowReader;
+import com.procost.api.service.RateTableImportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.validation.annotation.Validated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +30,9 @@ import org.slf4j.LoggerFactory;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -39,18 +51,27 @@ public class FactoryController {
     private final RateTableRepository rateTableRepository;
     private final ChargeRateRepository chargeRateRepository;
     private final ChargeRateService chargeRateService;
+    private final RateTableImportService rateTableImportService;
+    private final RateExportService rateExportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public FactoryController(FactoryService factoryService, 
                             PackagingRateRepository packagingRateRepository,
                             RateTableRepository rateTableRepository,
                             ChargeRateRepository chargeRateRepository,
-                            ChargeRateService chargeRateService) {
+                            ChargeRateService chargeRateService,
+                            RateTableImportService rateTableImportService,
+                            RateExportService rateExportService,
+                            ObjectMapper objectMapper) {
         this.factoryService = factoryService;
         this.packagingRateRepository = packagingRateRepository;
         this.rateTableRepository = rateTableRepository;
         this.chargeRateRepository = chargeRateRepository;
         this.chargeRateService = chargeRateService;
+        this.rateTableImportService = rateTableImportService;
+        this.rateExportService = rateExportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -75,6 +96,14 @@ public class FactoryController {
         }
     }
 
+    /**
+     * Factories with row counts and last rate change, without their rate rows
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<List<FactorySummary>> getFactorySummaries() {
+        return ResponseEntity.ok(factoryService.getFactorySummaries());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Factory> getFactoryById(
             @PathVariable @NotNull @Min(1) Long id) {
@@ -274,6 +303,193 @@ public class FactoryController {
         }
     }
 
+    /**
+     * Make the factory's packaging rates match the given list and return what changed
+     */
+    @PutMapping("/{id}/packaging-rates")
+    public ResponseEntity<Map<String, Object>> syncPackagingRates(
+            @PathVariable @NotNull @Min(1) Long id,
+            @Valid @RequestBody List<PackagingRate> packagingRates) {
+        return ResponseEntity.ok(factoryService.syncPackagingRates(id, packagingRates).toMap());
+    }
+
+    /**
+     * Make the factory's rate tables match the given list and return what changed
+     */
+    @PutMapping("/{id}/rate-tables")
+    public ResponseEntity<Map<String, Object>> syncRateTables(
+            @PathVariable @NotNull @Min(1) Long id,
+            @Valid @RequestBody List<RateTable> rateTables) {
+        return ResponseEntity.ok(factoryService.syncRateTables(id, rateTables).toMap());
+    }
+
+    /**
+     * Replace the factory's rate tables from a CSV (header line first) or NDJSON request body
+     */
+    @PostMapping("/{id}/rate-tables/import")
+    public ResponseEntity<?> importRateTables(
+            @PathVariable @NotNull @Min(1) Long id,
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(required = false) String format) throws IOException {
+        return importRates(id, RateTableImportService.Table.RATE_TABLES, body, contentType, format);
+    }
+
+    /**
+     * Replace the factory's packaging rates from a CSV (header line first) or NDJSON request body
+     */
+    @PostMapping("/{id}/packaging-rates/import")
+    public ResponseEntity<?> importPackagingRates(
+            @PathVariable @NotNull @Min(1) Long id,
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(required = false) String format) throws IOException {
+        return importRates(id, RateTableImportService.Table.PACKAGING_RATES, body, contentType, format);
+    }
+
+    private ResponseEntity<?> importRates(Long id, RateTableImportService.Table table, InputStream body,
+                                          String contentType, String format) throws IOException {
+        RateRowReader.Format rowFormat;
+        try {
+            rowFormat = format != null ? RateRowReader.Format.fromName(format) : importFormatOf(contentType);
+        } catch (IllegalArgumentException e) {
+            return importError("Unsupported import format: " + format + " (use csv or ndjson)");
+        }
+
+        try {
+            return ResponseEntity.ok(rateTableImportService.importRates(id, table, body, rowFormat));
+        } catch (RateRowReader.MalformedRowException e) {
+            logger.warn("Rejected {} import for factory {}: {}", table, id, e.getMessage());
+            return importError(e.getMessage());
+        }
+    }
+
+    /**
+     * NDJSON uploads are recognised by their content type; anything else is read as CSV
+     */
+    private static RateRowReader.Format importFormatOf(String contentType) {
+        if (contentType != null && (contentType.toLowerCase().startsWith("application/x-ndjson")
+                || contentType.toLowerCase().startsWith("application/ndjson"))) {
+            return RateRowReader.Format.NDJSON;
+        }
+        return RateRowReader.Format.CSV;
+    }
+
+    private static ResponseEntity<ErrorResponse> importError(String message) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setStatus(HttpStatus.BAD_REQUEST.value());
+        errorResponse.setMessage("Error importing rates: " + message);
+        errorResponse.setTimestamp(LocalDateTime.now());
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+    /**
+     * Rate table rows in id order, one page at a time; pass the returned nextCursor as "after"
+     */
+    @GetMapping("/{id}/rate-tables/page")
+    public ResponseEntity<KeysetPage<RateTable>> getRateTablePage(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) String trimType,
+            @RequestParam(required = false) String rmSpec) {
+        return ResponseEntity.ok(factoryService.getRateTablePage(id, after, KeysetPage.clampLimit(limit),
+            product, trimType, rmSpec));
+    }
+
+    /**
+     * Packaging rate rows in id order, one page at a time; pass the returned nextCursor as "after"
+     */
+    @GetMapping("/{id}/packaging-rates/page")
+    public ResponseEntity<KeysetPage<PackagingRate>> getPackagingRatePage(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String prodType,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) String pack,
+            @RequestParam(required = false) String transportMode) {
+        return ResponseEntity.ok(factoryService.getPackagingRatePage(id, after, KeysetPage.clampLimit(limit),
+            prodType, product, pack, transportMode));
+    }
+
+    /**
+     * Charge rate rows in id order, one page at a time; pass the returned nextCursor as "after"
+     */
+    @GetMapping("/{id}/charge-rates/page")
+    public ResponseEntity<KeysetPage<ChargeRate>> getChargeRatePage(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String chargeName,
+            @RequestParam(required = false) String productType,
+            @RequestParam(required = false) String product) {
+        return ResponseEntity.ok(chargeRateService.getChargeRatePage(id, after, KeysetPage.clampLimit(limit),
+            chargeName, productType, product));
+    }
+
+    /**
+     * Stream the factory's rate tables as NDJSON or CSV, optionally gzipped
+     */
+    @GetMapping("/{id}/rate-tables/export")
+    public ResponseEntity<StreamingResponseBody> exportRateTables(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return exportRates(id, RateExportService.Table.RATE_TABLES, format, gzip);
+    }
+
+    /**
+     * Stream the factory's packaging rates as NDJSON or CSV, optionally gzipped
+     */
+    @GetMapping("/{id}/packaging-rates/export")
+    public ResponseEntity<StreamingResponseBody> exportPackagingRates(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return exportRates(id, RateExportService.Table.PACKAGING_RATES, format, gzip);
+    }
+
+    /**
+     * Stream the factory's charge rates as NDJSON or CSV, optionally gzipped
+     */
+    @GetMapping("/{id}/charge-rates/export")
+    public ResponseEntity<StreamingResponseBody> exportChargeRates(
+            @PathVariable @NotNull @Min(1) Long id,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return exportRates(id, RateExportService.Table.CHARGE_RATES, format, gzip);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportRates(Long id, RateExportService.Table table,
+                                                              String format, boolean gzip) {
+        RateRowReader.Format rowFormat;
+        try {
+            rowFormat = RateRowReader.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            ErrorResponse errorResponse = new ErrorResponse();
+            errorResponse.setStatus(HttpStatus.BAD_REQUEST.value());
+            errorResponse.setMessage("Unsupported export format: " + format + " (use csv or ndjson)");
+            errorResponse.setTimestamp(LocalDateTime.now());
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, errorResponse));
+        }
+        rateExportService.checkFactory(id);
+
+        boolean csv = rowFormat == RateRowReader.Format.CSV;
+        String fileName = "factory-" + id + "-" + table.getFileName() + (csv ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? new MediaType("application", "gzip")
+            : csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        StreamingResponseBody body = out -> rateExportService.export(id, table, rowFormat, gzip, out);
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .body(body);
+    }
+
     @GetMapping("/{id}/all-packaging-rates")
     public ResponseEntity<List<PackagingRate>> getAllPackagingRates(@PathVariable Long id) {
         try {
@@ -1,16 +1,22 @@
 package com.procost.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.procost.api.dto.*;
 import com.procost.api.service.CalculatorService;
 import com.procost.api.service.DataLoaderService;
 import com.procost.api.service.InquiryService;
+import com.procost.api.service.PricingSimulator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/inquiries")
@@ -26,6 +32,12 @@ public class InquiryController {
     @Autowired
     private CalculatorService calculatorService;
     
+    @Autowired
+    private PricingSimulator pricingSimulator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping("/products")
     public ResponseEntity<List<String>> getProductOptions() {
         return ResponseEntity.ok(dataLoaderService.getProductOptions());
@@ -65,6 +77,11 @@ public class InquiryController {
         return ResponseEntity.ok(dataLoaderService.getTransportModes());
     }
     
+    @GetMapping("/rateVersion")
+    public ResponseEntity<Map<String, Object>> getRateVersion() {
+        return ResponseEntity.ok(dataLoaderService.getSnapshot().toMap());
+    }
+    
     @GetMapping("/calculateRates")
     public ResponseEntity<CalculateRatesResponse> calculateRates(
             @RequestParam String product,
@@ -72,7 +89,13 @@ public class InquiryController {
             @RequestParam String rmSpec,
             @RequestParam String prodType,
             @RequestParam String packType,
-            @RequestParam String transportMode) {
+            @RequestParam String transportMode,
+            @RequestParam(required = false) Long factoryId) {
+        if (factoryId != null) {
+            return ResponseEntity.ok(calculatorService.calculateRates(
+                    factoryId, product, trimType, rmSpec, prodType, packType, transportMode
+            ));
+        }
         return ResponseEntity.ok(calculatorService.calculateRates(
                 product, trimType, rmSpec, prodType, packType, transportMode
         ));
@@ -80,10 +103,46 @@ public class InquiryController {
     
     @PostMapping("/calculateCharges")
     public ResponseEntity<CalculateChargesResponse> calculateCharges(
-            @Valid @RequestBody CalculateChargesRequest request) {
+            @Valid @RequestBody CalculateChargesRequest request,
+            @RequestParam(required = false) Long factoryId) {
+        if (factoryId != null) {
+            return ResponseEntity.ok(calculatorService.calculateCharges(factoryId, request));
+        }
         return ResponseEntity.ok(calculatorService.calculateCharges(request));
     }
     
+    @PostMapping("/calculateBatch")
+    public ResponseEntity<BatchCalculateResponse> calculateBatch(
+            @Valid @RequestBody BatchCalculateRequest request) {
+        return ResponseEntity.ok(calculatorService.calculateBatch(request));
+    }
+    
+    /**
+     * Cost of every rate combination matching the filters at the given yield and weight,
+     * streamed as CSV (default) or JSON with format=json
+     */
+    @GetMapping("/simulate")
+    public ResponseEntity<StreamingResponseBody> simulate(PricingSimulationRequest request) {
+        boolean json = "json".equalsIgnoreCase(request.getFormat());
+        if (!json && !"csv".equalsIgnoreCase(request.getFormat())) {
+            return badRequest("Unsupported format: " + request.getFormat() + " (use csv or json)");
+        }
+        
+        PricingSimulator.Simulation simulation;
+        try {
+            simulation = pricingSimulator.prepare(request);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        
+        StreamingResponseBody body = json ? simulation::writeJson : simulation::writeCsv;
+        return ResponseEntity.ok()
+                .contentType(json ? MediaType.APPLICATION_JSON : new MediaType("text", "csv"))
+                .header("X-Rate-Version", String.valueOf(simulation.getRateVersion()))
+                .header("X-Combination-Count", String.valueOf(simulation.getCombinations()))
+                .body(body);
+    }
+    
     @GetMapping("/user")
     public ResponseEntity<List<InquiryResponse>> getUserInquiries() {
         return ResponseEntity.ok(inquiryService.getUserInquiries());
@@ -93,4 +152,14 @@ public class InquiryController {
     public ResponseEntity<MessageResponse> saveInquiry(@Valid @RequestBody InquiryRequest request) {
         return ResponseEntity.ok(inquiryService.saveInquiry(request));
     }
+    
+    private ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        errorResponse.put("success", false);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, errorResponse));
+    }
 }
\ No newline at end of file
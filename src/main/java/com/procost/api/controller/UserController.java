@@ -4,6 +4,7 @@ import com.procost.api.model.User;
 import com.procost.api.dto.RegisterRequest;
 import com.procost.api.dto.MessageResponse;
 import com.procost.api.repository.UserRepository;
+import com.procost.api.security.JwtPrincipalCache;
 import com.procost.api.service.AuthService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,9 @@ public class UserController {
     @Autowired
     private PasswordEncoder encoder;
     
+    @Autowired
+    private JwtPrincipalCache principalCache;
+    
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public List<User> getAllUsers() {
@@ -142,6 +146,8 @@ public class UserController {
         if (isAdmin != null) {
             user.setAdmin(isAdmin);
             userRepository.save(user);
+            // Tokens already issued must pick up the new role on their next request
+            principalCache.invalidateUser(user.getUsername());
             return ResponseEntity.ok(user);
         } else {
             return ResponseEntity
@@ -181,6 +187,7 @@ public class UserController {
             
             logger.info("Deleting user: {}, ID: {}", userToDelete.getUsername(), userToDelete.getId());
             userRepository.deleteById(id);
+            principalCache.invalidateUser(userToDelete.getUsername());
             logger.info("User deleted successfully: {}", userToDelete.getUsername());
             
             return ResponseEntity.ok(new MessageResponse("User deleted successfully!"));
@@ -3,10 +3,13 @@ package com.procost.api.controller;
 import com.procost.api.dto.ZapierEmailWebhook;
 import com.procost.api.model.*;
 import com.procost.api.service.EmailEnquiryService;
+import com.procost.api.service.EmailIngestionQueue;
 import com.procost.api.service.QuoteService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/webhooks/zapier")
@@ -28,6 +32,15 @@ public class ZapierWebhookController {
     @Autowired
     private QuoteService quoteService;
     
+    @Autowired
+    private EmailIngestionQueue emailIngestionQueue;
+    
+    @Value("${email.ingestion.async.enabled:false}")
+    private boolean asyncIngestionEnabled;
+    
+    @Value("${email.ingestion.retry.after.seconds:30}")
+    private int retryAfterSeconds;
+    
     /**
      * Webhook for incoming Outlook email enquiries
      * Zapier triggers this when new emails arrive
@@ -38,6 +51,10 @@ public class ZapierWebhookController {
             logger.info("Received email webhook from Zapier: Subject={}, From={}", 
                        webhook.getSubject(), webhook.getFromEmail());
             
+            if (asyncIngestionEnabled) {
+                return acceptEmailForProcessing(webhook);
+            }
+            
             // Process the email enquiry
             EmailEnquiry enquiry = emailEnquiryService.processIncomingEmail(webhook);
             
@@ -65,6 +82,41 @@ public class ZapierWebhookController {
         }
     }
     
+    /**
+     * Processing status of an enquiry accepted by the async email webhook
+     * Zapier polls this until processing_status is COMPLETED or FAILED. The endpoint is public
+     * and enquiry ids are guessable, so it reports progress only, never customer details.
+     */
+    @GetMapping("/email-status/{enquiryId}")
+    public ResponseEntity<?> getEmailStatus(@PathVariable String enquiryId) {
+        Optional<EmailEnquiry> enquiryOpt = emailEnquiryService.findByEnquiryId(enquiryId);
+        
+        if (!enquiryOpt.isPresent()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Enquiry not found: " + enquiryId);
+            errorResponse.put("success", false);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        
+        EmailEnquiry enquiry = enquiryOpt.get();
+        IngestionStatus ingestionStatus = enquiry.getIngestionStatus() != null ?
+            enquiry.getIngestionStatus() : IngestionStatus.COMPLETED;
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("enquiry_id", enquiry.getEnquiryId());
+        response.put("processing_status", ingestionStatus.toString());
+        response.put("enquiry_status", enquiry.getStatus().toString());
+        response.put("success", ingestionStatus != IngestionStatus.FAILED);
+        
+        if (ingestionStatus == IngestionStatus.COMPLETED) {
+            response.put("items_count", enquiry.getEnquiryItems().size());
+        } else if (ingestionStatus == IngestionStatus.FAILED) {
+            response.put("error", enquiry.getProcessingNotes());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Webhook for quote acceptance emails
      * Triggered when customer replies accepting a quote
@@ -184,6 +236,33 @@ public class ZapierWebhookController {
     }
     
     // Helper methods
+    private ResponseEntity<?> acceptEmailForProcessing(ZapierEmailWebhook webhook) {
+        EmailEnquiry enquiry = emailEnquiryService.acceptIncomingEmail(webhook);
+        
+        if (!emailIngestionQueue.enqueue(enquiry.getEnquiryId())) {
+            // Queue is full - drop the row and let Zapier retry later
+            emailEnquiryService.discardEnquiry(enquiry);
+            
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Email processing queue is full, please retry later");
+            errorResponse.put("success", false);
+            errorResponse.put("timestamp", System.currentTimeMillis());
+            
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(errorResponse);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("enquiry_id", enquiry.getEnquiryId());
+        response.put("processing_status", IngestionStatus.QUEUED.toString());
+        response.put("status_url", "/webhooks/zapier/email-status/" + enquiry.getEnquiryId());
+        response.put("success", true);
+        response.put("message", "Email enquiry accepted for processing");
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+    
     private String extractQuoteReference(String emailBody) {
         // Extract quote reference from email body using regex
         // Looking for patterns like "QUO-2024-001" or "Quote: QUO-2024-001"
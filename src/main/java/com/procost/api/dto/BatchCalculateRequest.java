@@ -0,0 +1,109 @@
+package com.procost.api.dto;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class BatchCalculateRequest {
+    
+    // Optional; price against this factory's tables instead of the standard ones
+    private Long factoryId;
+    
+    @NotEmpty
+    @Size(max = 5000)
+    private List<LineDto> lines;
+    
+    public Long getFactoryId() {
+        return factoryId;
+    }
+    
+    public void setFactoryId(Long factoryId) {
+        this.factoryId = factoryId;
+    }
+    
+    public List<LineDto> getLines() {
+        return lines;
+    }
+    
+    public void setLines(List<LineDto> lines) {
+        this.lines = lines;
+    }
+    
+    /**
+     * One inquiry line. Lines are checked individually so one bad line does not reject the batch.
+     */
+    public static class LineDto {
+        private String product;
+        private String trimType;
+        private String rmSpec;
+        private String prodType;
+        private String packType;
+        private String transportMode;
+        private Double weight;
+        private CalculateChargesRequest.OptionsDto options;
+        
+        public String getProduct() {
+            return product;
+        }
+        
+        public void setProduct(String product) {
+            this.product = product;
+        }
+        
+        public String getTrimType() {
+            return trimType;
+        }
+        
+        public void setTrimType(String trimType) {
+            this.trimType = trimType;
+        }
+        
+        public String getRmSpec() {
+            return rmSpec;
+        }
+        
+        public void setRmSpec(String rmSpec) {
+            this.rmSpec = rmSpec;
+        }
+        
+        public String getProdType() {
+            return prodType;
+        }
+        
+        public void setProdType(String prodType) {
+            this.prodType = prodType;
+        }
+        
+        public String getPackType() {
+            return packType;
+        }
+        
+        public void setPackType(String packType) {
+            this.packType = packType;
+        }
+        
+        public String getTransportMode() {
+            return transportMode;
+        }
+        
+        public void setTransportMode(String transportMode) {
+            this.transportMode = transportMode;
+        }
+        
+        public Double getWeight() {
+            return weight;
+        }
+        
+        public void setWeight(Double weight) {
+            this.weight = weight;
+        }
+        
+        public CalculateChargesRequest.OptionsDto getOptions() {
+            return options;
+        }
+        
+        public void setOptions(CalculateChargesRequest.OptionsDto options) {
+            this.options = options;
+        }
+    }
+}
@@ -3,12 +3,20 @@ package com.procost.api.dto;
 public class CalculateRatesResponse {
     private Double filingRate;
     private Double packagingRate;
+    // Version of the rate tables that produced these rates
+    private Long rateVersion;
 
     public CalculateRatesResponse(Double filingRate, Double packagingRate) {
         this.filingRate = filingRate;
         this.packagingRate = packagingRate;
     }
 
+    public CalculateRatesResponse(Double filingRate, Double packagingRate, Long rateVersion) {
+        this.filingRate = filingRate;
+        this.packagingRate = packagingRate;
+        this.rateVersion = rateVersion;
+    }
+
     public Double getFilingRate() {
         return filingRate;
     }
@@ -24,4 +32,12 @@ public class CalculateRatesResponse {
     public void setPackagingRate(Double packagingRate) {
         this.packagingRate = packagingRate;
     }
+
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
 }
\ No newline at end of file
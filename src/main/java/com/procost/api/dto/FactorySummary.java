@@ -0,0 +1,61 @@
+package com.procost.api.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A factory without its rate rows, for lists and dropdowns
+ */
+public class FactorySummary {
+    private Long id;
+    private String name;
+    private String location;
+    private String currency;
+    private long rateTableCount;
+    private long packagingRateCount;
+    private long chargeRateCount;
+    private LocalDateTime ratesUpdatedAt;
+
+    public FactorySummary(Long id, String name, String location, String currency, long rateTableCount,
+                          long packagingRateCount, long chargeRateCount, LocalDateTime ratesUpdatedAt) {
+        this.id = id;
+        this.name = name;
+        this.location = location;
+        this.currency = currency;
+        this.rateTableCount = rateTableCount;
+        this.packagingRateCount = packagingRateCount;
+        this.chargeRateCount = chargeRateCount;
+        this.ratesUpdatedAt = ratesUpdatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public long getRateTableCount() {
+        return rateTableCount;
+    }
+
+    public long getPackagingRateCount() {
+        return packagingRateCount;
+    }
+
+    public long getChargeRateCount() {
+        return chargeRateCount;
+    }
+
+    public LocalDateTime getRatesUpdatedAt() {
+        return ratesUpdatedAt;
+    }
+}
@@ -0,0 +1,62 @@
+package com.procost.api.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of rows ordered by id. Pass nextCursor as the "after" parameter to get the next page;
+ * it is null on the last page.
+ */
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 5000;
+
+    private final List<T> items;
+    private final Long nextCursor;
+    private final boolean hasMore;
+    private final int limit;
+
+    public KeysetPage(List<T> items, Long nextCursor, boolean hasMore, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+    }
+
+    /**
+     * Page from a query that fetched up to limit + 1 rows; the extra row only shows that more follow
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, Function<T, Long> id) {
+        boolean hasMore = fetched.size() > limit;
+        List<T> items = hasMore ? fetched.subList(0, limit) : fetched;
+        Long nextCursor = hasMore ? id.apply(items.get(items.size() - 1)) : null;
+        return new KeysetPage<>(items, nextCursor, hasMore, limit);
+    }
+
+    /**
+     * Requested page size limited to 1..MAX_LIMIT
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,120 @@
+package com.procost.api.dto;
+
+/**
+ * Query for /inquiries/simulate. Every filter is optional and matches ignoring case;
+ * leaving them all out evaluates the full product x trim x rmSpec x pack x transport grid.
+ */
+public class PricingSimulationRequest {
+    
+    private Long factoryId;
+    // Percent of raw material weight that ends up as product
+    private Double yieldValue;
+    // Finished product weight in kg
+    private Double weight;
+    private boolean prodaB;
+    private boolean encoding;
+    private String format = "csv";
+    
+    private String product;
+    private String trimType;
+    private String rmSpec;
+    private String prodType;
+    private String packType;
+    private String transportMode;
+    
+    public Long getFactoryId() {
+        return factoryId;
+    }
+    
+    public void setFactoryId(Long factoryId) {
+        this.factoryId = factoryId;
+    }
+    
+    public Double getYieldValue() {
+        return yieldValue;
+    }
+    
+    public void setYieldValue(Double yieldValue) {
+        this.yieldValue = yieldValue;
+    }
+    
+    public Double getWeight() {
+        return weight;
+    }
+    
+    public void setWeight(Double weight) {
+        this.weight = weight;
+    }
+    
+    public boolean isProdaB() {
+        return prodaB;
+    }
+    
+    public void setProdaB(boolean prodaB) {
+        this.prodaB = prodaB;
+    }
+    
+    public boolean isEncoding() {
+        return encoding;
+    }
+    
+    public void setEncoding(boolean encoding) {
+        this.encoding = encoding;
+    }
+    
+    public String getFormat() {
+        return format;
+    }
+    
+    public void setFormat(String format) {
+        this.format = format;
+    }
+    
+    public String getProduct() {
+        return product;
+    }
+    
+    public void setProduct(String product) {
+        this.product = product;
+    }
+    
+    public String getTrimType() {
+        return trimType;
+    }
+    
+    public void setTrimType(String trimType) {
+        this.trimType = trimType;
+    }
+    
+    public String getRmSpec() {
+        return rmSpec;
+    }
+    
+    public void setRmSpec(String rmSpec) {
+        this.rmSpec = rmSpec;
+    }
+    
+    public String getProdType() {
+        return prodType;
+    }
+    
+    public void setProdType(String prodType) {
+        this.prodType = prodType;
+    }
+    
+    public String getPackType() {
+        return packType;
+    }
+    
+    public void setPackType(String packType) {
+        this.packType = packType;
+    }
+    
+    public String getTransportMode() {
+        return transportMode;
+    }
+    
+    public void setTransportMode(String transportMode) {
+        this.transportMode = transportMode;
+    }
+}
@@ -1,47 +1,44 @@
 package com.procost.api.interceptor;
 
-import io.github.bucket4j.Bandwidth;
+import com.procost.api.service.RateLimitService;
+import com.procost.api.service.RateLimitStore;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.github.bucket4j.ConsumptionProbe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.time.Duration;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Interceptor to apply rate limiting to API endpoints
+ * Interceptor to apply rate limiting to API endpoints. The policy (bucket size, refill and token
+ * cost) comes from RateLimitService by the caller's role and the matched route; signed-in users
+ * are limited per username, everyone else per client IP.
  */
 @Component
 public class RateLimitInterceptor implements HandlerInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
 
-    @Value("${rate.limit.capacity:30}")
-    private int capacity;
-    
-    @Value("${rate.limit.refill.tokens:30}")
-    private int refillTokens;
-    
-    @Value("${rate.limit.refill.duration.minutes:1}")
-    private int refillDurationMinutes;
-    
     // Add rate limit headers
     private static final String HEADER_LIMIT = "X-Rate-Limit-Limit";
     private static final String HEADER_REMAINING = "X-Rate-Limit-Remaining";
     private static final String HEADER_RESET = "X-Rate-Limit-Reset";
+    private static final String HEADER_POLICY = "X-Rate-Limit-Policy";
 
-    @Lazy
     @Autowired
-    private Map<String, Object> rateLimiters;
+    private RateLimitStore rateLimitStore;
+
+    @Autowired
+    private RateLimitService rateLimitService;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -50,30 +47,38 @@ public class RateLimitInterceptor implements HandlerInterceptor {
             return true;
         }
         
-        // Get client IP address
-        String clientIp = getClientIP(request);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        RateLimitService.Role role = rateLimitService.roleOf(auth);
+        RateLimitService.Policy policy = rateLimitService.resolve(
+            (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), role);
+        String client = role == RateLimitService.Role.ANONYMOUS ? "ip:" + getClientIP(request) : "user:" + auth.getName();
         
-        // Get or create bucket for this client
-        Bucket bucket = getOrCreateBucket(clientIp);
+        ConsumptionProbe probe;
+        try {
+            // The store creates the bucket atomically on the first request from this client
+            Bucket bucket = rateLimitStore.getBucket(policy.getName() + ":" + client, policy::getConfiguration);
+            probe = bucket.tryConsumeAndReturnRemaining(policy.getCost());
+        } catch (RuntimeException e) {
+            // An unavailable shared store must not take the API down with it
+            logger.warn("Rate limit store unavailable, allowing request from {}: {}", client, e.getMessage());
+            return true;
+        }
         
         // Add rate limit headers
-        response.addHeader(HEADER_LIMIT, String.valueOf(capacity));
-        
-        // Get remaining tokens and add to response header
-        long remainingTokens = bucket.getAvailableTokens();
-        response.addHeader(HEADER_REMAINING, String.valueOf(remainingTokens));
-        
-        // Add reset time header (when bucket will be refilled)
-        long resetTimeSeconds = Duration.ofMinutes(refillDurationMinutes).getSeconds();
-        response.addHeader(HEADER_RESET, String.valueOf(resetTimeSeconds));
+        response.addHeader(HEADER_POLICY, policy.getName());
+        response.addHeader(HEADER_LIMIT, String.valueOf(policy.getCapacity()));
+        response.addHeader(HEADER_REMAINING, String.valueOf(probe.getRemainingTokens()));
         
-        // Try to consume a token
-        if (bucket.tryConsume(1)) {
+        if (probe.isConsumed()) {
             // Request allowed, let it through
+            response.addHeader(HEADER_RESET, String.valueOf(policy.getRefillPeriod().getSeconds()));
             return true;
         } else {
-            // Rate limit exceeded
-            logger.warn("Rate limit exceeded for IP: {}", clientIp);
+            // Rate limit exceeded; tell the client when enough tokens for this request arrive
+            long waitSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
+            logger.warn("Rate limit exceeded for {} on {} (cost {})", client, policy.getName(), policy.getCost());
+            response.addHeader(HEADER_RESET, String.valueOf(waitSeconds));
+            response.addHeader("Retry-After", String.valueOf(waitSeconds));
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":\"Rate limit exceeded. Please try again later.\"}");
@@ -81,23 +86,6 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         }
     }
 
-    /**
-     * Get or create a rate limiter bucket for a specific client
-     */
-    private Bucket getOrCreateBucket(String clientIp) {
-        if (rateLimiters.containsKey(clientIp)) {
-            return (Bucket) rateLimiters.get(clientIp);
-        } else {
-            // Create new bucket with capacity and refill rate from properties
-            Bandwidth limit = Bandwidth.classic(capacity, 
-                                               Refill.intervally(refillTokens, 
-                                                              Duration.ofMinutes(refillDurationMinutes)));
-            Bucket bucket = Bucket.builder().addLimit(limit).build();
-            rateLimiters.put(clientIp, bucket);
-            return bucket;
-        }
-    }
-
     /**
      * Extract client IP from request, handling proxies/load balancers
      */
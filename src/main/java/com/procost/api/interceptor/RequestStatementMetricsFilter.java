@@ -0,0 +1,65 @@
+package com.procost.api.interceptor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements Hibernate ran for each request, by route, as the
+ * http.server.statements summary. Runs ahead of the security filters so the user lookup for the
+ * token is counted too; work a streaming response does after the handler returns is not.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RequestStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestStatementMetricsFilter.class);
+
+    public static final String STATEMENTS_SUMMARY = "http.server.statements";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Requests running more statements than this are logged, to catch N+1 query patterns
+    @Value("${metrics.statements.warn.threshold:200}")
+    private int warnThreshold;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = SqlStatementCounter.stop();
+            if (statements >= 0) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+                DistributionSummary.builder(STATEMENTS_SUMMARY)
+                    .description("SQL statements run by Hibernate per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+                if (statements > warnThreshold) {
+                    logger.warn("{} {} ran {} SQL statements", request.getMethod(), uri, statements);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.procost.api.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted OpenAI response, keyed by a hash of model, prompt template version and normalized input
+ */
+@Entity
+@Table(name = "ai_response_cache", indexes = {
+    @Index(name = "idx_ai_response_cache_created_at", columnList = "createdAt")
+})
+public class AIResponseCacheEntry {
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+    
+    @Column(length = 100, nullable = false)
+    private String promptVersion;
+    
+    @Column(length = 100, nullable = false)
+    private String model;
+    
+    @Lob
+    @Column(nullable = false)
+    private String response;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public AIResponseCacheEntry() {}
+    
+    public AIResponseCacheEntry(String cacheKey, String promptVersion, String model, String response, LocalDateTime createdAt) {
+        this.cacheKey = cacheKey;
+        this.promptVersion = promptVersion;
+        this.model = model;
+        this.response = response;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+    
+    public String getPromptVersion() { return promptVersion; }
+    public void setPromptVersion(String promptVersion) { this.promptVersion = promptVersion; }
+    
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+    
+    public String getResponse() { return response; }
+    public void setResponse(String response) { this.response = response; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -19,7 +19,8 @@ public class EnquiryItem {
     @Size(max = 255)
     private String customerSkuReference;
     
-    @Lob
+    // Plain text rather than @Lob, so the backfill's JDBC inserts and JPA read it the same way
+    @Column(columnDefinition = "text")
     private String productDescription;
     
     private Integer requestedQuantity;
@@ -27,7 +28,7 @@ public class EnquiryItem {
     @Size(max = 255)
     private String deliveryRequirement;
     
-    @Lob
+    @Column(columnDefinition = "text")
     private String specialInstructions;
     
     // Mapped to our system
@@ -67,7 +68,7 @@ public class EnquiryItem {
     @Size(max = 20)
     private String mappingConfidence; // HIGH, MEDIUM, LOW, MANUAL_REVIEW
     
-    @Lob
+    @Column(columnDefinition = "text")
     private String aiProcessingNotes;
     
     private LocalDateTime processedAt;
@@ -3,8 +3,10 @@ package com.procost.api.model;
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -57,6 +59,11 @@ public class Factory {
     @DecimalMin(value = "0.0", inclusive = true, message = "Electricity fee percentage must be greater than or equal to 0")
     private Double electricityFeePercentage = 0.0;
     
+    // Last change to the factory's rates or charges; written only by FactoryRepository.touchRatesUpdatedAt
+    @Column(name = "rates_updated_at", insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime ratesUpdatedAt;
+    
     @OneToMany(mappedBy = "factory", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<PackagingRate> packagingRates = new ArrayList<>();
@@ -163,6 +170,14 @@ public class Factory {
         this.electricityFeePercentage = electricityFeePercentage;
     }
     
+    public LocalDateTime getRatesUpdatedAt() {
+        return ratesUpdatedAt;
+    }
+    
+    public void setRatesUpdatedAt(LocalDateTime ratesUpdatedAt) {
+        this.ratesUpdatedAt = ratesUpdatedAt;
+    }
+    
     public List<PackagingRate> getPackagingRates() {
         return packagingRates;
     }
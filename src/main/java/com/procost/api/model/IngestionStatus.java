@@ -0,0 +1,18 @@
+package com.procost.api.model;
+
+public enum IngestionStatus {
+    QUEUED("Email accepted and waiting for a worker"),
+    PROCESSING("Email is being processed by a worker"),
+    COMPLETED("Email processed successfully"),
+    FAILED("Email processing failed");
+    
+    private final String description;
+    
+    IngestionStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
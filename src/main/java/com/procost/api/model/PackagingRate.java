@@ -5,7 +5,10 @@ import javax.validation.constraints.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "packaging_rates")
+@Table(name = "packaging_rates", indexes = {
+    @Index(name = "idx_packaging_rates_factory_id", columnList = "factory_id, id"),
+    @Index(name = "idx_packaging_rates_factory_product", columnList = "factory_id, prodType, product, id")
+})
 public class PackagingRate {
     
     @Id
@@ -0,0 +1,40 @@
+package com.procost.api.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Shared state of one rate limit bucket, read and written by JdbcRateLimitStore under a row lock.
+ * The entity only declares the table; rows are never loaded through JPA.
+ */
+@Entity
+@Table(name = "rate_limit_buckets", indexes = {
+    @Index(name = "idx_rate_limit_buckets_expires_at", columnList = "expiresAt")
+})
+public class RateLimitBucketState {
+    @Id
+    @Column(length = 255)
+    private String bucketKey;
+    
+    // Serialized bucket4j state; null until the first request for the key has been counted
+    @Column(length = 2048)
+    private byte[] state;
+    
+    // When the bucket will have refilled completely, after which the row can be deleted
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public RateLimitBucketState() {}
+    
+    public String getBucketKey() {
+        return bucketKey;
+    }
+    
+    public byte[] getState() {
+        return state;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
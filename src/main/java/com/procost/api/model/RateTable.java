@@ -5,7 +5,10 @@ import javax.validation.constraints.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "rate_tables")
+@Table(name = "rate_tables", indexes = {
+    @Index(name = "idx_rate_tables_factory_id", columnList = "factory_id, id"),
+    @Index(name = "idx_rate_tables_factory_product", columnList = "factory_id, product, id")
+})
 public class RateTable {
     
     @Id
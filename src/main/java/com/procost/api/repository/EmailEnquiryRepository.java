@@ -0,0 +1,40 @@
+package com.procost.api.repository;
+
+import com.procost.api.model.EmailEnquiry;
+import com.procost.api.model.IngestionStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface EmailEnquiryRepository extends JpaRepository<EmailEnquiry, Long> {
+    
+    /**
+     * Find enquiry by its public reference (ENQ-2024-001)
+     */
+    Optional<EmailEnquiry> findByEnquiryId(String enquiryId);
+    
+    /**
+     * Find enquiry by reference with its items loaded, for processing outside a session
+     */
+    @EntityGraph(attributePaths = "enquiryItems")
+    Optional<EmailEnquiry> findWithItemsByEnquiryId(String enquiryId);
+    
+    /**
+     * Which of the given Message-IDs were already imported
+     */
+    @Query("SELECT e.originalEmailId FROM EmailEnquiry e WHERE e.originalEmailId IN :originalEmailIds")
+    Set<String> findExistingOriginalEmailIds(@Param("originalEmailIds") Collection<String> originalEmailIds);
+    
+    /**
+     * Find enquiries still waiting in the ingestion pipeline
+     */
+    List<EmailEnquiry> findByIngestionStatusIn(List<IngestionStatus> statuses);
+}
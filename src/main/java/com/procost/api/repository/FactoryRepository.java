@@ -1,8 +1,15 @@
 package com.procost.api.repository;
 
+import com.procost.api.dto.FactorySummary;
 import com.procost.api.model.Factory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 
 @Repository
 public interface FactoryRepository extends JpaRepository<Factory, Long> {
@@ -12,4 +19,17 @@ public interface FactoryRepository extends JpaRepository<Factory, Long> {
     
     // Find factories by location
     java.util.List<Factory> findByLocation(String location);
+    
+    // Factories with the size of their rate tables, without loading any rate rows
+    @Query("SELECT new com.procost.api.dto.FactorySummary(f.id, f.name, f.location, f.currency, " +
+           "(SELECT COUNT(rt) FROM RateTable rt WHERE rt.factory = f), " +
+           "(SELECT COUNT(pr) FROM PackagingRate pr WHERE pr.factory = f), " +
+           "(SELECT COUNT(cr) FROM ChargeRate cr WHERE cr.factory = f), " +
+           "f.ratesUpdatedAt) FROM Factory f ORDER BY f.name")
+    java.util.List<FactorySummary> findSummaries();
+    
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE factories SET rates_updated_at = :updatedAt WHERE id = :id", nativeQuery = true)
+    int touchRatesUpdatedAt(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
 } 
\ No newline at end of file
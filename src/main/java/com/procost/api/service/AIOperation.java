@@ -0,0 +1,23 @@
+package com.procost.api.service;
+
+/**
+ * Email processing steps that can fall back to OpenAI
+ */
+public enum AIOperation {
+    CLASSIFICATION("classification"),
+    CUSTOMER_EXTRACTION("customer"),
+    PRODUCT_PARSING("products");
+    
+    private final String jsonField;
+    
+    AIOperation(String jsonField) {
+        this.jsonField = jsonField;
+    }
+    
+    /**
+     * Field holding this step's result in a combined extraction response
+     */
+    public String getJsonField() {
+        return jsonField;
+    }
+}
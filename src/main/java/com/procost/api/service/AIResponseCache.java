@@ -0,0 +1,294 @@
+package com.procost.api.service;
+
+import com.procost.api.model.AIResponseCacheEntry;
+import com.procost.api.repository.AIResponseCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache for OpenAI responses.
+ * Entries are keyed by a SHA-256 of model, prompt template version and normalized input,
+ * held in an in-memory LRU tier backed by the ai_response_cache table so they survive restarts.
+ * Concurrent requests for the same key share a single OpenAI call.
+ */
+@Service
+public class AIResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIResponseCache.class);
+
+    @Autowired
+    private AIResponseCacheRepository cacheRepository;
+
+    @Value("${ai.cache.results:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.ttl.hours:168}")
+    private long ttlHours;
+
+    @Value("${ai.cache.max.entries:10000}")
+    private int maxEntries;
+
+    @Value("${ai.cache.memory.entries:1000}")
+    private int memoryEntries;
+
+    @Value("${ai.cache.sweep.interval:100}")
+    private int sweepInterval;
+
+    private Map<String, CachedResponse> memory;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong sharedLoads = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicInteger writesSinceSweep = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        memory = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Evict expired and excess entries left over from previous runs
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOnStartup() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Build the cache key for a call. Inputs are normalized so that whitespace-only
+     * differences (re-wrapped forwards, CRLF vs LF, retried webhooks) map to the same entry.
+     */
+    public String key(String model, String promptVersion, String... inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, model);
+            update(digest, promptVersion);
+            for (String input : inputs) {
+                update(digest, normalize(input));
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Return the cached response for the key, or subscribe to the loader once and cache its result.
+     * Failures are not cached. Store lookups and writes run on the bounded elastic scheduler.
+     */
+    public Mono<String> getOrLoad(String key, String promptVersion, String model, Supplier<Mono<String>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        return Mono.fromCallable(() -> lookup(key))
+            .subscribeOn(Schedulers.boundedElastic())
+            .switchIfEmpty(Mono.defer(() -> load(key, promptVersion, model, loader)));
+    }
+
+    public Map<String, Object> getStats() {
+        long hits = memoryHits.get() + diskHits.get() + sharedLoads.get();
+        long total = hits + misses.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("sharedLoads", sharedLoads.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("memoryEntries", memorySize());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlHours", ttlHours);
+        return stats;
+    }
+
+    private Mono<String> load(String key, String promptVersion, String model, Supplier<Mono<String>> loader) {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            sharedLoads.incrementAndGet();
+            return Mono.fromFuture(existing);
+        }
+
+        misses.incrementAndGet();
+        return loader.get()
+            .publishOn(Schedulers.boundedElastic())
+            .doOnNext(response -> {
+                store(key, promptVersion, model, response);
+                pending.complete(response);
+            })
+            .doOnError(pending::completeExceptionally)
+            .doFinally(signal -> {
+                // Release waiters if the load was cancelled, e.g. by a caller timeout
+                pending.cancel(false);
+                inFlight.remove(key, pending);
+            });
+    }
+
+    private String lookup(String key) {
+        LocalDateTime now = LocalDateTime.now();
+
+        synchronized (this) {
+            CachedResponse entry = memory.get(key);
+            if (entry != null) {
+                if (!isExpired(entry.createdAt, now)) {
+                    memoryHits.incrementAndGet();
+                    return entry.response;
+                }
+                memory.remove(key);
+            }
+        }
+
+        try {
+            Optional<AIResponseCacheEntry> stored = cacheRepository.findById(key);
+            if (stored.isPresent() && !isExpired(stored.get().getCreatedAt(), now)) {
+                AIResponseCacheEntry entry = stored.get();
+                synchronized (this) {
+                    memory.put(key, new CachedResponse(entry.getResponse(), entry.getCreatedAt()));
+                }
+                diskHits.incrementAndGet();
+                return entry.getResponse();
+            }
+        } catch (Exception e) {
+            logger.warn("AI response cache lookup failed, calling OpenAI: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private void store(String key, String promptVersion, String model, String response) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            memory.put(key, new CachedResponse(response, now));
+        }
+
+        try {
+            cacheRepository.save(new AIResponseCacheEntry(key, promptVersion, model, response, now));
+            if (writesSinceSweep.incrementAndGet() >= sweepInterval) {
+                writesSinceSweep.set(0);
+                sweep();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to persist AI response cache entry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete expired entries, then trim the persistent store to its size limit
+     */
+    private void sweep() {
+        try {
+            int expired = cacheRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours));
+            long excess = cacheRepository.count() - maxEntries;
+            int trimmed = 0;
+            if (excess > 0) {
+                // Everything older than the oldest entry that stays goes in one bulk delete
+                List<LocalDateTime> keepFrom = cacheRepository.findCreatedAtOldestFirst(PageRequest.of((int) excess, 1));
+                if (!keepFrom.isEmpty()) {
+                    trimmed = cacheRepository.deleteCreatedBefore(keepFrom.get(0));
+                }
+            }
+            if (expired + trimmed > 0) {
+                evictions.addAndGet(expired + trimmed);
+                logger.info("AI response cache evicted {} expired and {} excess entries", expired, trimmed);
+            }
+        } catch (Exception e) {
+            logger.warn("AI response cache sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isExpired(LocalDateTime createdAt, LocalDateTime now) {
+        return Duration.between(createdAt, now).toHours() >= ttlHours;
+    }
+
+    private synchronized int memorySize() {
+        return memory.size();
+    }
+
+    /**
+     * Unicode NFC, unified line endings and collapsed whitespace; case is preserved
+     * because names and SKUs in the response depend on it
+     */
+    static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(input, Normalizer.Form.NFC);
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isWhitespace(ch) || ch == ' ') {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(ch);
+        }
+        return normalized.toString();
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static final class CachedResponse {
+        private final String response;
+        private final LocalDateTime createdAt;
+
+        private CachedResponse(String response, LocalDateTime createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.procost.api.service;
 
+import com.procost.api.dto.BatchCalculateRequest;
+import com.procost.api.dto.BatchCalculateResponse;
 import com.procost.api.dto.CalculateChargesRequest;
 import com.procost.api.dto.CalculateChargesResponse;
 import com.procost.api.dto.CalculateRatesResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 @Service
 public class CalculatorService {
@@ -15,44 +21,155 @@ public class CalculatorService {
     @Autowired
     private DataLoaderService dataLoaderService;
     
+    @Autowired
+    private FactoryRateEngine factoryRateEngine;
+    
+    // Batches at least this long are priced on the common fork-join pool
+    @Value("${pricing.batch.parallel.threshold:500}")
+    private int parallelThreshold;
+    
     public CalculateRatesResponse calculateRates(String product, String trimType, String rmSpec,
                                                String prodType, String packType, String transportMode) {
-        Double filingRate = dataLoaderService.calculateFilingRate(product, trimType, rmSpec);
-        Double packagingRate = dataLoaderService.calculatePackagingRate(prodType, product, packType, transportMode);
+        RateSnapshot rates = dataLoaderService.getSnapshot();
+        Double filingRate = rates.filingRate(product, trimType, rmSpec);
+        Double packagingRate = rates.packagingRate(prodType, product, packType, transportMode);
+        
+        return new CalculateRatesResponse(filingRate, packagingRate, rates.getVersion());
+    }
+    
+    /**
+     * Rates from a factory's own rate and packaging tables
+     */
+    public CalculateRatesResponse calculateRates(Long factoryId, String product, String trimType, String rmSpec,
+                                               String prodType, String packType, String transportMode) {
+        FactoryRateSnapshot rates = factoryRateEngine.snapshot(factoryId);
+        Double filingRate = rates.filingRate(product, trimType, rmSpec);
+        Double packagingRate = rates.packagingRate(prodType, product, packType, transportMode);
         
-        return new CalculateRatesResponse(filingRate, packagingRate);
+        return new CalculateRatesResponse(filingRate, packagingRate, rates.getVersion());
     }
     
     public CalculateChargesResponse calculateCharges(CalculateChargesRequest request) {
-        Double yieldValue = request.getYieldValue();
-        Double weight = request.getWeight();
-        CalculateChargesRequest.OptionsDto options = request.getOptions();
+        return calculateCharges(null, request.getProdType(), request.getProduct(),
+                request.getWeight(), request.getOptions());
+    }
+    
+    /**
+     * Charges using a factory's pallet and terminal fees and its ProdaB/Encoding charge rates,
+     * falling back to the standard charges where the factory defines none
+     */
+    public CalculateChargesResponse calculateCharges(Long factoryId, CalculateChargesRequest request) {
+        return calculateCharges(factoryRateEngine.snapshot(factoryId), request.getProdType(), request.getProduct(),
+                request.getWeight(), request.getOptions());
+    }
+    
+    /**
+     * Price every line of a multi-line inquiry against one rate snapshot. Results come back in
+     * input order; a line that cannot be priced gets an error instead of failing the batch.
+     */
+    public BatchCalculateResponse calculateBatch(BatchCalculateRequest request) {
+        FactoryRateSnapshot factory = request.getFactoryId() != null
+                ? factoryRateEngine.snapshot(request.getFactoryId()) : null;
+        RateSnapshot standard = factory == null ? dataLoaderService.getSnapshot() : null;
+        RateIndex rates = factory != null ? factory.getRates() : standard.getRates();
         
-        // Calculate compulsory charges
-        Double palletCharge = 2.0 * weight;
-        Double terminalCharge = 0.25 * weight;
+        List<BatchCalculateRequest.LineDto> lines = request.getLines();
+        BatchCalculateResponse.LineResult[] results = new BatchCalculateResponse.LineResult[lines.size()];
+        IntStream indexes = IntStream.range(0, lines.size());
+        if (lines.size() >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> results[i] = priceLine(i, lines.get(i), rates, factory));
         
-        // Calculate optional charges
-        Map<String, Double> optionalCharges = new HashMap<>();
-        if (options.isProdaB()) {
-            optionalCharges.put("prodaB", 1.0 * weight);
+        BatchCalculateResponse response = new BatchCalculateResponse();
+        response.setFactoryId(request.getFactoryId());
+        response.setRateVersion(factory != null ? factory.getVersion() : standard.getVersion());
+        response.setLines(Arrays.asList(results));
+        response.setLineCount(results.length);
+        
+        int priced = 0;
+        double totalWeight = 0, totalCompulsory = 0, totalOptional = 0;
+        for (BatchCalculateResponse.LineResult result : results) {
+            if (result.getError() == null) {
+                priced++;
+                totalWeight += lines.get(result.getIndex()).getWeight();
+                totalCompulsory += result.getCharges().getTotalCompulsory();
+                totalOptional += result.getCharges().getTotalOptional();
+            }
         }
-        if (options.isEncoding()) {
-            optionalCharges.put("encoding", 1.5 * weight);
+        response.setPricedCount(priced);
+        response.setErrorCount(results.length - priced);
+        response.setTotalWeight(totalWeight);
+        response.setTotalCompulsory(totalCompulsory);
+        response.setTotalOptional(totalOptional);
+        response.setTotalCharges(totalCompulsory + totalOptional);
+        return response;
+    }
+    
+    private BatchCalculateResponse.LineResult priceLine(int index, BatchCalculateRequest.LineDto line,
+                                                       RateIndex rates, FactoryRateSnapshot factory) {
+        BatchCalculateResponse.LineResult result = new BatchCalculateResponse.LineResult(index);
+        if (line == null) {
+            result.setError("Line is empty");
+            return result;
+        }
+        if (line.getWeight() == null || line.getWeight() <= 0) {
+            result.setError("weight must be a positive number");
+            return result;
         }
         
-        // Calculate totals
-        Double totalCompulsory = palletCharge + terminalCharge;
-        Double totalOptional = optionalCharges.values().stream().mapToDouble(Double::doubleValue).sum();
-        Double totalCharges = totalCompulsory + totalOptional;
+        result.setFilingRate(rates.filingRate(line.getProduct(), line.getTrimType(), line.getRmSpec()));
+        result.setPackagingRate(rates.packagingRate(line.getProdType(), line.getProduct(),
+                line.getPackType(), line.getTransportMode()));
+        if (result.getFilingRate() == null) {
+            result.setError("No filleting rate for " + line.getProduct() + " / " + line.getTrimType()
+                    + " / " + line.getRmSpec());
+        } else if (result.getPackagingRate() == null) {
+            result.setError("No packaging rate for " + line.getProdType() + " / " + line.getProduct()
+                    + " / " + line.getPackType() + " / " + line.getTransportMode());
+        } else {
+            result.setCharges(calculateCharges(factory, line.getProdType(), line.getProduct(),
+                    line.getWeight(), line.getOptions()));
+        }
+        return result;
+    }
+    
+    /**
+     * Charges for one kg of a product, without the flat per-quote fees
+     */
+    double chargesPerKg(FactoryRateSnapshot factory, String prodType, String product,
+                        CalculateChargesRequest.OptionsDto options) {
+        return chargeSchedule(factory, prodType, product).perKg(ChargeSchedule.optionsOf(options));
+    }
+    
+    private CalculateChargesResponse calculateCharges(FactoryRateSnapshot factory, String prodType, String product,
+                                                      Double weight, CalculateChargesRequest.OptionsDto options) {
+        ChargeSchedule schedule = chargeSchedule(factory, prodType, product);
+        int selected = ChargeSchedule.optionsOf(options);
+        double[] amounts = new double[schedule.size()];
+        Double totalCharges = schedule.evaluate(weight, selected, amounts);
+        
+        Double totalCompulsory = 0.0;
+        Map<String, Double> optionalCharges = new HashMap<>();
+        for (int i = 0; i < schedule.size(); i++) {
+            if (schedule.isCompulsory(i)) {
+                totalCompulsory += amounts[i];
+            } else if (schedule.applies(i, selected)) {
+                optionalCharges.put(schedule.getName(i), amounts[i]);
+            }
+        }
         
         return new CalculateChargesResponse(
-                palletCharge,
-                terminalCharge,
+                amounts[ChargeSchedule.PALLET],
+                amounts[ChargeSchedule.TERMINAL],
                 optionalCharges,
                 totalCompulsory,
-                totalOptional,
+                totalCharges - totalCompulsory,
                 totalCharges
         );
     }
-}
\ No newline at end of file
+    
+    private static ChargeSchedule chargeSchedule(FactoryRateSnapshot factory, String prodType, String product) {
+        return factory != null ? factory.chargeSchedule(prodType, product) : ChargeSchedule.standard();
+    }
+}
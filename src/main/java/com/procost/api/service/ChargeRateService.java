@@ -1,11 +1,14 @@
 package com.procost.api.service;
 
+import com.procost.api.dto.KeysetPage;
 import com.procost.api.model.ChargeRate;
 import com.procost.api.model.Factory;
 import com.procost.api.repository.ChargeRateRepository;
 import com.procost.api.repository.FactoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
@@ -20,6 +23,15 @@ public class ChargeRateService {
     @Autowired
     private FactoryRepository factoryRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private RateTableSyncService rateTableSyncService;
+    
+    @Autowired
+    private RatePageQuery ratePageQuery;
+    
     public List<ChargeRate> getAllChargeRates() {
         return chargeRateRepository.findAll();
     }
@@ -52,12 +64,24 @@ public class ChargeRateService {
             factoryId, chargeName, productType, product, subtype));
     }
     
+    /**
+     * Charge rate rows after a cursor id, optionally filtered by charge name, product type and product
+     */
+    public KeysetPage<ChargeRate> getChargeRatePage(Long factoryId, Long after, int limit, String chargeName,
+                                                    String productType, String product) {
+        List<ChargeRate> rows = ratePageQuery.findPage(ChargeRate.class, factoryId, after, limit + 1,
+            RatePageQuery.filters("chargeName", chargeName, "productType", productType, "product", product));
+        return KeysetPage.of(rows, limit, ChargeRate::getId);
+    }
+    
     public ChargeRate createChargeRate(Long factoryId, ChargeRate chargeRate) {
         Factory factory = factoryRepository.findById(factoryId)
             .orElseThrow(() -> new EntityNotFoundException("Factory not found with id: " + factoryId));
         
         chargeRate.setFactory(factory);
-        return chargeRateRepository.save(chargeRate);
+        ChargeRate savedChargeRate = chargeRateRepository.save(chargeRate);
+        eventPublisher.publishEvent(new FactoryRatesChangedEvent(factoryId));
+        return savedChargeRate;
     }
     
     public ChargeRate updateChargeRate(Long id, ChargeRate chargeRateDetails) {
@@ -70,7 +94,9 @@ public class ChargeRateService {
         chargeRate.setSubtype(chargeRateDetails.getSubtype());
         chargeRate.setRateValue(chargeRateDetails.getRateValue());
         
-        return chargeRateRepository.save(chargeRate);
+        ChargeRate savedChargeRate = chargeRateRepository.save(chargeRate);
+        publishChange(savedChargeRate);
+        return savedChargeRate;
     }
     
     public void deleteChargeRate(Long id) {
@@ -78,6 +104,7 @@ public class ChargeRateService {
             .orElseThrow(() -> new EntityNotFoundException("Charge rate not found with id: " + id));
         
         chargeRateRepository.delete(chargeRate);
+        publishChange(chargeRate);
     }
     
     public List<ChargeRate> saveAllChargeRates(Long factoryId, List<ChargeRate> chargeRates) {
@@ -89,6 +116,23 @@ public class ChargeRateService {
             chargeRate.setFactory(factory);
         }
         
-        return chargeRateRepository.saveAll(chargeRates);
+        List<ChargeRate> savedChargeRates = chargeRateRepository.saveAll(chargeRates);
+        eventPublisher.publishEvent(new FactoryRatesChangedEvent(factoryId));
+        return savedChargeRates;
+    }
+    
+    /**
+     * Make the factory's charge rates match a full edited copy: rows are matched by charge name,
+     * product type, product and subtype, and only added, changed or removed rows are written
+     */
+    @Transactional
+    public RateTableSyncService.Changes syncChargeRates(Long factoryId, List<ChargeRate> chargeRates) {
+        return rateTableSyncService.syncChargeRates(factoryId, chargeRates);
+    }
+    
+    private void publishChange(ChargeRate chargeRate) {
+        if (chargeRate.getFactory() != null) {
+            eventPublisher.publishEvent(new FactoryRatesChangedEvent(chargeRate.getFactory().getId()));
+        }
     }
 } 
\ No newline at end of file
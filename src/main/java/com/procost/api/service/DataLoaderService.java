@@ -2,159 +2,277 @@ package com.procost.api.service;
 
 import com.procost.api.model.PackagingRate;
 import com.procost.api.model.RateTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.io.BufferedReader;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Standard filleting and packaging rates. Tables come from the bundled CSVs, or from
+ * rates.directory when it is set; that directory is watched and every change is parsed
+ * into a new {@link RateSnapshot} that replaces the current one in a single swap.
+ */
 @Service
 public class DataLoaderService {
     
-    private final List<RateTable> rateTableData = new ArrayList<>();
-    private final List<PackagingRate> packagingRateData = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(DataLoaderService.class);
+    
+    private static final String RATE_TABLE_FILE = "rate_table.csv";
+    private static final String PACK_TABLE_FILE = "pack_table.csv";
+    
+    @Value("${rates.directory:}")
+    private String ratesDirectory;
+    
+    // Editors often write a file in several steps; wait for this much quiet before reloading
+    @Value("${rates.reload.debounce.ms:500}")
+    private long reloadDebounceMs;
+    
+    // Rebuilt as a whole and swapped in, never modified in place
+    private volatile RateSnapshot snapshot;
+    
+    private WatchService watchService;
     
     @PostConstruct
     public void init() {
-        loadRateTableData();
-        loadPackagingRateData();
+        reload();
+        if (!ratesDirectory.isEmpty()) {
+            startWatching(Paths.get(ratesDirectory));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+    
+    /**
+     * The current rate tables; hold on to the returned snapshot for the whole calculation
+     */
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Parse both tables into a new snapshot and publish it
+     * @throws RuntimeException if a table cannot be read or parsed; the current snapshot stays in place
+     */
+    public synchronized RateSnapshot reload() {
+        long version = snapshot != null ? snapshot.getVersion() + 1 : 1;
+        Path rateTableFile = externalFile(RATE_TABLE_FILE);
+        Path packTableFile = externalFile(PACK_TABLE_FILE);
+        
+        List<RateTable> rateTableData = loadRateTableData(read(rateTableFile, RATE_TABLE_FILE));
+        List<PackagingRate> packagingRateData = loadPackagingRateData(read(packTableFile, PACK_TABLE_FILE));
+        
+        snapshot = new RateSnapshot(version, sourceOf(rateTableFile, RATE_TABLE_FILE),
+                sourceOf(packTableFile, PACK_TABLE_FILE), new RateIndex(rateTableData, packagingRateData),
+                new RateGrid(rateTableData, packagingRateData));
+        logger.info("Published rate tables v{} ({} rates, {} packaging rates)",
+                version, rateTableData.size(), packagingRateData.size());
+        return snapshot;
+    }
+    
+    private List<RateTable> loadRateTableData(CharSequence csv) {
+        List<RateTable> rateTableData = new ArrayList<>();
+        forEachRow(csv, values -> {
+            if (values.length >= 4) {
+                RateTable rate = new RateTable();
+                rate.setProduct(values[0].trim());
+                rate.setTrimType(values[1].trim());
+                rate.setRmSpec(values[2].trim());
+                rate.setRatePerKg(Double.parseDouble(values[3].trim()));
+                rateTableData.add(rate);
+            }
+        });
+        return rateTableData;
+    }
+    
+    private List<PackagingRate> loadPackagingRateData(CharSequence csv) {
+        List<PackagingRate> packagingRateData = new ArrayList<>();
+        forEachRow(csv, values -> {
+            if (values.length >= 5) {
+                PackagingRate packagingRate = new PackagingRate();
+                packagingRate.setProdType(values[0].trim());
+                packagingRate.setProduct(values[1].trim());
+                
+                // The pack_type in the CSV is what we need to use for both boxQty and pack
+                String packType = values[2].trim();
+                packagingRate.setBoxQty(packType);
+                packagingRate.setPack(packType);
+                
+                packagingRate.setTransportMode(values[3].trim());
+                packagingRate.setPackagingRate(Double.parseDouble(values[4].trim()));
+                packagingRateData.add(packagingRate);
+            }
+        });
+        return packagingRateData;
+    }
+    
+    /**
+     * Split a CSV into rows, skipping the header line
+     */
+    private static void forEachRow(CharSequence csv, Consumer<String[]> row) {
+        int start = 0;
+        boolean header = true;
+        while (start < csv.length()) {
+            int end = start;
+            while (end < csv.length() && csv.charAt(end) != '\n') {
+                end++;
+            }
+            String line = csv.subSequence(start, end > start && csv.charAt(end - 1) == '\r' ? end - 1 : end).toString();
+            if (!header) {
+                row.accept(line.split(","));
+            }
+            header = false;
+            start = end + 1;
+        }
+    }
+    
+    /**
+     * An override in rates.directory, or null to use the bundled table
+     */
+    private Path externalFile(String name) {
+        if (ratesDirectory.isEmpty()) {
+            return null;
+        }
+        Path file = Paths.get(ratesDirectory, name);
+        return Files.isRegularFile(file) ? file : null;
     }
     
-    private void loadRateTableData() {
+    private static CharSequence read(Path file, String name) {
         try {
-            ClassPathResource resource = new ClassPathResource("data/rate_table.csv");
-            BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()));
-            
-            // Skip header
-            String line = reader.readLine();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length >= 4) {
-                    RateTable rate = new RateTable();
-                    rate.setProduct(values[0].trim());
-                    rate.setTrimType(values[1].trim());
-                    rate.setRmSpec(values[2].trim());
-                    rate.setRatePerKg(Double.parseDouble(values[3].trim()));
-                    rateTableData.add(rate);
+            if (file != null) {
+                // Map the file instead of streaming it through a reader; decoding is the only copy
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
                 }
             }
-            
-            reader.close();
+            try (InputStream in = new ClassPathResource("data/" + name).getInputStream()) {
+                return CharBuffer.wrap(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
         } catch (IOException e) {
-            throw new RuntimeException("Failed to load rate table data", e);
+            throw new RuntimeException("Failed to load " + name, e);
         }
     }
     
-    private void loadPackagingRateData() {
+    private static String sourceOf(Path file, String name) {
+        return file != null ? file.toAbsolutePath().toString() : "classpath:data/" + name;
+    }
+    
+    private void startWatching(Path directory) {
         try {
-            ClassPathResource resource = new ClassPathResource("data/pack_table.csv");
-            BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()));
-            
-            // Skip header
-            String line = reader.readLine();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length >= 5) {
-                    PackagingRate packagingRate = new PackagingRate();
-                    packagingRate.setProdType(values[0].trim());
-                    packagingRate.setProduct(values[1].trim());
-                    
-                    // The pack_type in the CSV is what we need to use for both boxQty and pack
-                    String packType = values[2].trim();
-                    packagingRate.setBoxQty(packType);
-                    packagingRate.setPack(packType);
-                    
-                    packagingRate.setTransportMode(values[3].trim());
-                    packagingRate.setPackagingRate(Double.parseDouble(values[4].trim()));
-                    packagingRateData.add(packagingRate);
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to watch rate directory " + directory, e);
+        }
+        
+        Thread watcher = new Thread(this::watch, "rate-table-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching {} for rate table changes", directory.toAbsolutePath());
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean tablesChanged = isRateTableChange(key);
+                key.reset();
+                if (!tablesChanged) {
+                    continue;
+                }
+                
+                // Let the writer finish before parsing
+                WatchKey more;
+                while ((more = watchService.poll(reloadDebounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    logger.error("Rate tables not reloaded, keeping v{}: {}", snapshot.getVersion(), e.getMessage());
                 }
             }
-            
-            reader.close();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load packaging rate data", e);
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Rate table watcher stopped");
+        }
+    }
+    
+    private static boolean isRateTableChange(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else {
+                String name = event.context().toString();
+                changed |= RATE_TABLE_FILE.equals(name) || PACK_TABLE_FILE.equals(name);
+            }
         }
+        return changed;
     }
     
     public Double calculateFilingRate(String product, String trimType, String rmSpec) {
-        return rateTableData.stream()
-                .filter(rate -> rate.getProduct().equalsIgnoreCase(product)
-                        && rate.getTrimType().equalsIgnoreCase(trimType)
-                        && rate.getRmSpec().equalsIgnoreCase(rmSpec))
-                .findFirst()
-                .map(RateTable::getRatePerKg)
-                .orElse(null);
+        return snapshot.filingRate(product, trimType, rmSpec);
     }
     
     public Double calculatePackagingRate(String prodType, String product, String packType, String transportMode) {
-        return packagingRateData.stream()
-                .filter(rate -> rate.getProdType().equalsIgnoreCase(prodType)
-                        && rate.getProduct().equalsIgnoreCase(product)
-                        && rate.getPack().equalsIgnoreCase(packType)
-                        && rate.getTransportMode().equalsIgnoreCase(transportMode))
-                .findFirst()
-                .map(PackagingRate::getPackagingRate)
-                .orElse(null);
+        return snapshot.packagingRate(prodType, product, packType, transportMode);
     }
     
     public List<String> getProductOptions() {
-        return rateTableData.stream()
-                .map(RateTable::getProduct)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getProducts();
     }
     
     public List<String> getTrimTypes(String product) {
-        return rateTableData.stream()
-                .filter(rate -> rate.getProduct().equalsIgnoreCase(product))
-                .map(RateTable::getTrimType)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getTrimTypes(product);
     }
     
     public List<String> getRmSpecs() {
-        return rateTableData.stream()
-                .map(RateTable::getRmSpec)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getRmSpecs();
     }
     
     public List<String> getProdTypes() {
-        return packagingRateData.stream()
-                .map(PackagingRate::getProdType)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getProdTypes();
     }
     
     public List<String> getPackagingTypes(String product, String prodType) {
-        return packagingRateData.stream()
-                .filter(rate -> rate.getProduct().equalsIgnoreCase(product)
-                        && rate.getProdType().equalsIgnoreCase(prodType))
-                .map(PackagingRate::getPack)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getPackTypes(product, prodType);
     }
     
     public List<String> getPackagingSizes(String product, String prodType) {
-        return packagingRateData.stream()
-                .filter(rate -> rate.getProduct().equalsIgnoreCase(product)
-                        && rate.getProdType().equalsIgnoreCase(prodType))
-                .map(PackagingRate::getBoxQty)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getBoxQuantities(product, prodType);
     }
     
     public List<String> getTransportModes() {
-        return packagingRateData.stream()
-                .map(PackagingRate::getTransportMode)
-                .distinct()
-                .collect(Collectors.toList());
+        return snapshot.getRates().getTransportModes();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package com.procost.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procost.api.dto.ZapierEmailWebhook;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Reads emails one at a time from an NDJSON export (one webhook JSON object per line)
+ * or an mbox mailbox, so archives of any size can be replayed without loading them into memory.
+ * Entries that cannot be parsed are skipped with a {@link MalformedEmailException}.
+ */
+public class EmailArchiveReader implements Closeable {
+
+    public enum Format {
+        NDJSON, MBOX;
+
+        public static Format fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // mboxrd: "From " at the start of a body line is escaped as ">From ", ">>From " and so on
+    private static final Pattern ESCAPED_FROM_LINE = Pattern.compile("^>+From ");
+
+    private final Format format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private final Session mailSession = Session.getInstance(new Properties());
+
+    private String nextFromLine;
+    private long entryNumber;
+
+    public EmailArchiveReader(InputStream in, Format format, ObjectMapper objectMapper) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        // mbox content is raw bytes in any charset; ISO-8859-1 maps each byte to one char and back
+        this.reader = new BufferedReader(new InputStreamReader(in,
+            format == Format.MBOX ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Next email in the archive, or null at the end
+     * @throws MalformedEmailException if the entry cannot be parsed; reading can continue with the next one
+     */
+    public ZapierEmailWebhook read() throws IOException {
+        return format == Format.NDJSON ? readJsonLine() : readMboxMessage();
+    }
+
+    /**
+     * Position of the last entry read, for error reporting
+     */
+    public long getEntryNumber() {
+        return entryNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private ZapierEmailWebhook readJsonLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        entryNumber++;
+        try {
+            return objectMapper.readValue(line, ZapierEmailWebhook.class);
+        } catch (IOException e) {
+            throw new MalformedEmailException("Line " + entryNumber + " is not a valid email object: " + e.getMessage());
+        }
+    }
+
+    private ZapierEmailWebhook readMboxMessage() throws IOException {
+        if (nextFromLine == null) {
+            // Skip anything before the first separator
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && !line.startsWith("From "));
+            if (line == null) {
+                return null;
+            }
+        }
+        nextFromLine = null;
+
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        boolean previousBlank = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (previousBlank && line.startsWith("From ")) {
+                nextFromLine = line;
+                break;
+            }
+            if (ESCAPED_FROM_LINE.matcher(line).find()) {
+                line = line.substring(1);
+            }
+            message.write(line.getBytes(StandardCharsets.ISO_8859_1));
+            message.write('\n');
+            previousBlank = line.isEmpty();
+        }
+
+        entryNumber++;
+        try {
+            return toWebhook(new MimeMessage(mailSession, new ByteArrayInputStream(message.toByteArray())));
+        } catch (MessagingException | IOException e) {
+            throw new MalformedEmailException("Message " + entryNumber + " is not a valid email: " + e.getMessage());
+        }
+    }
+
+    private ZapierEmailWebhook toWebhook(MimeMessage message) throws MessagingException, IOException {
+        ZapierEmailWebhook email = new ZapierEmailWebhook();
+
+        Address[] from = message.getFrom();
+        if (from != null && from.length > 0) {
+            email.setFromEmail(from[0] instanceof InternetAddress
+                ? ((InternetAddress) from[0]).getAddress() : from[0].toString());
+        }
+        email.setSubject(message.getSubject());
+        email.setMessageId(message.getMessageID());
+        email.setEmailBody(textOf(message));
+        if (message.getSentDate() != null) {
+            email.setReceivedAt(LocalDateTime.ofInstant(message.getSentDate().toInstant(), ZoneId.systemDefault()));
+        }
+        return email;
+    }
+
+    /**
+     * Plain text of a message part, preferring text/plain alternatives over HTML
+     */
+    private static String textOf(Part part) throws MessagingException, IOException {
+        if (part.isMimeType("text/plain")) {
+            return String.valueOf(part.getContent());
+        }
+        if (part.isMimeType("text/html")) {
+            return String.valueOf(part.getContent()).replaceAll("<[^>]+>", " ");
+        }
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            String fallback = null;
+            for (int i = 0; i < multipart.getCount(); i++) {
+                Part child = multipart.getBodyPart(i);
+                if (Part.ATTACHMENT.equalsIgnoreCase(child.getDisposition())) {
+                    continue;
+                }
+                String text = textOf(child);
+                if (text != null && child.isMimeType("text/plain")) {
+                    return text;
+                }
+                if (fallback == null) {
+                    fallback = text;
+                }
+            }
+            return fallback;
+        }
+        return null;
+    }
+
+    public static class MalformedEmailException extends IOException {
+        public MalformedEmailException(String message) {
+            super(message);
+        }
+    }
+}
@@ -3,15 +3,23 @@ package com.procost.api.service;
 import com.procost.api.dto.ZapierEmailWebhook;
 import com.procost.api.model.*;
 import com.procost.api.repository.CustomerRepository;
+import com.procost.api.repository.EmailEnquiryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityNotFoundException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -25,69 +33,16 @@ public class EmailEnquiryService {
     @Autowired
     private CustomerRepository customerRepository;
     
+    @Autowired
+    private EmailEnquiryRepository emailEnquiryRepository;
+    
     public EmailEnquiry processIncomingEmail(ZapierEmailWebhook webhook) {
         logger.info("Processing incoming email from: {}, Subject: {}", 
                    webhook.getFromEmail(), webhook.getSubject());
         
         try {
-            // Classify the email type using hybrid AI (patterns + OpenAI fallback)
-            String emailType = hybridEmailProcessor.classifyEmail(webhook.getSubject(), webhook.getEmailBody());
-            logger.info("Email classified as: {}", emailType);
-            
-            // Create new email enquiry
-            EmailEnquiry enquiry = new EmailEnquiry();
-            enquiry.setEnquiryId(generateEnquiryId());
-            enquiry.setFromEmail(webhook.getFromEmail());
-            enquiry.setSubject(webhook.getSubject());
-            enquiry.setEmailBody(webhook.getEmailBody());
-            enquiry.setReceivedAt(webhook.getReceivedAt() != null ? 
-                                  webhook.getReceivedAt() : LocalDateTime.now());
-            
-            // Extract customer information using hybrid AI (patterns + OpenAI fallback)
-            Customer customer = hybridEmailProcessor.extractCustomerInfo(
-                webhook.getFromEmail(), 
-                webhook.getEmailBody(), 
-                webhook.getSubject()
-            );
-            
-            // Save customer if new
-            if (customer.getId() == null) {
-                customer = customerRepository.save(customer);
-                logger.info("Created new customer: {} from {}", customer.getContactPerson(), customer.getCompanyName());
-            }
-            
-            enquiry.setCustomer(customer);
-            
-            // Parse product requirements using hybrid AI (patterns + OpenAI fallback)
-            List<EnquiryItem> enquiryItems = hybridEmailProcessor.parseProductRequirements(webhook.getEmailBody());
-            
-            if (enquiryItems.isEmpty()) {
-                logger.warn("No products extracted from email, creating general enquiry");
-            } else {
-                logger.info("Extracted {} product items from email", enquiryItems.size());
-            }
-            
-            // Add items to enquiry
-            for (EnquiryItem item : enquiryItems) {
-                enquiry.getEnquiryItems().add(item);
-            }
-            
-            // Update status based on email classification and AI confidence
-            if ("ORDER".equals(emailType)) {
-                enquiry.setStatus(EnquiryStatus.PROCESSING);
-            } else if ("QUOTE_RESPONSE".equals(emailType)) {
-                enquiry.setStatus(EnquiryStatus.QUOTED);
-            } else {
-                enquiry.setStatus(EnquiryStatus.RECEIVED);
-            }
-            
-            enquiry.setAiProcessed(true);
-            enquiry.setProcessedAt(LocalDateTime.now());
-            
-            logger.info("Successfully processed AI-enhanced email enquiry: {} with {} items", 
-                       enquiry.getEnquiryId(), enquiry.getEnquiryItems().size());
-            
-            return enquiry;
+            EmailEnquiry enquiry = createEnquiry(webhook);
+            return enrichEnquiry(enquiry);
             
         } catch (Exception e) {
             logger.error("Error processing email enquiry", e);
@@ -95,9 +50,144 @@ public class EmailEnquiryService {
         }
     }
     
+    /**
+     * Persist the raw email as a queued enquiry without running any AI processing.
+     * The enquiry is picked up later by {@link EmailIngestionQueue}.
+     */
+    public EmailEnquiry acceptIncomingEmail(ZapierEmailWebhook webhook) {
+        logger.info("Accepting incoming email for async processing from: {}, Subject: {}", 
+                   webhook.getFromEmail(), webhook.getSubject());
+        
+        EmailEnquiry enquiry = createEnquiry(webhook);
+        enquiry.setIngestionStatus(IngestionStatus.QUEUED);
+        
+        return emailEnquiryRepository.save(enquiry);
+    }
+    
+    /**
+     * Run the hybrid AI pipeline for a previously accepted enquiry.
+     * Runs outside a transaction so that no database connection is held while
+     * waiting on pattern matching or OpenAI calls.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EmailEnquiry processQueuedEnquiry(String enquiryId) {
+        // Keep working on this detached instance; the copies returned by save() have no session
+        EmailEnquiry enquiry = emailEnquiryRepository.findWithItemsByEnquiryId(enquiryId)
+            .orElseThrow(() -> new EntityNotFoundException("Email enquiry not found: " + enquiryId));
+        
+        enquiry.setIngestionStatus(IngestionStatus.PROCESSING);
+        emailEnquiryRepository.save(enquiry);
+        
+        try {
+            enrichEnquiry(enquiry);
+            enquiry.setIngestionStatus(IngestionStatus.COMPLETED);
+        } catch (Exception e) {
+            logger.error("Error processing queued email enquiry {}", enquiryId, e);
+            enquiry.setIngestionStatus(IngestionStatus.FAILED);
+            enquiry.setProcessingNotes("Processing failed: " + e.getMessage());
+        }
+        
+        return emailEnquiryRepository.save(enquiry);
+    }
+    
+    /**
+     * Remove an accepted enquiry that could not be queued
+     */
+    public void discardEnquiry(EmailEnquiry enquiry) {
+        emailEnquiryRepository.delete(enquiry);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<EmailEnquiry> findByEnquiryId(String enquiryId) {
+        return emailEnquiryRepository.findByEnquiryId(enquiryId);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<String> findPendingEnquiryIds() {
+        return emailEnquiryRepository
+            .findByIngestionStatusIn(Arrays.asList(IngestionStatus.QUEUED, IngestionStatus.PROCESSING))
+            .stream()
+            .map(EmailEnquiry::getEnquiryId)
+            .collect(Collectors.toList());
+    }
+    
+    private EmailEnquiry createEnquiry(ZapierEmailWebhook webhook) {
+        EmailEnquiry enquiry = new EmailEnquiry();
+        enquiry.setEnquiryId(generateEnquiryId());
+        enquiry.setFromEmail(webhook.getFromEmail());
+        enquiry.setSubject(webhook.getSubject());
+        enquiry.setEmailBody(webhook.getEmailBody());
+        enquiry.setOriginalEmailId(webhook.getMessageId());
+        enquiry.setReceivedAt(webhook.getReceivedAt() != null ? 
+                              webhook.getReceivedAt() : LocalDateTime.now());
+        return enquiry;
+    }
+    
+    private EmailEnquiry enrichEnquiry(EmailEnquiry enquiry) {
+        // Classify, extract the customer and parse products using hybrid AI (patterns + OpenAI fallback).
+        // Steps that need OpenAI share one combined request when that is cheaper.
+        EmailExtraction extraction = hybridEmailProcessor.processEmail(
+            enquiry.getFromEmail(), 
+            enquiry.getSubject(), 
+            enquiry.getEmailBody()
+        );
+        
+        String emailType = extraction.getClassification();
+        logger.info("Email classified as: {}", emailType);
+        
+        // Save customer if new
+        Customer customer = extraction.getCustomer();
+        if (customer.getId() == null) {
+            customer = customerRepository.save(customer);
+            logger.info("Created new customer: {} from {}", customer.getContactPerson(), customer.getCompanyName());
+        }
+        
+        enquiry.setCustomer(customer);
+        
+        List<EnquiryItem> enquiryItems = extraction.getItems();
+        
+        if (enquiryItems.isEmpty()) {
+            logger.warn("No products extracted from email, creating general enquiry");
+        } else {
+            logger.info("Extracted {} product items from email", enquiryItems.size());
+        }
+        
+        // Add items to enquiry
+        for (EnquiryItem item : enquiryItems) {
+            item.setEmailEnquiry(enquiry);
+            enquiry.getEnquiryItems().add(item);
+        }
+        
+        // Update status based on email classification and AI confidence
+        enquiry.setStatus(statusFor(emailType));
+        
+        enquiry.setAiProcessed(true);
+        enquiry.setProcessedAt(LocalDateTime.now());
+        
+        logger.info("Successfully processed AI-enhanced email enquiry: {} with {} items", 
+                   enquiry.getEnquiryId(), enquiry.getEnquiryItems().size());
+        
+        return enquiry;
+    }
+    
+    /**
+     * Enquiry status for an email classification
+     */
+    static EnquiryStatus statusFor(String emailType) {
+        if ("ORDER".equals(emailType)) {
+            return EnquiryStatus.PROCESSING;
+        } else if ("QUOTE_RESPONSE".equals(emailType)) {
+            return EnquiryStatus.QUOTED;
+        }
+        return EnquiryStatus.RECEIVED;
+    }
+    
+    /**
+     * A new enquiry reference, ENQ-{year}-{random hex}. Random rather than time-based so
+     * webhooks accepted in the same millisecond never collide on the unique column.
+     */
     private String generateEnquiryId() {
-        String year = String.valueOf(LocalDate.now().getYear());
-        String sequence = String.format("%04d", System.currentTimeMillis() % 10000);
-        return "ENQ-" + year + "-" + sequence;
+        String suffix = UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase(Locale.ROOT);
+        return "ENQ-" + LocalDate.now().getYear() + "-" + suffix;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.procost.api.service;
+
+import com.procost.api.model.Factory;
+import com.procost.api.repository.ChargeRateRepository;
+import com.procost.api.repository.FactoryRepository;
+import com.procost.api.repository.PackagingRateRepository;
+import com.procost.api.repository.RateTableRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves pricing lookups for each factory from an in-memory snapshot of its rate, packaging
+ * and charge tables. Snapshots are loaded on first use (and for all factories at startup) and
+ * rebuilt after every committed change, so calculations never touch the database.
+ */
+@Service
+public class FactoryRateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FactoryRateEngine.class);
+
+    @Autowired
+    private FactoryRepository factoryRepository;
+
+    @Autowired
+    private RateTableRepository rateTableRepository;
+
+    @Autowired
+    private PackagingRateRepository packagingRateRepository;
+
+    @Autowired
+    private ChargeRateRepository chargeRateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, FactoryRateSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    private TransactionTemplate readTransaction;
+
+    // After commit the finished transaction and its persistence context are still bound; read in a fresh one
+    private TransactionTemplate afterCommitReadTransaction;
+
+    @PostConstruct
+    public void init() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        afterCommitReadTransaction = new TransactionTemplate(transactionManager);
+        afterCommitReadTransaction.setReadOnly(true);
+        afterCommitReadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        for (Factory factory : factoryRepository.findAll()) {
+            reload(factory.getId());
+        }
+        logger.info("Loaded rate snapshots for {} factories", snapshots.size());
+    }
+
+    /**
+     * Current snapshot for a factory, loading it if this is the first request for it
+     * @throws EntityNotFoundException if the factory does not exist
+     */
+    public FactoryRateSnapshot snapshot(Long factoryId) {
+        FactoryRateSnapshot snapshot = snapshots.get(factoryId);
+        if (snapshot == null) {
+            snapshot = reload(factoryId)
+                .orElseThrow(() -> new EntityNotFoundException("Factory not found with id: " + factoryId));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuild after the change that published the event has committed; with no surrounding
+     * transaction the rebuild happens straight away
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatesChanged(FactoryRatesChangedEvent event) {
+        reload(event.getFactoryId(), afterCommitReadTransaction);
+    }
+
+    /**
+     * Build a fresh snapshot from the database and swap it in, or drop it if the factory is gone.
+     * Rebuilds are serialized so an older read can never replace a newer one.
+     */
+    public Optional<FactoryRateSnapshot> reload(Long factoryId) {
+        return reload(factoryId, readTransaction);
+    }
+
+    private synchronized Optional<FactoryRateSnapshot> reload(Long factoryId, TransactionTemplate transaction) {
+        FactoryRateSnapshot snapshot = transaction.execute(status ->
+            factoryRepository.findById(factoryId)
+                .map(factory -> new FactoryRateSnapshot(factory, versions.incrementAndGet(),
+                    rateTableRepository.findAllByFactoryId(factoryId),
+                    packagingRateRepository.findAllByFactoryId(factoryId),
+                    chargeRateRepository.findByFactoryId(factoryId)))
+                .orElse(null));
+
+        reloads.incrementAndGet();
+        if (snapshot == null) {
+            snapshots.remove(factoryId);
+            logger.info("Dropped rate snapshot for deleted factory {}", factoryId);
+            return Optional.empty();
+        }
+        snapshots.put(factoryId, snapshot);
+        logger.debug("Loaded rate snapshot v{} for factory {}", snapshot.getVersion(), factoryId);
+        return Optional.of(snapshot);
+    }
+
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> factories = new ArrayList<>();
+        for (FactoryRateSnapshot snapshot : snapshots.values()) {
+            factories.add(snapshot.toMap());
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("factories", factories);
+        stats.put("reloads", reloads.get());
+        return stats;
+    }
+}
@@ -4,21 +4,38 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.procost.api.model.*;
 import com.procost.api.repository.CustomerRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class OpenAIEmailProcessor {
     
     private static final Logger logger = LoggerFactory.getLogger(OpenAIEmailProcessor.class);
     
+    // Prompt template versions; bump when a prompt changes so cached responses are not reused
+    private static final String CLASSIFICATION_PROMPT_VERSION = "classification-v1";
+    private static final String CUSTOMER_EXTRACTION_PROMPT_VERSION = "customer-extraction-v1";
+    private static final String PRODUCT_PARSING_PROMPT_VERSION = "product-parsing-v1";
+    private static final String COMBINED_EXTRACTION_PROMPT_VERSION = "combined-extraction-v1";
+    
+    private static final int DEFAULT_MAX_TOKENS = 1000;
+    
     @Value("${openai.api.key:}")
     private String openaiApiKey;
     
@@ -28,126 +45,278 @@ public class OpenAIEmailProcessor {
     @Value("${openai.model:gpt-4}")
     private String openaiModel;
     
+    @Value("${ai.request.timeout:30000}")
+    private long requestTimeoutMs;
+    
+    @Value("${ai.retry.on.failure:true}")
+    private boolean retryOnFailure;
+    
+    @Value("${ai.max.retries:3}")
+    private int maxRetries;
+    
+    @Value("${ai.retry.backoff.ms:500}")
+    private long retryBackoffMs;
+    
+    @Value("${ai.retry.max.backoff.ms:8000}")
+    private long retryMaxBackoffMs;
+    
     @Autowired
     private CustomerRepository customerRepository;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private AIResponseCache responseCache;
+    
+    @Autowired
+    private WebClient openAIWebClient;
+    
+    @Autowired
+    private AIUsageMetrics metrics;
+    
+    @Autowired
+    private AIBudgetGovernor budgetGovernor;
+    
+    @Autowired
+    private OpenAIGuard openAIGuard;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     /**
      * Classify email using OpenAI GPT
      */
     public String classifyEmailWithAI(String subject, String body) {
+        return classifyEmailWithAIReactive(subject, body).block();
+    }
+    
+    /**
+     * Classify email using OpenAI GPT without blocking; errors are passed on so the caller can keep its pattern result
+     */
+    public Mono<String> classifyEmailWithAIReactive(String subject, String body) {
         logger.info("Classifying email with OpenAI: {}", subject);
         
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
-            logger.warn("OpenAI API key not configured, falling back to pattern matching");
-            return classifyEmailWithPatterns(subject, body);
+            return Mono.error(new IllegalStateException("OpenAI API key not configured"));
         }
         
         String prompt = createClassificationPrompt(subject, body);
         
-        try {
-            String response = callOpenAI(prompt);
-            String classification = parseClassificationResponse(response);
-            
-            logger.info("OpenAI classified email as: {}", classification);
-            return classification;
-            
-        } catch (Exception e) {
-            logger.error("Error calling OpenAI API, falling back to patterns: {}", e.getMessage());
-            return classifyEmailWithPatterns(subject, body);
-        }
+        return cachedCallOpenAI(CLASSIFICATION_PROMPT_VERSION, prompt, DEFAULT_MAX_TOKENS, subject, body)
+            .map(this::parseClassificationResponse)
+            .doOnNext(classification -> logger.info("OpenAI classified email as: {}", classification));
     }
     
     /**
      * Extract customer information using OpenAI GPT
      */
     public Customer extractCustomerInfoWithAI(String fromEmail, String body, String subject) {
+        return extractCustomerInfoWithAIReactive(fromEmail, body, subject).block();
+    }
+    
+    /**
+     * Extract customer information using OpenAI GPT without blocking; errors are passed on so the caller
+     * can keep its pattern result
+     */
+    public Mono<Customer> extractCustomerInfoWithAIReactive(String fromEmail, String body, String subject) {
         logger.info("Extracting customer info with OpenAI from: {}", fromEmail);
         
         // Check if customer already exists
-        Optional<Customer> existingCustomer = customerRepository.findByEmail(fromEmail);
-        if (existingCustomer.isPresent()) {
-            logger.info("Found existing customer: {}", existingCustomer.get().getEmail());
-            return existingCustomer.get();
-        }
+        return Mono.fromCallable(() -> customerRepository.findByEmail(fromEmail))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(existingCustomer -> {
+                if (existingCustomer.isPresent()) {
+                    logger.info("Found existing customer: {}", existingCustomer.get().getEmail());
+                    return Mono.just(existingCustomer.get());
+                }
+                
+                if (openaiApiKey == null || openaiApiKey.isEmpty()) {
+                    return Mono.error(new IllegalStateException("OpenAI API key not configured"));
+                }
+                
+                String prompt = createCustomerExtractionPrompt(fromEmail, body, subject);
+                
+                return cachedCallOpenAI(CUSTOMER_EXTRACTION_PROMPT_VERSION, prompt, DEFAULT_MAX_TOKENS, fromEmail, subject, body)
+                    .map(response -> parseCustomerResponse(response, fromEmail))
+                    .doOnNext(customer -> logger.info("OpenAI extracted customer: {} from {}", 
+                                                      customer.getContactPerson(), customer.getCompanyName()));
+            });
+    }
+    
+    /**
+     * Parse product requirements using OpenAI GPT
+     */
+    public List<EnquiryItem> parseProductRequirementsWithAI(String emailBody) {
+        return parseProductRequirementsWithAIReactive(emailBody).block();
+    }
+    
+    /**
+     * Parse product requirements using OpenAI GPT without blocking; errors are passed on so the caller
+     * can keep its pattern result
+     */
+    public Mono<List<EnquiryItem>> parseProductRequirementsWithAIReactive(String emailBody) {
+        logger.info("Parsing product requirements with OpenAI");
         
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
-            logger.warn("OpenAI API key not configured, using basic extraction");
-            return extractCustomerInfoBasic(fromEmail, body);
+            return Mono.error(new IllegalStateException("OpenAI API key not configured"));
         }
         
-        String prompt = createCustomerExtractionPrompt(fromEmail, body, subject);
+        String prompt = createProductParsingPrompt(emailBody);
         
-        try {
-            String response = callOpenAI(prompt);
-            Customer customer = parseCustomerResponse(response, fromEmail);
-            
-            logger.info("OpenAI extracted customer: {} from {}", 
-                       customer.getContactPerson(), customer.getCompanyName());
-            return customer;
-            
-        } catch (Exception e) {
-            logger.error("Error calling OpenAI for customer extraction: {}", e.getMessage());
-            return extractCustomerInfoBasic(fromEmail, body);
-        }
+        return cachedCallOpenAI(PRODUCT_PARSING_PROMPT_VERSION, prompt, DEFAULT_MAX_TOKENS, emailBody)
+            .map(this::parseProductResponse)
+            .doOnNext(items -> logger.info("OpenAI extracted {} product items", items.size()));
     }
     
     /**
-     * Parse product requirements using OpenAI GPT
+     * Run several extraction steps in one OpenAI round-trip. The email is sent once and
+     * the structured response is split into classification, customer and product items;
+     * only the requested steps are asked for and set on the result.
+     * @throws Exception if the call fails or the response is missing a requested section
      */
-    public List<EnquiryItem> parseProductRequirementsWithAI(String emailBody) {
-        logger.info("Parsing product requirements with OpenAI");
+    public EmailExtraction extractWithAI(Set<AIOperation> operations, String fromEmail, String subject,
+                                         String body, int maxTokens) throws Exception {
+        return extractWithAIReactive(operations, fromEmail, subject, body, maxTokens).block();
+    }
+    
+    /**
+     * Combined extraction without blocking; errors are passed on so the caller can keep its pattern results
+     */
+    public Mono<EmailExtraction> extractWithAIReactive(Set<AIOperation> operations, String fromEmail, String subject,
+                                                       String body, int maxTokens) {
+        logger.info("Running combined OpenAI extraction for {} from: {}", operations, fromEmail);
         
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
-            logger.warn("OpenAI API key not configured, using basic parsing");
-            return parseProductRequirementsBasic(emailBody);
+            return Mono.error(new IllegalStateException("OpenAI API key not configured"));
         }
         
-        String prompt = createProductParsingPrompt(emailBody);
+        String prompt = createCombinedExtractionPrompt(operations, fromEmail, subject, body);
         
-        try {
-            String response = callOpenAI(prompt);
-            List<EnquiryItem> items = parseProductResponse(response);
-            
-            logger.info("OpenAI extracted {} product items", items.size());
-            return items;
+        return cachedCallOpenAI(COMBINED_EXTRACTION_PROMPT_VERSION, prompt, maxTokens,
+                                operations.toString(), fromEmail, subject, body)
+            .handle((response, sink) -> {
+                try {
+                    sink.next(parseCombinedResponse(response, operations, fromEmail));
+                } catch (Exception e) {
+                    sink.error(e);
+                }
+            });
+    }
+    
+    private EmailExtraction parseCombinedResponse(String response, Set<AIOperation> operations,
+                                                  String fromEmail) throws Exception {
+        JsonNode root = objectMapper.readTree(extractJsonObject(response));
+        EmailExtraction extraction = new EmailExtraction();
+        
+        for (AIOperation operation : operations) {
+            JsonNode section = root.path(operation.getJsonField());
+            if (section.isMissingNode() || section.isNull()) {
+                throw new IllegalStateException("Combined response has no '" + operation.getJsonField() + "' section");
+            }
             
-        } catch (Exception e) {
-            logger.error("Error calling OpenAI for product parsing: {}", e.getMessage());
-            return parseProductRequirementsBasic(emailBody);
+            switch (operation) {
+                case CLASSIFICATION:
+                    extraction.setClassification(parseClassificationResponse(section.asText()));
+                    break;
+                case CUSTOMER_EXTRACTION:
+                    extraction.setCustomer(customerFromJson(section, fromEmail));
+                    break;
+                case PRODUCT_PARSING:
+                    extraction.setItems(itemsFromJson(section));
+                    break;
+            }
+            extraction.getAiOperations().add(operation);
         }
+        extraction.setOpenAICalls(1);
+        
+        logger.info("Combined OpenAI extraction completed for {}", operations);
+        return extraction;
     }
     
     /**
-     * Call OpenAI API
+     * Call OpenAI through the response cache, keyed on the prompt version and the raw inputs
      */
-    private String callOpenAI(String prompt) throws Exception {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(openaiApiKey);
-        
+    private Mono<String> cachedCallOpenAI(String promptVersion, String prompt, int maxTokens, String... inputs) {
+        String key = responseCache.key(openaiModel, promptVersion, inputs);
+        return responseCache.getOrLoad(key, promptVersion, openaiModel, () -> callOpenAI(promptVersion, prompt, maxTokens));
+    }
+    
+    /**
+     * Call OpenAI API. Each attempt is bounded by ai.request.timeout; timeouts, connection
+     * errors, 429 and 5xx responses are retried with jittered exponential backoff.
+     * Calls are rejected immediately while the circuit breaker is open or the bulkhead is full.
+     * Latency, outcome and reported token usage are recorded per prompt version.
+     * Every call is charged to the daily AI budget and is not made once that is used up.
+     */
+    private Mono<String> callOpenAI(String promptVersion, String prompt, int maxTokens) {
+        return budgetGovernor.guard(usage -> sendToOpenAI(promptVersion, prompt, maxTokens, usage));
+    }
+    
+    private Mono<String> sendToOpenAI(String promptVersion, String prompt, int maxTokens,
+                                      AIBudgetGovernor.Usage budgetUsage) {
         Map<String, Object> requestBody = Map.of(
             "model", openaiModel,
             "messages", List.of(
                 Map.of("role", "system", "content", "You are an AI assistant specialized in processing business emails for a seafood processing company. You extract structured information accurately and concisely."),
                 Map.of("role", "user", "content", prompt)
             ),
-            "max_tokens", 1000,
+            "max_tokens", maxTokens,
             "temperature", 0.1  // Low temperature for consistent results
         );
         
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        Mono<String> attempt = openAIWebClient.post()
+            .uri(openaiApiUrl)
+            .contentType(MediaType.APPLICATION_JSON)
+            .headers(headers -> headers.setBearerAuth(openaiApiKey))
+            .bodyValue(requestBody)
+            .retrieve()
+            .bodyToMono(String.class)
+            .timeout(Duration.ofMillis(requestTimeoutMs))
+            .handle((body, sink) -> {
+                try {
+                    JsonNode jsonResponse = objectMapper.readTree(body);
+                    String content = jsonResponse.path("choices").path(0).path("message").path("content").asText();
+                    JsonNode usage = jsonResponse.path("usage");
+                    if (!usage.isMissingNode()) {
+                        int promptTokens = usage.path("prompt_tokens").asInt();
+                        int completionTokens = usage.path("completion_tokens").asInt();
+                        metrics.recordTokens(openaiModel, promptTokens, completionTokens);
+                        budgetUsage.recordTokens(promptTokens, completionTokens);
+                    } else {
+                        // No usage block: charge the budget an estimate (~4 characters per token)
+                        budgetUsage.recordTokens(prompt.length() / 4, content.length() / 4);
+                    }
+                    sink.next(content);
+                } catch (Exception e) {
+                    sink.error(new RuntimeException("Unreadable OpenAI response: " + e.getMessage(), e));
+                }
+            });
+        
+        // The breaker sees every attempt; the bulkhead holds one slot for the call including retries
+        Mono<String> call = openAIGuard.withCircuitBreaker(attempt);
         
-        ResponseEntity<String> response = restTemplate.postForEntity(openaiApiUrl, request, String.class);
+        if (retryOnFailure && maxRetries > 0) {
+            call = call.retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(retryBackoffMs))
+                .maxBackoff(Duration.ofMillis(retryMaxBackoffMs))
+                .jitter(0.5)
+                .filter(this::isRetryable)
+                .doBeforeRetry(signal -> logger.warn("Retrying OpenAI call (retry {} of {}): {}",
+                                                     signal.totalRetries() + 1, maxRetries, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
         
-        if (response.getStatusCode() == HttpStatus.OK) {
-            JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-            return jsonResponse.path("choices").get(0).path("message").path("content").asText();
-        } else {
-            throw new RuntimeException("OpenAI API call failed: " + response.getStatusCode());
+        Mono<String> guarded = openAIGuard.withBulkhead(call);
+        return Mono.defer(() -> {
+            Timer.Sample sample = metrics.startTimer();
+            return guarded
+                .doOnSuccess(content -> metrics.recordOpenAICall(sample, promptVersion, "success"))
+                .doOnError(error -> metrics.recordOpenAICall(sample, promptVersion, error.getClass().getSimpleName()));
+        });
+    }
+    
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            HttpStatus status = ((WebClientResponseException) error).getStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS || status.is5xxServerError();
         }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
     }
     
     /**
@@ -223,6 +392,49 @@ public class OpenAIEmailProcessor {
             emailBody);
     }
     
+    /**
+     * Create a single prompt covering the requested extraction steps
+     */
+    private String createCombinedExtractionPrompt(Set<AIOperation> operations, String fromEmail,
+                                                  String subject, String body) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Process this email and return a single JSON object.\n\n")
+              .append("From: ").append(fromEmail).append("\n")
+              .append("Subject: ").append(subject).append("\n")
+              .append("Body: ").append(body).append("\n\n")
+              .append("Include exactly these fields:\n");
+        
+        if (operations.contains(AIOperation.CLASSIFICATION)) {
+            prompt.append("- \"classification\": one of ENQUIRY (requests for quotes, prices, product information), " +
+                          "ORDER (confirmed purchases), COMPLAINT (problems, issues), " +
+                          "QUOTE_RESPONSE (accepting/rejecting a previous quote) or GENERAL (greetings, thanks)\n");
+        }
+        if (operations.contains(AIOperation.CUSTOMER_EXTRACTION)) {
+            prompt.append("- \"customer\": {\"contactPerson\": name or 'Unknown', " +
+                          "\"companyName\": company or domain-based guess, \"phone\": phone or null, " +
+                          "\"address\": address or null, \"country\": country or 'Unknown'}\n");
+        }
+        if (operations.contains(AIOperation.PRODUCT_PARSING)) {
+            prompt.append("- \"products\": array of {\"productDescription\": as mentioned, " +
+                          "\"product\": SALMON, COD, HADDOCK, POLLOCK, MACKEREL, HERRING or UNKNOWN, " +
+                          "\"trimType\": FILLET, WHOLE, STEAK, LOIN, TAIL or UNKNOWN, " +
+                          "\"requestedQuantity\": quantity in kg, \"customerSkuReference\": code or null, " +
+                          "\"mappingConfidence\": HIGH, MEDIUM or LOW}; empty array if no products\n");
+        }
+        
+        prompt.append("\nRespond with the JSON object only.");
+        return prompt.toString();
+    }
+    
+    /**
+     * Strip any text or code fences around the JSON object in a response
+     */
+    private String extractJsonObject(String response) {
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        return start >= 0 && end > start ? response.substring(start, end + 1) : response;
+    }
+    
     /**
      * Parse classification response
      */
@@ -242,19 +454,10 @@ public class OpenAIEmailProcessor {
     /**
      * Parse customer response
      */
-    private Customer parseCustomerResponse(String response, String fromEmail) throws Exception {
+    private Customer parseCustomerResponse(String response, String fromEmail) {
         try {
             JsonNode customerJson = objectMapper.readTree(response);
-            
-            Customer customer = new Customer();
-            customer.setEmail(fromEmail);
-            customer.setContactPerson(customerJson.path("contactPerson").asText("Unknown"));
-            customer.setCompanyName(customerJson.path("companyName").asText("Unknown Company"));
-            customer.setPhone(customerJson.path("phone").asText(null));
-            customer.setAddress(customerJson.path("address").asText(null));
-            customer.setCountry(customerJson.path("country").asText("Unknown"));
-            
-            return customer;
+            return customerFromJson(customerJson, fromEmail);
             
         } catch (Exception e) {
             logger.warn("Failed to parse customer JSON, using basic extraction: {}", e.getMessage());
@@ -265,27 +468,10 @@ public class OpenAIEmailProcessor {
     /**
      * Parse product response
      */
-    private List<EnquiryItem> parseProductResponse(String response) throws Exception {
+    private List<EnquiryItem> parseProductResponse(String response) {
         try {
             JsonNode productsJson = objectMapper.readTree(response);
-            List<EnquiryItem> items = new ArrayList<>();
-            
-            if (productsJson.isArray()) {
-                for (JsonNode productNode : productsJson) {
-                    EnquiryItem item = new EnquiryItem();
-                    item.setProductDescription(productNode.path("productDescription").asText());
-                    item.setProduct(productNode.path("product").asText("UNKNOWN"));
-                    item.setTrimType(productNode.path("trimType").asText("UNKNOWN"));
-                    item.setRequestedQuantity(productNode.path("requestedQuantity").asInt(0));
-                    item.setCustomerSkuReference(productNode.path("customerSkuReference").asText(null));
-                    item.setMappingConfidence(productNode.path("mappingConfidence").asText("MEDIUM"));
-                    item.setAiMapped(true);
-                    
-                    items.add(item);
-                }
-            }
-            
-            return items;
+            return itemsFromJson(productsJson);
             
         } catch (Exception e) {
             logger.warn("Failed to parse products JSON, using basic parsing: {}", e.getMessage());
@@ -293,13 +479,40 @@ public class OpenAIEmailProcessor {
         }
     }
     
-    // Fallback methods (using the existing pattern-based logic)
+    private Customer customerFromJson(JsonNode customerJson, String fromEmail) {
+        Customer customer = new Customer();
+        customer.setEmail(fromEmail);
+        customer.setContactPerson(customerJson.path("contactPerson").asText("Unknown"));
+        customer.setCompanyName(customerJson.path("companyName").asText("Unknown Company"));
+        customer.setPhone(customerJson.path("phone").asText(null));
+        customer.setAddress(customerJson.path("address").asText(null));
+        customer.setCountry(customerJson.path("country").asText("Unknown"));
+        return customer;
+    }
     
-    private String classifyEmailWithPatterns(String subject, String body) {
-        // Implement the existing pattern-based classification
-        return "ENQUIRY"; // Simplified fallback
+    private List<EnquiryItem> itemsFromJson(JsonNode productsJson) {
+        List<EnquiryItem> items = new ArrayList<>();
+        
+        if (productsJson.isArray()) {
+            for (JsonNode productNode : productsJson) {
+                EnquiryItem item = new EnquiryItem();
+                item.setProductDescription(productNode.path("productDescription").asText());
+                item.setProduct(productNode.path("product").asText("UNKNOWN"));
+                item.setTrimType(productNode.path("trimType").asText("UNKNOWN"));
+                item.setRequestedQuantity(productNode.path("requestedQuantity").asInt(0));
+                item.setCustomerSkuReference(productNode.path("customerSkuReference").asText(null));
+                item.setMappingConfidence(productNode.path("mappingConfidence").asText("MEDIUM"));
+                item.setAiMapped(true);
+                
+                items.add(item);
+            }
+        }
+        
+        return items;
     }
     
+    // Fallback methods (using the existing pattern-based logic)
+    
     private Customer extractCustomerInfoBasic(String fromEmail, String body) {
         Customer customer = new Customer();
         customer.setEmail(fromEmail);
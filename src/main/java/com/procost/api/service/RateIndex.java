@@ -0,0 +1,229 @@
+package com.procost.api.service;
+
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable lookup structure over the filleting and packaging rate tables, built once at load time.
+ * Rates are keyed by (product, trimType, rmSpec) and (prodType, product, pack, transportMode), and the
+ * option lists are precomputed, so every lookup is a few case-insensitive hash probes that allocate nothing.
+ * Keys match ignoring case like the table scans they replace; where a key appears twice the first row wins.
+ */
+public final class RateIndex {
+
+    private static final RateIndex EMPTY = new RateIndex(Collections.emptyList(), Collections.emptyList());
+
+    // product -> trimType -> rmSpec -> rate per kg
+    private final KeyMap<KeyMap<KeyMap<Double>>> filingRates;
+    // prodType -> product -> pack -> transportMode -> packaging rate
+    private final KeyMap<KeyMap<KeyMap<KeyMap<Double>>>> packagingRates;
+
+    private final List<String> products;
+    private final List<String> rmSpecs;
+    private final List<String> prodTypes;
+    private final List<String> transportModes;
+    private final KeyMap<List<String>> trimTypesByProduct;
+    // prodType -> product -> options
+    private final KeyMap<KeyMap<List<String>>> packTypesByProdType;
+    private final KeyMap<KeyMap<List<String>>> boxQuantitiesByProdType;
+
+    private final int rateTableSize;
+    private final int packagingTableSize;
+
+    public RateIndex(List<RateTable> rateTable, List<PackagingRate> packagingTable) {
+        rateTableSize = rateTable.size();
+        packagingTableSize = packagingTable.size();
+
+        Map<String, Map<String, Map<String, Double>>> filing = new LinkedHashMap<>();
+        Set<String> productSet = new LinkedHashSet<>();
+        Set<String> rmSpecSet = new LinkedHashSet<>();
+        Map<String, Set<String>> trimTypes = new LinkedHashMap<>();
+
+        for (RateTable rate : rateTable) {
+            filing.computeIfAbsent(fold(rate.getProduct()), k -> new LinkedHashMap<>())
+                  .computeIfAbsent(fold(rate.getTrimType()), k -> new LinkedHashMap<>())
+                  .putIfAbsent(fold(rate.getRmSpec()), rate.getRatePerKg());
+            productSet.add(rate.getProduct());
+            rmSpecSet.add(rate.getRmSpec());
+            trimTypes.computeIfAbsent(fold(rate.getProduct()), k -> new LinkedHashSet<>()).add(rate.getTrimType());
+        }
+
+        Map<String, Map<String, Map<String, Map<String, Double>>>> packaging = new LinkedHashMap<>();
+        Set<String> prodTypeSet = new LinkedHashSet<>();
+        Set<String> transportModeSet = new LinkedHashSet<>();
+        Map<String, Map<String, Set<String>>> packTypes = new LinkedHashMap<>();
+        Map<String, Map<String, Set<String>>> boxQuantities = new LinkedHashMap<>();
+
+        for (PackagingRate rate : packagingTable) {
+            packaging.computeIfAbsent(fold(rate.getProdType()), k -> new LinkedHashMap<>())
+                     .computeIfAbsent(fold(rate.getProduct()), k -> new LinkedHashMap<>())
+                     .computeIfAbsent(fold(rate.getPack()), k -> new LinkedHashMap<>())
+                     .putIfAbsent(fold(rate.getTransportMode()), rate.getPackagingRate());
+            prodTypeSet.add(rate.getProdType());
+            transportModeSet.add(rate.getTransportMode());
+            packTypes.computeIfAbsent(fold(rate.getProdType()), k -> new LinkedHashMap<>())
+                     .computeIfAbsent(fold(rate.getProduct()), k -> new LinkedHashSet<>()).add(rate.getPack());
+            boxQuantities.computeIfAbsent(fold(rate.getProdType()), k -> new LinkedHashMap<>())
+                         .computeIfAbsent(fold(rate.getProduct()), k -> new LinkedHashSet<>()).add(rate.getBoxQty());
+        }
+
+        filingRates = KeyMap.of(filing, byTrim -> KeyMap.of(byTrim, KeyMap::of));
+        packagingRates = KeyMap.of(packaging, byProduct -> KeyMap.of(byProduct, byPack -> KeyMap.of(byPack, KeyMap::of)));
+
+        products = immutableList(productSet);
+        rmSpecs = immutableList(rmSpecSet);
+        prodTypes = immutableList(prodTypeSet);
+        transportModes = immutableList(transportModeSet);
+        trimTypesByProduct = KeyMap.of(trimTypes, RateIndex::immutableList);
+        packTypesByProdType = KeyMap.of(packTypes, byProduct -> KeyMap.of(byProduct, RateIndex::immutableList));
+        boxQuantitiesByProdType = KeyMap.of(boxQuantities, byProduct -> KeyMap.of(byProduct, RateIndex::immutableList));
+    }
+
+    public static RateIndex empty() {
+        return EMPTY;
+    }
+
+    public Double filingRate(String product, String trimType, String rmSpec) {
+        KeyMap<KeyMap<Double>> byTrim = filingRates.get(product);
+        KeyMap<Double> bySpec = byTrim != null ? byTrim.get(trimType) : null;
+        return bySpec != null ? bySpec.get(rmSpec) : null;
+    }
+
+    public Double packagingRate(String prodType, String product, String packType, String transportMode) {
+        KeyMap<KeyMap<KeyMap<Double>>> byProduct = packagingRates.get(prodType);
+        KeyMap<KeyMap<Double>> byPack = byProduct != null ? byProduct.get(product) : null;
+        KeyMap<Double> byMode = byPack != null ? byPack.get(packType) : null;
+        return byMode != null ? byMode.get(transportMode) : null;
+    }
+
+    public List<String> getProducts() {
+        return products;
+    }
+
+    public List<String> getTrimTypes(String product) {
+        return orEmpty(trimTypesByProduct.get(product));
+    }
+
+    public List<String> getRmSpecs() {
+        return rmSpecs;
+    }
+
+    public List<String> getProdTypes() {
+        return prodTypes;
+    }
+
+    public List<String> getPackTypes(String product, String prodType) {
+        KeyMap<List<String>> byProduct = packTypesByProdType.get(prodType);
+        return orEmpty(byProduct != null ? byProduct.get(product) : null);
+    }
+
+    public List<String> getBoxQuantities(String product, String prodType) {
+        KeyMap<List<String>> byProduct = boxQuantitiesByProdType.get(prodType);
+        return orEmpty(byProduct != null ? byProduct.get(product) : null);
+    }
+
+    public List<String> getTransportModes() {
+        return transportModes;
+    }
+
+    public int getRateTableSize() {
+        return rateTableSize;
+    }
+
+    public int getPackagingTableSize() {
+        return packagingTableSize;
+    }
+
+    private static List<String> orEmpty(List<String> options) {
+        return options != null ? options : Collections.emptyList();
+    }
+
+    private static List<String> immutableList(Set<String> values) {
+        return Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Canonical form used for build-time grouping; the same folding as String.CASE_INSENSITIVE_ORDER
+     */
+    private static String fold(String key) {
+        StringBuilder folded = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            folded.append(foldChar(key.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static char foldChar(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Immutable open-addressing hash map with case-insensitive String keys. Hashing and
+     * comparison fold each character in place, so probing never creates a new String.
+     */
+    private static final class KeyMap<V> {
+
+        private final String[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        private KeyMap(Map<String, V> entries) {
+            int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2 - 1)) << 1;
+            keys = new String[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+
+            for (Map.Entry<String, V> entry : entries.entrySet()) {
+                int slot = hash(entry.getKey()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = entry.getKey();
+                values[slot] = entry.getValue();
+            }
+        }
+
+        static <V> KeyMap<V> of(Map<String, V> entries) {
+            return new KeyMap<>(entries);
+        }
+
+        static <S, V> KeyMap<V> of(Map<String, S> entries, Function<S, V> valueMapper) {
+            Map<String, V> mapped = new LinkedHashMap<>();
+            entries.forEach((key, value) -> mapped.put(key, valueMapper.apply(value)));
+            return new KeyMap<>(mapped);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String key) {
+            if (key == null) {
+                return null;
+            }
+            int slot = hash(key) & mask;
+            String candidate;
+            while ((candidate = keys[slot]) != null) {
+                if (candidate.equalsIgnoreCase(key)) {
+                    return (V) values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(String key) {
+            int h = 0;
+            for (int i = 0; i < key.length(); i++) {
+                h = 31 * h + foldChar(key.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.procost.api.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset pages of a factory's rate rows with optional exact-match filters.
+ *
+ * Only the filters actually supplied become predicates. A static "(:x IS NULL OR col = :x)" query
+ * gets a single plan for every combination, so the database can't use the (factory_id, column, id)
+ * indexes when a filter is set.
+ */
+@Component
+public class RatePageQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Up to maxResults rows of the factory with id greater than afterId, ordered by id
+     *
+     * @param filters entity attribute name to required value, as built by {@link #filters}
+     */
+    @Transactional(readOnly = true)
+    public <T> List<T> findPage(Class<T> entityType, Long factoryId, Long afterId, int maxResults,
+                                Map<String, String> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entityType);
+        Root<T> root = query.from(entityType);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("factory").get("id"), factoryId));
+        filters.forEach((attribute, value) -> predicates.add(cb.equal(root.get(attribute), value)));
+        predicates.add(cb.greaterThan(root.<Long>get("id"), afterId != null ? afterId : 0L));
+
+        query.select(root).where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Filter map from attribute/value pairs, leaving out blank values
+     */
+    public static Map<String, String> filters(String... attributesAndValues) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < attributesAndValues.length; i += 2) {
+            String value = attributesAndValues[i + 1];
+            if (value != null && !value.trim().isEmpty()) {
+                filters.put(attributesAndValues[i], value);
+            }
+        }
+        return filters;
+    }
+}
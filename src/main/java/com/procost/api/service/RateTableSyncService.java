@@ -0,0 +1,267 @@
+package com.procost.api.service;
+
+import com.procost.api.model.ChargeRate;
+import com.procost.api.model.PackagingRate;
+import com.procost.api.model.RateTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Brings a factory's rate rows in line with a full edited copy by natural key instead of deleting
+ * and re-inserting the table. Rows whose key is unchanged keep their id; only rows whose values
+ * changed are updated, and only added or removed keys are inserted or deleted, each in JDBC batches.
+ * A key that appears several times is matched row for row, so duplicates are kept as sent.
+ */
+@Service
+public class RateTableSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateTableSyncService.class);
+
+    public enum Table {
+        RATE_TABLES("rate_tables",
+            new String[] {"product", "trim_type", "rm_spec"},
+            new String[] {"rate_per_kg"}),
+        PACKAGING_RATES("packaging_rates",
+            new String[] {"prod_type", "product", "pack", "transport_mode"},
+            new String[] {"box_qty", "packaging_rate"}),
+        CHARGE_RATES("charge_rates",
+            new String[] {"charge_name", "product_type", "product", "subtype"},
+            new String[] {"rate_value"});
+
+        private final String tableName;
+        private final String[] keyColumns;
+        private final String[] valueColumns;
+
+        Table(String tableName, String[] keyColumns, String[] valueColumns) {
+            this.tableName = tableName;
+            this.keyColumns = keyColumns;
+            this.valueColumns = valueColumns;
+        }
+
+        private int width() {
+            return keyColumns.length + valueColumns.length;
+        }
+
+        private String selectSql() {
+            return "SELECT id, " + String.join(", ", keyColumns) + ", " + String.join(", ", valueColumns)
+                + " FROM " + tableName + " WHERE factory_id = ?";
+        }
+
+        private String insertSql() {
+            String[] placeholders = new String[width() + 1];
+            Arrays.fill(placeholders, "?");
+            return "INSERT INTO " + tableName + " (" + String.join(", ", keyColumns) + ", "
+                + String.join(", ", valueColumns) + ", factory_id) VALUES (" + String.join(", ", placeholders) + ")";
+        }
+
+        private String updateSql() {
+            return "UPDATE " + tableName + " SET " + String.join(" = ?, ", valueColumns) + " = ? WHERE id = ?";
+        }
+
+        private String deleteSql() {
+            return "DELETE FROM " + tableName + " WHERE id = ?";
+        }
+    }
+
+    /**
+     * What one sync changed
+     */
+    public static final class Changes {
+        private final Table table;
+        private final int inserted;
+        private final int updated;
+        private final int deleted;
+        private final int unchanged;
+
+        private Changes(Table table, int inserted, int updated, int deleted, int unchanged) {
+            this.table = table;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+            this.unchanged = unchanged;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public boolean isEmpty() {
+            return inserted == 0 && updated == 0 && deleted == 0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("table", table.tableName);
+            map.put("inserted", inserted);
+            map.put("updated", updated);
+            map.put("deleted", deleted);
+            map.put("unchanged", unchanged);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${rates.import.batch.size:1000}")
+    private int batchSize;
+
+    @Transactional
+    public Changes syncRateTables(Long factoryId, List<RateTable> rateTables) {
+        List<Object[]> rows = new ArrayList<>(rateTables.size());
+        for (RateTable rate : rateTables) {
+            rows.add(new Object[] {rate.getProduct(), rate.getTrimType(), rate.getRmSpec(), rate.getRatePerKg()});
+        }
+        return sync(factoryId, Table.RATE_TABLES, rows);
+    }
+
+    @Transactional
+    public Changes syncPackagingRates(Long factoryId, List<PackagingRate> packagingRates) {
+        List<Object[]> rows = new ArrayList<>(packagingRates.size());
+        for (PackagingRate rate : packagingRates) {
+            rows.add(new Object[] {rate.getProdType(), rate.getProduct(), rate.getPack(), rate.getTransportMode(),
+                rate.getBoxQty(), rate.getPackagingRate()});
+        }
+        return sync(factoryId, Table.PACKAGING_RATES, rows);
+    }
+
+    @Transactional
+    public Changes syncChargeRates(Long factoryId, List<ChargeRate> chargeRates) {
+        List<Object[]> rows = new ArrayList<>(chargeRates.size());
+        for (ChargeRate rate : chargeRates) {
+            rows.add(new Object[] {rate.getChargeName(), rate.getProductType(), rate.getProduct(), rate.getSubtype(),
+                rate.getRateValue()});
+        }
+        return sync(factoryId, Table.CHARGE_RATES, rows);
+    }
+
+    /**
+     * @param rows the complete new table, each row its key columns followed by its value columns
+     */
+    private Changes sync(Long factoryId, Table table, List<Object[]> rows) {
+        // Locks the factory row, so concurrent saves for one factory run one after the other
+        List<Long> factory = jdbcTemplate.queryForList("SELECT id FROM factories WHERE id = ? FOR UPDATE",
+            Long.class, factoryId);
+        if (factory.isEmpty()) {
+            throw new EntityNotFoundException("Factory not found with id: " + factoryId);
+        }
+
+        int keyLength = table.keyColumns.length;
+        Map<List<Object>, ArrayDeque<Object[]>> current = new HashMap<>();
+        jdbcTemplate.query(table.selectSql(), (RowCallbackHandler) rs -> {
+            Object[] row = new Object[table.width() + 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            current.computeIfAbsent(key(row, 1, keyLength), k -> new ArrayDeque<>()).add(row);
+        }, factoryId);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        int unchanged = 0;
+        for (Object[] row : rows) {
+            ArrayDeque<Object[]> matches = current.get(key(row, 0, keyLength));
+            Object[] existing = matches != null ? matches.poll() : null;
+            if (existing == null) {
+                Object[] insert = Arrays.copyOf(row, row.length + 1);
+                insert[row.length] = factoryId;
+                inserts.add(insert);
+            } else if (valuesEqual(existing, row, keyLength)) {
+                unchanged++;
+            } else {
+                Object[] update = new Object[row.length - keyLength + 1];
+                System.arraycopy(row, keyLength, update, 0, row.length - keyLength);
+                update[update.length - 1] = existing[0];
+                updates.add(update);
+            }
+        }
+
+        // Whatever was not matched by a row of the new table is gone from it
+        List<Object[]> deletes = new ArrayList<>();
+        for (ArrayDeque<Object[]> remaining : current.values()) {
+            for (Object[] existing : remaining) {
+                deletes.add(new Object[] {existing[0]});
+            }
+        }
+
+        batch(table.deleteSql(), deletes);
+        batch(table.updateSql(), updates);
+        batch(table.insertSql(), inserts);
+
+        Changes changes = new Changes(table, inserts.size(), updates.size(), deletes.size(), unchanged);
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new FactoryRatesChangedEvent(factoryId));
+        }
+        logger.info("Synced {} for factory {}: {}", table.tableName, factoryId, changes);
+        return changes;
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, rows, batchSize, (ps, values) -> {
+            for (int i = 0; i < values.length; i++) {
+                ps.setObject(i + 1, values[i]);
+            }
+        });
+    }
+
+    private static List<Object> key(Object[] row, int from, int length) {
+        return Arrays.asList(Arrays.copyOfRange(row, from, from + length));
+    }
+
+    /**
+     * Stored values (after the id and key) against the values of a new row; rates compare as numbers
+     */
+    private static boolean valuesEqual(Object[] existing, Object[] row, int keyLength) {
+        for (int i = keyLength; i < row.length; i++) {
+            Object stored = existing[i + 1];
+            Object value = row[i];
+            if (stored instanceof Number && value instanceof Number) {
+                if (Double.compare(((Number) stored).doubleValue(), ((Number) value).doubleValue()) != 0) {
+                    return false;
+                }
+            } else if (!Objects.equals(stored, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}